@@ -1,15 +1,42 @@
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public class AwsmLinkedList<T> implements AwsmList<T>, Iterable<T> {
 
   private AwsmNode<T> head;
   private AwsmNode<T> tail;
   private int size;
+  private boolean pooled;
+  // counts adds and removes, so iterators can tell the list changed under them
+  private int modCount;
 
-  public AwsmLinkedList() {
+  /**
+   * The most nodes each thread keeps around for reuse.
+   */
+  public static final int POOL_CAPACITY = 1024;
+
+  /**
+   * Removed nodes from pooled lists are kept on a per-thread free list and
+   * handed out again by the next add on the same thread, so a list that is
+   * added to and removed from at the same rate stops allocating.
+   */
+  private static class NodePool {
+    public AwsmNode<Object> free;
+    public int count;
+  }
+
+  private static final ThreadLocal<NodePool> POOL = ThreadLocal.withInitial(NodePool::new);
+
+  public AwsmLinkedList(boolean pooled) {
     tail = new AwsmNode<>(null, null);
     head = new AwsmNode<>(null, tail);
     size = 0;
+    this.pooled = pooled;
+  }
+
+  public AwsmLinkedList() {
+    this(false);
   }
 
   @Override
@@ -20,9 +47,11 @@ public class AwsmLinkedList<T> implements AwsmList<T>, Iterable<T> {
   @Override
   public void addLast(T item) {
     tail.data = item;
-    AwsmNode<T> newTail = new AwsmNode<>(null, null);
+    AwsmNode<T> newTail = newNode(null, null);
     tail.next = newTail;
     tail = newTail;
+    size++;
+    modCount++;
   }
 
   @Override
@@ -34,9 +63,10 @@ public class AwsmLinkedList<T> implements AwsmList<T>, Iterable<T> {
       for (int i = 0; i < index; i++) {
         current = current.next;
       }
-      AwsmNode<T> node = new AwsmNode<>(item, current.next);
+      AwsmNode<T> node = newNode(item, current.next);
       current.next = node;
       size++;
+      modCount++;
     }
   }
 
@@ -56,19 +86,22 @@ public class AwsmLinkedList<T> implements AwsmList<T>, Iterable<T> {
       throw new IndexOutOfBoundsException();
     } else {
       AwsmNode<T> current = head;
-      for (int i = 0; i < index - 1; i++) {
+      for (int i = 0; i < index; i++) {
         current = current.next;
       }
       // remove current.next
-      current.next = current.next.next;
+      AwsmNode<T> removed = current.next;
+      current.next = removed.next;
       size--;
+      modCount++;
+      recycle(removed);
     }
   }
 
   public String toString() {
     StringBuilder stringBuilder = new StringBuilder();
     AwsmNode<T> current = head.next;
-    while (current != null) {
+    while (current != tail) {
       stringBuilder.append(current.data);
       stringBuilder.append(" ");
       current = current.next;
@@ -91,7 +124,7 @@ public class AwsmLinkedList<T> implements AwsmList<T>, Iterable<T> {
     if (index < 0 || index > size - 1) {
       throw new IndexOutOfBoundsException();
     } else {
-      AwsmNode<T> current = head;
+      AwsmNode<T> current = head.next;
       for (int i = 0; i < index; i++) {
         current = current.next;
       }
@@ -114,7 +147,7 @@ public class AwsmLinkedList<T> implements AwsmList<T>, Iterable<T> {
     if (index < 0 || index > size - 1) {
       throw new IndexOutOfBoundsException();
     } else {
-      AwsmNode<T> current = head;
+      AwsmNode<T> current = head.next;
       for (int i = 0; i < index; i++) {
         current = current.next;
       }
@@ -124,7 +157,7 @@ public class AwsmLinkedList<T> implements AwsmList<T>, Iterable<T> {
 
   @Override
   public Iterator<T> iterator() {
-    return new AwsmLinkedListIterator<T>(head);
+    return new AwsmLinkedListIterator();
   }
 
   @Override
@@ -132,29 +165,95 @@ public class AwsmLinkedList<T> implements AwsmList<T>, Iterable<T> {
     return size;
   }
 
-  public class AwsmLinkedListIterator<AnotherT> implements Iterator<T> {
-    public AwsmNode<T> current;
+  @SuppressWarnings("unchecked")
+  private AwsmNode<T> newNode(T item, AwsmNode<T> next) {
+    if (pooled) {
+      NodePool pool = POOL.get();
+      if (pool.free != null) {
+        AwsmNode<T> node = (AwsmNode<T>) (AwsmNode<?>) pool.free;
+        pool.free = pool.free.next;
+        pool.count--;
+        node.data = item;
+        node.next = next;
+        return node;
+      }
+    }
+    return new AwsmNode<>(item, next);
+  }
 
-    public AwsmLinkedListIterator(AwsmNode<T> head) {
-      current = head;
+  @SuppressWarnings("unchecked")
+  private void recycle(AwsmNode<T> node) {
+    // drop the item either way so the list does not keep it alive
+    node.data = null;
+    if (pooled) {
+      NodePool pool = POOL.get();
+      if (pool.count < POOL_CAPACITY) {
+        node.next = (AwsmNode<T>) (AwsmNode<?>) pool.free;
+        pool.free = (AwsmNode<Object>) (AwsmNode<?>) node;
+        pool.count++;
+        return;
+      }
     }
+    node.next = null;
+  }
+
+  /**
+   * Any add or remove on the list that does not go through this iterator makes
+   * the next call fail with a ConcurrentModificationException. remove is O(1)
+   * because the iterator remembers the car in front of the one it returned.
+   */
+  private class AwsmLinkedListIterator implements Iterator<T> {
+    private AwsmNode<T> current = head.next;
+    // the car last returned by next, and the car in front of it
+    private AwsmNode<T> lastReturned = null;
+    private AwsmNode<T> previous = head;
+    private int expectedModCount = modCount;
 
     @Override
     public boolean hasNext() {
-      // ie. you're beyond the last car
-      return current == null;
+      // ie. you're not at the empty last car yet
+      return current != tail;
     }
 
     @Override
     public T next() {
-      T data = current.data;
+      checkForComodification();
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      if (lastReturned != null) {
+        previous = lastReturned;
+      }
+      lastReturned = current;
       // go to the next car
       current = current.next;
-      return data;
+      return lastReturned.data;
+    }
+
+    @Override
+    public void remove() {
+      if (lastReturned == null) {
+        throw new IllegalStateException();
+      }
+      checkForComodification();
+      // uncouple the car we just returned; the one in front stays the same
+      previous.next = current;
+      recycle(lastReturned);
+      lastReturned = null;
+      size--;
+      modCount++;
+      expectedModCount = modCount;
+    }
+
+    private void checkForComodification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
     }
   }
 
-  public class AwsmNode<YetAnotherT> {
+  // static, so a pooled node does not hold on to the list that created it
+  public static class AwsmNode<YetAnotherT> {
     public YetAnotherT data;
     public AwsmNode<YetAnotherT> next;
 
@@ -169,6 +268,14 @@ public class AwsmLinkedList<T> implements AwsmList<T>, Iterable<T> {
     list.add(1, 0);
     list.add(2, 1);
     list.add(3, 1);
-    System.out.println(list);
+    System.out.println(list); // 1 3 2
+
+    AwsmLinkedList<Integer> pooled = new AwsmLinkedList<>(true);
+    pooled.addLast(1);
+    pooled.addLast(2);
+    pooled.removeFirst();
+    // the removed node is handed out again here
+    pooled.addLast(3);
+    System.out.println(pooled); // 2 3
   }
 }
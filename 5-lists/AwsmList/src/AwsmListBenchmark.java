@@ -0,0 +1,55 @@
+/**
+ * Rough timing of sequential scans and middle inserts on the linked lists.
+ * Run with e.g. java AwsmListBenchmark 100000 2000
+ */
+public class AwsmListBenchmark {
+
+  public static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int inserts = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+    AwsmBenchmark.rounds(ROUNDS, report -> {
+      AwsmLinkedList<Integer> linked = new AwsmLinkedList<>();
+      DoublyLinkedList<Integer> doubly = new DoublyLinkedList<>();
+      AwsmUnrolledLinkedList<Integer> unrolled = new AwsmUnrolledLinkedList<>();
+      for (int i = 0; i < n; i++) {
+        linked.addLast(i);
+        doubly.add(i);
+        unrolled.addLast(i);
+      }
+
+      AwsmBenchmark.time("scan AwsmLinkedList", report, () -> scan(linked));
+      AwsmBenchmark.time("scan DoublyLinkedList", report, () -> scan(doubly));
+      AwsmBenchmark.time("scan AwsmUnrolledLinkedList", report, () -> scan(unrolled));
+
+      AwsmBenchmark.time("middle insert AwsmLinkedList", report, () -> {
+        for (int i = 0; i < inserts; i++) {
+          linked.add(i, linked.size() / 2);
+        }
+        return linked.size();
+      });
+      AwsmBenchmark.time("middle insert DoublyLinkedList", report, () -> {
+        for (int i = 0; i < inserts; i++) {
+          doubly.add(doubly.size() / 2, i);
+        }
+        return doubly.size();
+      });
+      AwsmBenchmark.time("middle insert AwsmUnrolledLinkedList", report, () -> {
+        for (int i = 0; i < inserts; i++) {
+          unrolled.add(i, unrolled.size() / 2);
+        }
+        return unrolled.size();
+      });
+    });
+  }
+
+  private static long scan(Iterable<Integer> list) {
+    long sum = 0;
+    for (Integer item : list) {
+      sum += item;
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,380 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A list stored in an AVL tree, in the spirit of a rope.
+ *
+ * The tree is not ordered by the items themselves but by position: an
+ * in-order walk gives the items in list order. Every node remembers the size
+ * of its subtree, so the node at index i is found by comparing i with the size
+ * of the left subtree at each step, the same way AvlTree compares keys.
+ *
+ * get, set, add and remove are O(log n) anywhere in the list, and so are
+ * concat and split.
+ */
+public class AwsmTreeList<T> implements AwsmList<T>, Iterable<T> {
+
+  private static final int ALLOWED_IMBALANCE = 1;
+
+  private Node<T> root;
+  // counts structural changes, so iterators can tell the list changed under them
+  private int modCount;
+
+  private static class Node<T> {
+    public T item;
+    public Node<T> left;
+    public Node<T> right;
+    public int height;
+    public int size;
+
+    public Node(T item) {
+      this.item = item;
+      this.height = 0;
+      this.size = 1;
+    }
+  }
+
+  public AwsmTreeList() {
+    root = null;
+  }
+
+  private AwsmTreeList(Node<T> root) {
+    this.root = root;
+  }
+
+  @Override
+  public void addFirst(T item) {
+    add(item, 0);
+  }
+
+  @Override
+  public void addLast(T item) {
+    add(item, size());
+  }
+
+  @Override
+  public void add(T item, int index) {
+    if (index < 0 || index > size()) {
+      throw new IndexOutOfBoundsException();
+    }
+    root = add(root, item, index);
+    modCount++;
+  }
+
+  private Node<T> add(Node<T> node, T item, int index) {
+    if (node == null) {
+      return new Node<>(item);
+    }
+    int leftSize = size(node.left);
+    if (index <= leftSize) {
+      node.left = add(node.left, item, index);
+    } else {
+      node.right = add(node.right, item, index - leftSize - 1);
+    }
+    return balance(node);
+  }
+
+  @Override
+  public void removeFirst() {
+    remove(0);
+  }
+
+  @Override
+  public void removeLast() {
+    remove(size() - 1);
+  }
+
+  @Override
+  public void remove(int index) {
+    if (index < 0 || index > size() - 1) {
+      throw new IndexOutOfBoundsException();
+    }
+    root = remove(root, index);
+    modCount++;
+  }
+
+  private Node<T> remove(Node<T> node, int index) {
+    int leftSize = size(node.left);
+    if (index < leftSize) {
+      node.left = remove(node.left, index);
+    } else if (index > leftSize) {
+      node.right = remove(node.right, index - leftSize - 1);
+    } else if (node.left != null && node.right != null) {
+      // two children: take over the first item of the right subtree
+      node.item = nodeAt(node.right, 0).item;
+      node.right = remove(node.right, 0);
+    } else {
+      node = node.left != null ? node.left : node.right;
+    }
+    return balance(node);
+  }
+
+  @Override
+  public T getFirst() {
+    return get(0);
+  }
+
+  @Override
+  public T getLast() {
+    return get(size() - 1);
+  }
+
+  @Override
+  public T get(int index) {
+    if (index < 0 || index > size() - 1) {
+      throw new IndexOutOfBoundsException();
+    }
+    return nodeAt(root, index).item;
+  }
+
+  @Override
+  public void setFirst(T item) {
+    set(item, 0);
+  }
+
+  @Override
+  public void setLast(T item) {
+    set(item, size() - 1);
+  }
+
+  @Override
+  public void set(T item, int index) {
+    if (index < 0 || index > size() - 1) {
+      throw new IndexOutOfBoundsException();
+    }
+    nodeAt(root, index).item = item;
+  }
+
+  @Override
+  public int size() {
+    return size(root);
+  }
+
+  public int height() {
+    return height(root);
+  }
+
+  /**
+   * Appends every item of other to the end of this list in O(log n). other is
+   * left empty.
+   */
+  public void concat(AwsmTreeList<T> other) {
+    if (other == this) {
+      throw new IllegalArgumentException("cannot concat a list with itself");
+    }
+    if (other.root == null) {
+      return;
+    }
+    if (root == null) {
+      root = other.root;
+    } else {
+      // use the first node of other as the pivot joining the two trees
+      Node<T> pivot = nodeAt(other.root, 0);
+      Node<T> rest = remove(other.root, 0);
+      pivot.left = null;
+      pivot.right = null;
+      root = join(root, pivot, rest);
+    }
+    other.root = null;
+    modCount++;
+    other.modCount++;
+  }
+
+  /**
+   * Splits this list in O(log n). This list keeps the items before index, and
+   * the items from index onwards are returned as a new list.
+   */
+  public AwsmTreeList<T> split(int index) {
+    if (index < 0 || index > size()) {
+      throw new IndexOutOfBoundsException();
+    }
+    @SuppressWarnings("unchecked")
+    Node<T>[] halves = (Node<T>[]) new Node[2];
+    split(root, index, halves);
+    root = halves[0];
+    modCount++;
+    return new AwsmTreeList<>(halves[1]);
+  }
+
+  private void split(Node<T> node, int index, Node<T>[] halves) {
+    if (node == null) {
+      halves[0] = null;
+      halves[1] = null;
+      return;
+    }
+    Node<T> left = node.left;
+    Node<T> right = node.right;
+    int leftSize = size(left);
+    if (index <= leftSize) {
+      split(left, index, halves);
+      halves[1] = join(halves[1], node, right);
+    } else {
+      split(right, index - leftSize - 1, halves);
+      halves[0] = join(left, node, halves[0]);
+    }
+  }
+
+  /**
+   * Joins left, pivot and right, in that order, into one balanced tree. Every
+   * item in left comes before every item in right.
+   */
+  private Node<T> join(Node<T> left, Node<T> pivot, Node<T> right) {
+    if (height(left) > height(right) + ALLOWED_IMBALANCE) {
+      left.right = join(left.right, pivot, right);
+      return balance(left);
+    } else if (height(right) > height(left) + ALLOWED_IMBALANCE) {
+      right.left = join(left, pivot, right.left);
+      return balance(right);
+    } else {
+      pivot.left = left;
+      pivot.right = right;
+      update(pivot);
+      return pivot;
+    }
+  }
+
+  private Node<T> nodeAt(Node<T> node, int index) {
+    while (true) {
+      int leftSize = size(node.left);
+      if (index < leftSize) {
+        node = node.left;
+      } else if (index > leftSize) {
+        index -= leftSize + 1;
+        node = node.right;
+      } else {
+        return node;
+      }
+    }
+  }
+
+  private int size(Node<T> node) {
+    return node == null ? 0 : node.size;
+  }
+
+  private int height(Node<T> node) {
+    return node == null ? -1 : node.height;
+  }
+
+  private void update(Node<T> node) {
+    node.height = Math.max(height(node.left), height(node.right)) + 1;
+    node.size = size(node.left) + size(node.right) + 1;
+  }
+
+  // the same rebalancing as AvlTree, also keeping subtree sizes up to date
+  private Node<T> balance(Node<T> node) {
+    if (node == null) {
+      return node;
+    }
+
+    if (height(node.left) - height(node.right) > ALLOWED_IMBALANCE) {
+      if (height(node.left.left) >= height(node.left.right)) {
+        node = rotateWithLeftChild(node);
+      } else {
+        node.left = rotateWithRightChild(node.left);
+        node = rotateWithLeftChild(node);
+      }
+    } else if (height(node.right) - height(node.left) > ALLOWED_IMBALANCE) {
+      if (height(node.right.right) >= height(node.right.left)) {
+        node = rotateWithRightChild(node);
+      } else {
+        node.right = rotateWithLeftChild(node.right);
+        node = rotateWithRightChild(node);
+      }
+    } else {
+      update(node);
+    }
+    return node;
+  }
+
+  private Node<T> rotateWithLeftChild(Node<T> k2) {
+    Node<T> k1 = k2.left;
+    k2.left = k1.right;
+    k1.right = k2;
+    update(k2);
+    update(k1);
+    return k1;
+  }
+
+  private Node<T> rotateWithRightChild(Node<T> k1) {
+    Node<T> k2 = k1.right;
+    k1.right = k2.left;
+    k2.left = k1;
+    update(k1);
+    update(k2);
+    return k2;
+  }
+
+  public String toString() {
+    StringBuilder stringBuilder = new StringBuilder();
+    for (T item : this) {
+      stringBuilder.append(item);
+      stringBuilder.append(" ");
+    }
+    return stringBuilder.toString().trim();
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new AwsmTreeListIterator();
+  }
+
+  /**
+   * Walks the tree in order with an explicit stack of the left spine, so it
+   * only holds O(log n) nodes at a time. Changing the list while iterating
+   * makes the next call fail with a ConcurrentModificationException.
+   */
+  private class AwsmTreeListIterator implements Iterator<T> {
+    @SuppressWarnings("unchecked")
+    private Node<T>[] stack = (Node<T>[]) new Node[height(root) + 2];
+    private int depth = 0;
+    private int expectedModCount = modCount;
+
+    public AwsmTreeListIterator() {
+      pushLeft(root);
+    }
+
+    private void pushLeft(Node<T> node) {
+      while (node != null) {
+        stack[depth++] = node;
+        node = node.left;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return depth > 0;
+    }
+
+    @Override
+    public T next() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Node<T> node = stack[--depth];
+      pushLeft(node.right);
+      return node.item;
+    }
+  }
+
+  public static void main(String[] args) {
+    AwsmTreeList<Integer> list = new AwsmTreeList<>();
+    for (int i = 0; i < 10; i++) {
+      list.addLast(i);
+    }
+    list.add(100, 5);
+    list.remove(0);
+    System.out.println(list); // 1 2 3 4 100 5 6 7 8 9
+
+    AwsmTreeList<Integer> back = list.split(4);
+    System.out.println(list); // 1 2 3 4
+    System.out.println(back); // 100 5 6 7 8 9
+
+    back.concat(list);
+    System.out.println(back); // 100 5 6 7 8 9 1 2 3 4
+    System.out.println(back.get(6)); // 1
+  }
+}
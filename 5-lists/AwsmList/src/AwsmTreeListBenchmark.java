@@ -0,0 +1,85 @@
+import java.util.Random;
+
+/**
+ * Rough per-operation timing of random-position get, add and remove on
+ * AwsmTreeList and AwsmArrayList at growing sizes, to find where the tree
+ * starts to win. The largest size is 10^maxExponent.
+ * Run with e.g. java -Xmx4g AwsmTreeListBenchmark 7
+ */
+public class AwsmTreeListBenchmark {
+
+  public static final int OPERATIONS = 1000;
+
+  public static void main(String[] args) {
+    int maxExponent = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+
+    // a few untimed passes warm up the JIT
+    for (int i = 0; i < 5; i++) {
+      run(10000, false);
+    }
+    for (int n = 1000, e = 3; e <= maxExponent; n *= 10, e++) {
+      run(n, true);
+    }
+  }
+
+  private static void run(int n, boolean report) {
+    AwsmArrayList<Integer> array = new AwsmArrayList<>(n + OPERATIONS);
+    AwsmTreeList<Integer> tree = new AwsmTreeList<>();
+    for (int i = 0; i < n; i++) {
+      array.addLast(i);
+      tree.addLast(i);
+    }
+
+    long arrayGet = get(array, n);
+    long treeGet = get(tree, n);
+    long arrayAdd = add(array, n);
+    long treeAdd = add(tree, n);
+    long arrayRemove = remove(array, n);
+    long treeRemove = remove(tree, n);
+
+    if (report) {
+      System.out.printf("n = %,d%n", n);
+      System.out.printf("  get     AwsmArrayList %10.1f ns/op   AwsmTreeList %10.1f ns/op%n", perOp(arrayGet),
+          perOp(treeGet));
+      System.out.printf("  add     AwsmArrayList %10.1f ns/op   AwsmTreeList %10.1f ns/op%n", perOp(arrayAdd),
+          perOp(treeAdd));
+      System.out.printf("  remove  AwsmArrayList %10.1f ns/op   AwsmTreeList %10.1f ns/op%n", perOp(arrayRemove),
+          perOp(treeRemove));
+    }
+  }
+
+  private static long get(AwsmList<Integer> list, int n) {
+    Random random = new Random(n);
+    return AwsmBenchmark.nanos(() -> {
+      long sum = 0;
+      for (int i = 0; i < OPERATIONS; i++) {
+        sum += list.get(random.nextInt(list.size()));
+      }
+      return sum;
+    });
+  }
+
+  private static long add(AwsmList<Integer> list, int n) {
+    Random random = new Random(n);
+    return AwsmBenchmark.nanos(() -> {
+      for (int i = 0; i < OPERATIONS; i++) {
+        list.add(i, random.nextInt(list.size() + 1));
+      }
+      return list.size();
+    });
+  }
+
+  private static long remove(AwsmList<Integer> list, int n) {
+    Random random = new Random(n);
+    return AwsmBenchmark.nanos(() -> {
+      for (int i = 0; i < OPERATIONS; i++) {
+        list.remove(random.nextInt(list.size()));
+      }
+      return list.size();
+    });
+  }
+
+  private static double perOp(long nanos) {
+    return nanos / (double) OPERATIONS;
+  }
+}
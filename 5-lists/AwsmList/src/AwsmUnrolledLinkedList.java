@@ -0,0 +1,332 @@
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An unrolled linked list: a doubly-linked list where every node holds a small
+ * array of items instead of just one.
+ *
+ * Walking to an index skips a whole node at a time, and iterating reads each
+ * node's array front to back, so there is one pointer hop per NODE_CAPACITY
+ * items instead of one per item. Inserting in the middle only shifts the items
+ * of one node, splitting it in half when it is full.
+ */
+public class AwsmUnrolledLinkedList<T> implements AwsmList<T>, Iterable<T> {
+
+  public static final int NODE_CAPACITY = 64;
+
+  private Node head;
+  private Node tail;
+  private int size;
+  private final int nodeCapacity;
+  // set by findNode to the position of the index inside the returned node
+  private int foundOffset;
+  // counts adds and removes, so iterators can tell the list changed under them
+  private int modCount;
+
+  private class Node {
+    public Object[] items;
+    public int count;
+    public Node prev;
+    public Node next;
+
+    public Node() {
+      items = new Object[nodeCapacity];
+      count = 0;
+    }
+  }
+
+  public AwsmUnrolledLinkedList(int nodeCapacity) {
+    if (nodeCapacity < 2) {
+      throw new IllegalArgumentException("nodeCapacity must be at least 2: " + nodeCapacity);
+    }
+    this.nodeCapacity = nodeCapacity;
+    head = new Node();
+    tail = head;
+    size = 0;
+  }
+
+  public AwsmUnrolledLinkedList() {
+    this(NODE_CAPACITY);
+  }
+
+  @Override
+  public void addFirst(T item) {
+    add(item, 0);
+  }
+
+  @Override
+  public void addLast(T item) {
+    add(item, size);
+  }
+
+  @Override
+  public void add(T item, int index) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    Node node;
+    int offset;
+    if (index == size) {
+      // appending goes straight to the tail node
+      node = tail;
+      offset = tail.count;
+    } else {
+      node = findNode(index);
+      offset = foundOffset;
+    }
+
+    if (node.count == nodeCapacity && node == tail && offset == node.count) {
+      // appending to a full tail starts a fresh node so that a list built by
+      // addLast keeps its nodes full
+      Node newNode = new Node();
+      linkAfter(node, newNode);
+      node = newNode;
+      offset = 0;
+    } else if (node.count == nodeCapacity) {
+      // move the back half into a new node after this one
+      Node newNode = new Node();
+      int half = nodeCapacity / 2;
+      System.arraycopy(node.items, half, newNode.items, 0, nodeCapacity - half);
+      Arrays.fill(node.items, half, nodeCapacity, null);
+      newNode.count = nodeCapacity - half;
+      node.count = half;
+      linkAfter(node, newNode);
+
+      if (offset > half) {
+        node = newNode;
+        offset -= half;
+      }
+    }
+
+    System.arraycopy(node.items, offset, node.items, offset + 1, node.count - offset);
+    node.items[offset] = item;
+    node.count++;
+    size++;
+    modCount++;
+  }
+
+  @Override
+  public void removeFirst() {
+    remove(0);
+  }
+
+  @Override
+  public void removeLast() {
+    remove(size - 1);
+  }
+
+  @Override
+  public void remove(int index) {
+    if (index < 0 || index > size - 1) {
+      throw new IndexOutOfBoundsException();
+    }
+    Node node = findNode(index);
+    removeAt(node, foundOffset);
+
+    if (node.count > 0 && node.count < nodeCapacity / 4 && node.next != null
+        && node.count + node.next.count <= nodeCapacity) {
+      // keep nodes reasonably full by pulling the next node into this one
+      Node next = node.next;
+      System.arraycopy(next.items, 0, node.items, node.count, next.count);
+      node.count += next.count;
+      unlink(next);
+    }
+  }
+
+  /**
+   * Removes the item at offset inside node, unlinking the node if it ends up
+   * empty.
+   */
+  private void removeAt(Node node, int offset) {
+    System.arraycopy(node.items, offset + 1, node.items, offset, node.count - offset - 1);
+    node.count--;
+    node.items[node.count] = null;
+    size--;
+    modCount++;
+
+    if (node.count == 0 && head != tail) {
+      unlink(node);
+    }
+  }
+
+  @Override
+  public T getFirst() {
+    return get(0);
+  }
+
+  @Override
+  public T getLast() {
+    return get(size - 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public T get(int index) {
+    if (index < 0 || index > size - 1) {
+      throw new IndexOutOfBoundsException();
+    }
+    Node node = findNode(index);
+    return (T) node.items[foundOffset];
+  }
+
+  @Override
+  public void setFirst(T item) {
+    set(item, 0);
+  }
+
+  @Override
+  public void setLast(T item) {
+    set(item, size - 1);
+  }
+
+  @Override
+  public void set(T item, int index) {
+    if (index < 0 || index > size - 1) {
+      throw new IndexOutOfBoundsException();
+    }
+    Node node = findNode(index);
+    node.items[foundOffset] = item;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds the node holding index, walking from whichever end is closer. index
+   * must be between 0 and size - 1.
+   */
+  private Node findNode(int index) {
+    Node node;
+    if (index < size / 2) {
+      node = head;
+      while (index >= node.count) {
+        index -= node.count;
+        node = node.next;
+      }
+    } else {
+      node = tail;
+      int start = size - node.count;
+      while (index < start) {
+        node = node.prev;
+        start -= node.count;
+      }
+      index -= start;
+    }
+    foundOffset = index;
+    return node;
+  }
+
+  private void linkAfter(Node node, Node newNode) {
+    newNode.prev = node;
+    newNode.next = node.next;
+    if (node.next != null) {
+      node.next.prev = newNode;
+    } else {
+      tail = newNode;
+    }
+    node.next = newNode;
+  }
+
+  private void unlink(Node node) {
+    if (node.prev != null) {
+      node.prev.next = node.next;
+    } else {
+      head = node.next;
+    }
+    if (node.next != null) {
+      node.next.prev = node.prev;
+    } else {
+      tail = node.prev;
+    }
+  }
+
+  public String toString() {
+    StringBuilder stringBuilder = new StringBuilder();
+    for (T item : this) {
+      stringBuilder.append(item);
+      stringBuilder.append(" ");
+    }
+    return stringBuilder.toString().trim();
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new AwsmUnrolledLinkedListIterator();
+  }
+
+  /**
+   * Any add or remove on the list that does not go through this iterator makes
+   * the next call fail with a ConcurrentModificationException. remove only
+   * shifts the rest of the current node.
+   */
+  private class AwsmUnrolledLinkedListIterator implements Iterator<T> {
+    private Node node = head;
+    private int offset = 0;
+    private boolean canRemove = false;
+    private int expectedModCount = modCount;
+
+    @Override
+    public boolean hasNext() {
+      while (offset == node.count) {
+        if (node.next == null) {
+          return false;
+        }
+        node = node.next;
+        offset = 0;
+      }
+      return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T next() {
+      checkForComodification();
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      canRemove = true;
+      return (T) node.items[offset++];
+    }
+
+    @Override
+    public void remove() {
+      if (!canRemove) {
+        throw new IllegalStateException();
+      }
+      checkForComodification();
+      // the item just returned is at offset - 1, and everything after it in
+      // the node shifts down one place
+      offset--;
+      removeAt(node, offset);
+      canRemove = false;
+      expectedModCount = modCount;
+    }
+
+    private void checkForComodification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    AwsmUnrolledLinkedList<Integer> list = new AwsmUnrolledLinkedList<>(4);
+    for (int i = 0; i < 10; i++) {
+      list.addLast(i);
+    }
+    list.add(100, 5);
+    list.addFirst(-1);
+    System.out.println(list); // -1 0 1 2 3 4 100 5 6 7 8 9
+
+    list.remove(6);
+    list.removeFirst();
+    list.removeLast();
+    System.out.println(list); // 0 1 2 3 4 5 6 7 8
+    System.out.println(list.get(7)); // 7
+  }
+}
@@ -1,9 +1,22 @@
 public class DoublyLinkedList<T> implements Iterable<T> {
 
   private int size;
+  /**
+   * Counts structural changes, so iterators can detect that the list changed
+   * underneath them.
+   */
+  private int modCount;
   private Node<T> head;
   private Node<T> tail;
 
+  /**
+   * The finger is the last node reached by index, so that accesses close to
+   * the previous one (like edits around a cursor) walk from there instead of
+   * from one of the ends. It is null when there is no such node.
+   */
+  private Node<T> finger;
+  private int fingerIndex;
+
   /**
    * This is the doubly-linked list node.
    */
@@ -28,6 +41,7 @@ public class DoublyLinkedList<T> implements Iterable<T> {
     head.next = tail;
 
     size = 0;
+    finger = null;
   }
 
   public int size() {
@@ -40,7 +54,15 @@ public class DoublyLinkedList<T> implements Iterable<T> {
     if (idx < lower || idx > upper)
       throw new IndexOutOfBoundsException("getNode index: " + idx + "; size: " + size());
 
-    if (idx < size() / 2) { // Search through list from the beginning
+    int fromFinger = finger != null ? Math.abs(idx - fingerIndex) : Integer.MAX_VALUE;
+
+    if (fromFinger < idx && fromFinger < size() - idx) { // Search from the finger
+      p = finger;
+      for (int i = fingerIndex; i < idx; i++)
+        p = p.next;
+      for (int i = fingerIndex; i > idx; i--)
+        p = p.prev;
+    } else if (idx < size() / 2) { // Search through list from the beginning
       p = head.next;
       for (int i = 0; i < idx; i++)
         p = p.next;
@@ -50,6 +72,10 @@ public class DoublyLinkedList<T> implements Iterable<T> {
         p = p.prev;
     }
 
+    if (p != tail) {
+      finger = p;
+      fingerIndex = idx;
+    }
     return p;
   }
 
@@ -113,6 +139,9 @@ public class DoublyLinkedList<T> implements Iterable<T> {
     newNode.prev.next = newNode;
     p.prev = newNode;
     size++;
+    modCount++;
+    // indexes after p have shifted; callers that know the new index reset it
+    finger = null;
   }
 
   /**
@@ -127,7 +156,12 @@ public class DoublyLinkedList<T> implements Iterable<T> {
    *           if idx is not between 0 and size(), inclusive.
    */
   public void add(int idx, T x) {
-    add(getNode(idx, 0, size()), x);
+    Node<T> p = getNode(idx, 0, size());
+    add(p, x);
+
+    // the new node now sits at idx, and everything after it moved up by one
+    finger = p.prev;
+    fingerIndex = idx;
   }
 
   /**
@@ -152,6 +186,8 @@ public class DoublyLinkedList<T> implements Iterable<T> {
     p.next.prev = p.prev;
     p.prev.next = p.next;
     size--;
+    modCount++;
+    finger = null;
 
     return p.data;
   }
@@ -164,7 +200,13 @@ public class DoublyLinkedList<T> implements Iterable<T> {
    * @return the item was removed from the collection.
    */
   public T remove(int idx) {
-    return remove(getNode(idx));
+    Node<T> p = getNode(idx);
+    T removed = remove(p);
+
+    // the node after the removed one slides down into idx
+    finger = p.next != tail ? p.next : null;
+    fingerIndex = idx;
+    return removed;
   }
 
   /**
@@ -186,7 +228,30 @@ public class DoublyLinkedList<T> implements Iterable<T> {
    * @return an iterator positioned prior to the first element.
    */
   public java.util.Iterator<T> iterator() {
-    return new LinkedListIterator();
+    return new LinkedListIterator(0);
+  }
+
+  /**
+   * Obtains a ListIterator object that can move in both directions and change
+   * the list as it goes.
+   * 
+   * @return an iterator positioned prior to the first element.
+   */
+  public java.util.ListIterator<T> listIterator() {
+    return new LinkedListIterator(0);
+  }
+
+  /**
+   * Obtains a ListIterator object positioned at idx.
+   * 
+   * @param idx
+   *          index of the first element to be returned by next().
+   * @return an iterator positioned prior to element idx.
+   * @throws IndexOutOfBoundsException
+   *           if idx is not between 0 and size(), inclusive.
+   */
+  public java.util.ListIterator<T> listIterator(int idx) {
+    return new LinkedListIterator(idx);
   }
 
   /**
@@ -195,9 +260,13 @@ public class DoublyLinkedList<T> implements Iterable<T> {
    */
   public int indexOf(Object o) {
     int i = 0;
-    for (T e : this) {
-      if (e.equals(o))
+    for (Node<T> p = head.next; p != tail; p = p.next) {
+      if (p.data.equals(o)) {
+        // later accesses are likely to be around the match
+        finger = p;
+        fingerIndex = i;
         return i;
+      }
       i++;
     }
     return -1;
@@ -216,6 +285,10 @@ public class DoublyLinkedList<T> implements Iterable<T> {
     Node<T> temp = head;
     head = tail;
     tail = temp;
+    modCount++;
+
+    // the finger stays on the same node, counted from the other end now
+    fingerIndex = size - 1 - fingerIndex;
 
     while (current != null) {
       Node<T> oldNext = current.next;
@@ -228,22 +301,92 @@ public class DoublyLinkedList<T> implements Iterable<T> {
   /**
    * This is the implementation of the LinkedListIterator. It maintains a notion
    * of a current position and of course the implicit reference to the
-   * DoublyLinkedList.
+   * DoublyLinkedList. Changing the list other than through the iterator makes
+   * the iterator fail with a ConcurrentModificationException; remove, set and
+   * add on the iterator itself are O(1).
    */
-  private class LinkedListIterator implements java.util.Iterator<T> {
-    private Node<T> current = head.next;
+  private class LinkedListIterator implements java.util.ListIterator<T> {
+    private Node<T> current;
+    private int nextIndex;
+    private Node<T> lastReturned = null;
+    private int expectedModCount = modCount;
+
+    public LinkedListIterator(int idx) {
+      current = getNode(idx, 0, size());
+      nextIndex = idx;
+    }
 
     public boolean hasNext() {
       return current != tail;
     }
 
     public T next() {
+      checkForComodification();
       if (!hasNext())
         throw new java.util.NoSuchElementException();
 
-      T nextItem = current.data;
+      lastReturned = current;
       current = current.next;
-      return nextItem;
+      nextIndex++;
+      return lastReturned.data;
+    }
+
+    public boolean hasPrevious() {
+      return current.prev != head;
+    }
+
+    public T previous() {
+      checkForComodification();
+      if (!hasPrevious())
+        throw new java.util.NoSuchElementException();
+
+      current = current.prev;
+      lastReturned = current;
+      nextIndex--;
+      return lastReturned.data;
+    }
+
+    public int nextIndex() {
+      return nextIndex;
+    }
+
+    public int previousIndex() {
+      return nextIndex - 1;
+    }
+
+    public void remove() {
+      checkForComodification();
+      if (lastReturned == null)
+        throw new IllegalStateException();
+
+      if (lastReturned == current) // after previous()
+        current = current.next;
+      else // after next()
+        nextIndex--;
+      DoublyLinkedList.this.remove(lastReturned);
+      lastReturned = null;
+      expectedModCount = modCount;
+    }
+
+    public void set(T x) {
+      checkForComodification();
+      if (lastReturned == null)
+        throw new IllegalStateException();
+
+      lastReturned.data = x;
+    }
+
+    public void add(T x) {
+      checkForComodification();
+      DoublyLinkedList.this.add(current, x);
+      nextIndex++;
+      lastReturned = null;
+      expectedModCount = modCount;
+    }
+
+    private void checkForComodification() {
+      if (modCount != expectedModCount)
+        throw new java.util.ConcurrentModificationException();
     }
   }
 
@@ -0,0 +1,158 @@
+
+/**
+ * A circular array deque. It works like AwsmCircularQueue, except items can be
+ * added and removed at both ends.
+ *
+ * push/pop work at the back and dequeue works at the front, which is the usual
+ * shape of a work-stealing queue: the owner pushes and pops its own work at the
+ * back, and other workers steal the oldest work from the front. The deque
+ * itself is not thread-safe, so stealing must be synchronized by the caller.
+ */
+public class AwsmArrayDeque<T> implements AwsmQueue<T>, AwsmStack<T> {
+
+  private T[] array;
+  private int front;
+  private int size;
+  // array.length is always a power of two, so (i & mask) == (i % array.length)
+  private int mask;
+  public static final int INITIAL_SIZE = 8;
+
+  @SuppressWarnings("unchecked")
+  public AwsmArrayDeque(int length) {
+    int capacity = INITIAL_SIZE;
+    while (capacity < length) {
+      capacity *= 2;
+    }
+    array = (T[]) new Object[capacity];
+    mask = capacity - 1;
+    front = 0;
+    size = 0;
+  }
+
+  public AwsmArrayDeque() {
+    this(INITIAL_SIZE);
+  }
+
+  public void addFirst(T item) {
+    expand();
+    front = (front - 1) & mask;
+    array[front] = item;
+    size++;
+  }
+
+  public void addLast(T item) {
+    expand();
+    array[(front + size) & mask] = item;
+    size++;
+  }
+
+  public T pollFirst() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    T data = array[front];
+    array[front] = null;
+    front = (front + 1) & mask;
+    size--;
+    return data;
+  }
+
+  public T pollLast() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    int back = (front + size - 1) & mask;
+    T data = array[back];
+    array[back] = null;
+    size--;
+    return data;
+  }
+
+  public T peekFirst() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    return array[front];
+  }
+
+  public T peekLast() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    return array[(front + size - 1) & mask];
+  }
+
+  /**
+   * Returns the item at position index, counting from the front.
+   */
+  public T get(int index) {
+    if (index < 0 || index > size - 1) {
+      throw new IndexOutOfBoundsException();
+    }
+    return array[(front + index) & mask];
+  }
+
+  @Override
+  public void enqueue(T item) {
+    addLast(item);
+  }
+
+  @Override
+  public T dequeue() {
+    return pollFirst();
+  }
+
+  @Override
+  public void push(T item) {
+    addLast(item);
+  }
+
+  @Override
+  public T pop() {
+    return pollLast();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void expand() {
+    if (size == array.length) {
+      T[] newArray = (T[]) new Object[array.length * 2];
+      // the items sit in two runs: front..end of array, then 0..back
+      int firstRun = array.length - front;
+      System.arraycopy(array, front, newArray, 0, firstRun);
+      System.arraycopy(array, 0, newArray, firstRun, front);
+      array = newArray;
+      mask = array.length - 1;
+      front = 0;
+    }
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  public static void main(String[] args) {
+    AwsmArrayDeque<Integer> deque = new AwsmArrayDeque<>();
+
+    for (int i = 0; i < 10; i++) {
+      deque.addLast(i);
+      deque.addFirst(-i);
+    }
+
+    System.out.println(deque.peekFirst()); // -9
+    System.out.println(deque.peekLast()); // 9
+    System.out.println(deque.get(11)); // 1
+
+    System.out.println(deque.pop()); // 9
+    System.out.println(deque.dequeue()); // -9
+
+    while (!deque.isEmpty()) {
+      System.out.print(deque.pollFirst() + " ");
+    }
+    System.out.println();
+  }
+}
@@ -1,9 +1,17 @@
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class AwsmArrayList<T> implements AwsmList<T>, Iterable<T> {
 
   private T[] data;
   private int size;
+  // counts adds and removes, so iterators can tell the list changed under them
+  private int modCount;
 
   public static final int INITIAL_SIZE = 8;
   public static final int GROWTH_FACTOR = 2;
@@ -45,6 +53,7 @@ public class AwsmArrayList<T> implements AwsmList<T>, Iterable<T> {
 
       data[index] = item;
       size++;
+      modCount++;
     }
   }
 
@@ -69,12 +78,13 @@ public class AwsmArrayList<T> implements AwsmList<T>, Iterable<T> {
       }
 
       // move everything after and at index down by 1
-      for (int i = index; i < size; i++) {
+      for (int i = index; i < size - 1; i++) {
         data[i] = data[i + 1];
       }
 
       data[size - 1] = null;
       size--;
+      modCount++;
     }
   }
 
@@ -133,33 +143,69 @@ public class AwsmArrayList<T> implements AwsmList<T>, Iterable<T> {
 
   @Override
   public Iterator<T> iterator() {
-    // AwsmArrayList<T> currentList = this;
-    return new AwsmArrayListIterator<T>(this);
+    return new AwsmArrayListIterator();
   }
 
-  public class AwsmArrayListIterator<T> implements Iterator<T> {
+  /**
+   * Splits the backing array by index range, so parallel streams get even,
+   * exactly sized halves instead of batches copied out of the iterator.
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+    return Spliterators.spliterator(data, 0, size, Spliterator.ORDERED);
+  }
 
-    private int index;
-    private AwsmArrayList<T> list;
+  public Stream<T> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
 
-    public AwsmArrayListIterator(AwsmArrayList<T> list) {
-      this.list = list;
-      index = 0;
-    }
+  public Stream<T> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
+
+  /**
+   * Reads the backing array directly. Any add or remove on the list that does
+   * not go through this iterator makes the next call fail with a
+   * ConcurrentModificationException.
+   */
+  private class AwsmArrayListIterator implements Iterator<T> {
+
+    private int index = 0;
+    // index of the item last returned by next, or -1 if there is none
+    private int lastReturned = -1;
+    private int expectedModCount = modCount;
 
     @Override
     public boolean hasNext() {
-      return index < list.size();
+      return index < size;
     }
 
     @Override
     public T next() {
-      if (index >= list.size()) {
-        throw new IndexOutOfBoundsException();
+      checkForComodification();
+      if (index >= size) {
+        throw new NoSuchElementException();
+      }
+      lastReturned = index;
+      return data[index++];
+    }
+
+    @Override
+    public void remove() {
+      if (lastReturned < 0) {
+        throw new IllegalStateException();
+      }
+      checkForComodification();
+      AwsmArrayList.this.remove(lastReturned);
+      index = lastReturned;
+      lastReturned = -1;
+      expectedModCount = modCount;
+    }
+
+    private void checkForComodification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
       }
-      T item = list.get(index);
-      index++;
-      return item;
     }
   }
 
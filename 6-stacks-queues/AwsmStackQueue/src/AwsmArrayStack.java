@@ -1,26 +1,134 @@
+import java.util.Arrays;
 
 public class AwsmArrayStack<T> implements AwsmStack<T> {
 
-  private AwsmArrayList<T> list;
+  private T[] array;
+  private int size;
+  private boolean shrink;
+
+  public static final int INITIAL_SIZE = 8;
+  public static final int GROWTH_FACTOR = 2;
+
+  @SuppressWarnings("unchecked")
+  public AwsmArrayStack(int length, boolean shrink) {
+    array = (T[]) new Object[Math.max(length, 1)];
+    size = 0;
+    this.shrink = shrink;
+  }
+
+  public AwsmArrayStack(int length) {
+    this(length, false);
+  }
 
   public AwsmArrayStack() {
-    list = new AwsmArrayList<>();
+    this(INITIAL_SIZE, false);
   }
 
   @Override
   public void push(T item) {
-    list.addLast(item);
+    if (size == array.length) {
+      resize(array.length * GROWTH_FACTOR);
+    }
+    array[size++] = item;
   }
 
   @Override
   public T pop() {
-    T data = list.getFirst();
-    list.removeLast();
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    T data = array[--size];
+    // clear the slot so the popped item can be garbage collected
+    array[size] = null;
+    shrinkIfSparse();
     return data;
   }
 
+  public T peek() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    return array[size - 1];
+  }
+
+  /**
+   * Pushes every item in items, in order, so the last item ends up on top.
+   */
+  public void pushAll(T[] items) {
+    if (size + items.length > array.length) {
+      int length = array.length;
+      while (length < size + items.length) {
+        length *= GROWTH_FACTOR;
+      }
+      resize(length);
+    }
+    System.arraycopy(items, 0, array, size, items.length);
+    size += items.length;
+  }
+
+  /**
+   * Pops up to out.length items into out, top of the stack first.
+   *
+   * @return the number of items popped.
+   */
+  public int popInto(T[] out) {
+    int count = Math.min(out.length, size);
+    for (int i = 0; i < count; i++) {
+      out[i] = array[size - 1 - i];
+    }
+    // clear the vacated slots in one go
+    Arrays.fill(array, size - count, size, null);
+    size -= count;
+    shrinkIfSparse();
+    return count;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  private void shrinkIfSparse() {
+    // halve once the array is less than a quarter full so push/pop right at
+    // the boundary does not resize on every call
+    if (shrink && size < array.length / 4 && array.length > INITIAL_SIZE) {
+      resize(Math.max(INITIAL_SIZE, array.length / 2));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void resize(int length) {
+    T[] newArray = (T[]) new Object[length];
+    System.arraycopy(array, 0, newArray, 0, size);
+    array = newArray;
+  }
+
   @Override
   public int size() {
-    return list.size();
+    return size;
+  }
+
+  public static void main(String[] args) {
+    AwsmArrayStack<Integer> stack = new AwsmArrayStack<>(INITIAL_SIZE, true);
+
+    for (int i = 0; i < 100; i++) {
+      stack.push(i);
+    }
+
+    System.out.println(stack.pop()); // 99
+    System.out.println(stack.peek()); // 98
+
+    Integer[] out = new Integer[5];
+    int popped = stack.popInto(out);
+    for (int i = 0; i < popped; i++) {
+      System.out.println(out[i]); // 98 97 96 95 94
+    }
+
+    stack.pushAll(new Integer[] { 1000, 1001 });
+    System.out.println(stack.pop()); // 1001
+
+    while (!stack.isEmpty()) {
+      stack.pop();
+    }
+    System.out.println(stack.size()); // 0
   }
 }
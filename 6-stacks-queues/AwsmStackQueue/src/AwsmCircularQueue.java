@@ -1,3 +1,7 @@
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class AwsmCircularQueue<T> implements AwsmQueue<T> {
 
@@ -29,6 +33,7 @@ public class AwsmCircularQueue<T> implements AwsmQueue<T> {
       throw new IndexOutOfBoundsException();
     }
     T data = array[front];
+    array[front] = null;
     front = (front + 1) % array.length;
     size--;
     return data;
@@ -38,9 +43,10 @@ public class AwsmCircularQueue<T> implements AwsmQueue<T> {
   private void expand() {
     if (size == array.length) {
       T[] newArray = (T[]) new Object[array.length * 2];
-      for (int i = 0; i < size; i++) {
-        newArray[i] = array[(front + i) % array.length];
-      }
+      // a full queue is two runs: front..end of array, then 0..front
+      int firstRun = array.length - front;
+      System.arraycopy(array, front, newArray, 0, firstRun);
+      System.arraycopy(array, 0, newArray, firstRun, front);
       array = newArray;
       front = 0;
       back = front + size;
@@ -52,6 +58,81 @@ public class AwsmCircularQueue<T> implements AwsmQueue<T> {
     return size;
   }
 
+  /**
+   * Returns a spliterator over the queue from front to back. It splits by
+   * position, so every piece knows exactly how many items it holds.
+   */
+  public Spliterator<T> spliterator() {
+    return new AwsmCircularQueueSpliterator(array, front, 0, size);
+  }
+
+  public Stream<T> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  public Stream<T> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
+
+  /**
+   * Covers positions origin (inclusive) to fence (exclusive), counted from the
+   * front of the queue, so wrapping around the end of the array is handled
+   * the same way as in dequeue.
+   */
+  private class AwsmCircularQueueSpliterator implements Spliterator<T> {
+    private final T[] array;
+    private final int front;
+    private int origin;
+    private final int fence;
+
+    public AwsmCircularQueueSpliterator(T[] array, int front, int origin, int fence) {
+      this.array = array;
+      this.front = front;
+      this.origin = origin;
+      this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (origin >= fence) {
+        return false;
+      }
+      action.accept(array[(front + origin) % array.length]);
+      origin++;
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      for (int i = origin; i < fence; i++) {
+        action.accept(array[(front + i) % array.length]);
+      }
+      origin = fence;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      int middle = (origin + fence) >>> 1;
+      if (middle <= origin) {
+        return null;
+      }
+      // the first half is handed out, this one keeps the second half
+      Spliterator<T> prefix = new AwsmCircularQueueSpliterator(array, front, origin, middle);
+      origin = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - origin;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+    }
+  }
+
   public static void main(String[] args) {
     AwsmCircularQueue<Integer> queue = new AwsmCircularQueue<>();
 
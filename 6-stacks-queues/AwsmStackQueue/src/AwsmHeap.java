@@ -0,0 +1,230 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+
+/**
+ * A d-ary min-heap priority queue. dequeue returns the smallest item according
+ * to the comparator instead of the oldest one.
+ *
+ * Node i has children d * i + 1 through d * i + d. A larger d makes the heap
+ * shallower, so enqueue does fewer swaps and each dequeue compares children
+ * that sit next to each other in memory. d = 4 is a good default.
+ *
+ * An indexed heap keeps every item's position in a HashMap so decreaseKey can
+ * find it. That needs the items to be distinct, so an indexed heap throws an
+ * IllegalArgumentException for an item that equals one already in it.
+ */
+public class AwsmHeap<T> implements AwsmQueue<T> {
+
+  private T[] heap;
+  private int size;
+  private final int d;
+  private final Comparator<? super T> comparator;
+  // item -> position in heap, only kept if decreaseKey is needed
+  private final HashMap<T, Integer> positions;
+
+  public static final int INITIAL_SIZE = 8;
+  public static final int DEFAULT_ARITY = 4;
+
+  @SuppressWarnings("unchecked")
+  public AwsmHeap(int d, Comparator<? super T> comparator, boolean indexed) {
+    if (d < 2) {
+      throw new IllegalArgumentException("d must be at least 2: " + d);
+    }
+    this.heap = (T[]) new Object[INITIAL_SIZE];
+    this.size = 0;
+    this.d = d;
+    this.comparator = comparator;
+    this.positions = indexed ? new HashMap<T, Integer>() : null;
+  }
+
+  public AwsmHeap(int d, Comparator<? super T> comparator) {
+    this(d, comparator, false);
+  }
+
+  public AwsmHeap(Comparator<? super T> comparator) {
+    this(DEFAULT_ARITY, comparator, false);
+  }
+
+  /**
+   * Builds a heap out of items in O(n) by sifting down every internal node,
+   * starting from the last one.
+   */
+  public AwsmHeap(T[] items, int d, Comparator<? super T> comparator, boolean indexed) {
+    this(d, comparator, indexed);
+    heap = items.clone();
+    size = items.length;
+    if (heap.length < INITIAL_SIZE) {
+      heap = Arrays.copyOf(heap, INITIAL_SIZE);
+    }
+    if (positions != null) {
+      for (int i = 0; i < size; i++) {
+        if (positions.put(heap[i], i) != null) {
+          throw new IllegalArgumentException("indexed heap items must be distinct: " + heap[i]);
+        }
+      }
+    }
+    for (int i = parent(size - 1); i >= 0 && size > 1; i--) {
+      siftDown(i);
+    }
+  }
+
+  @Override
+  public void enqueue(T item) {
+    if (positions != null && positions.containsKey(item)) {
+      throw new IllegalArgumentException("indexed heap already holds " + item);
+    }
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, heap.length * 2);
+    }
+    heap[size] = item;
+    if (positions != null) {
+      positions.put(item, size);
+    }
+    size++;
+    siftUp(size - 1);
+  }
+
+  @Override
+  public T dequeue() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    T min = heap[0];
+    size--;
+    heap[0] = heap[size];
+    heap[size] = null;
+    if (positions != null) {
+      positions.remove(min);
+      if (size > 0) {
+        positions.put(heap[0], 0);
+      }
+    }
+    if (size > 0) {
+      siftDown(0);
+    }
+    return min;
+  }
+
+  public T peek() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    return heap[0];
+  }
+
+  /**
+   * Replaces item with smaller, which must not compare greater than item, and
+   * moves it up to its new place. Only available on indexed heaps.
+   */
+  public void decreaseKey(T item, T smaller) {
+    if (positions == null) {
+      throw new UnsupportedOperationException("heap was not built with indexed = true");
+    }
+    Integer index = positions.remove(item);
+    if (index == null) {
+      throw new NoSuchElementException();
+    }
+    if (comparator.compare(smaller, item) > 0) {
+      positions.put(item, index);
+      throw new IllegalArgumentException("new key is greater than the old key");
+    }
+    if (positions.containsKey(smaller)) {
+      positions.put(item, index);
+      throw new IllegalArgumentException("indexed heap already holds " + smaller);
+    }
+    heap[index] = smaller;
+    positions.put(smaller, index);
+    siftUp(index);
+  }
+
+  public boolean contains(T item) {
+    if (positions != null) {
+      return positions.containsKey(item);
+    }
+    for (int i = 0; i < size; i++) {
+      if (heap[i].equals(item)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int parent(int i) {
+    return (i - 1) / d;
+  }
+
+  private void siftUp(int i) {
+    // hold the moving item aside and shift parents down into the hole
+    T item = heap[i];
+    while (i > 0) {
+      int p = parent(i);
+      if (comparator.compare(item, heap[p]) >= 0) {
+        break;
+      }
+      place(heap[p], i);
+      i = p;
+    }
+    place(item, i);
+  }
+
+  private void siftDown(int i) {
+    T item = heap[i];
+    while (true) {
+      int first = d * i + 1;
+      if (first >= size) {
+        break;
+      }
+      int last = Math.min(first + d, size);
+      int min = first;
+      for (int c = first + 1; c < last; c++) {
+        if (comparator.compare(heap[c], heap[min]) < 0) {
+          min = c;
+        }
+      }
+      if (comparator.compare(heap[min], item) >= 0) {
+        break;
+      }
+      place(heap[min], i);
+      i = min;
+    }
+    place(item, i);
+  }
+
+  private void place(T item, int i) {
+    heap[i] = item;
+    if (positions != null) {
+      positions.put(item, i);
+    }
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  public static void main(String[] args) {
+    AwsmHeap<Integer> heap = new AwsmHeap<>(Comparator.<Integer> naturalOrder());
+    int[] numbers = { 5, 3, 9, 1, 7, 2, 8 };
+    for (int n : numbers) {
+      heap.enqueue(n);
+    }
+    while (!heap.isEmpty()) {
+      System.out.print(heap.dequeue() + " "); // 1 2 3 5 7 8 9
+    }
+    System.out.println();
+
+    AwsmHeap<String> names = new AwsmHeap<>(new String[] { "mew", "pikachu", "bulbasaur", "eevee" }, 2,
+        Comparator.<String> naturalOrder(), true);
+    names.decreaseKey("pikachu", "abra");
+    while (!names.isEmpty()) {
+      System.out.print(names.dequeue() + " "); // abra bulbasaur eevee mew
+    }
+    System.out.println();
+  }
+}
@@ -0,0 +1,96 @@
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Rough timing of n enqueues followed by n dequeues on each priority queue.
+ * Run with a large heap, e.g. java -Xmx2g AwsmHeapBenchmark 1000000
+ */
+public class AwsmHeapBenchmark {
+
+  public static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Random random = new Random(42);
+    Integer[] keys = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = random.nextInt();
+    }
+
+    AwsmBenchmark.rounds(ROUNDS, report -> {
+      AwsmBenchmark.time("AwsmHeap d=2", report, () -> awsmHeap(keys, 2));
+      AwsmBenchmark.time("AwsmHeap d=4", report, () -> awsmHeap(keys, 4));
+      AwsmBenchmark.time("AwsmHeap d=8", report, () -> awsmHeap(keys, 8));
+      AwsmBenchmark.time("AwsmHeap heapify d=4", report, () -> awsmHeapify(keys, 4));
+      AwsmBenchmark.time("AwsmLongHeap d=4", report, () -> awsmLongHeap(keys, 4));
+      AwsmBenchmark.time("java.util.PriorityQueue", report, () -> priorityQueue(keys));
+      AwsmBenchmark.time("balanced tree as PQ", report, () -> treeQueue(keys));
+    });
+  }
+
+  private static long awsmHeap(Integer[] keys, int d) {
+    AwsmHeap<Integer> heap = new AwsmHeap<>(d, Comparator.<Integer> naturalOrder());
+    for (Integer key : keys) {
+      heap.enqueue(key);
+    }
+    long sum = 0;
+    while (!heap.isEmpty()) {
+      sum += heap.dequeue();
+    }
+    return sum;
+  }
+
+  private static long awsmHeapify(Integer[] keys, int d) {
+    AwsmHeap<Integer> heap = new AwsmHeap<>(keys, d, Comparator.<Integer> naturalOrder(), false);
+    long sum = 0;
+    while (!heap.isEmpty()) {
+      sum += heap.dequeue();
+    }
+    return sum;
+  }
+
+  private static long awsmLongHeap(Integer[] keys, int d) {
+    AwsmLongHeap<Integer> heap = new AwsmLongHeap<>(d);
+    for (Integer key : keys) {
+      heap.enqueue(key, key);
+    }
+    long sum = 0;
+    while (!heap.isEmpty()) {
+      sum += heap.dequeue();
+    }
+    return sum;
+  }
+
+  private static long priorityQueue(Integer[] keys) {
+    PriorityQueue<Integer> queue = new PriorityQueue<>();
+    for (Integer key : keys) {
+      queue.add(key);
+    }
+    long sum = 0;
+    while (!queue.isEmpty()) {
+      sum += queue.poll();
+    }
+    return sum;
+  }
+
+  // AvlTree lives in the 8-maps project, so this uses java.util.TreeMap (a
+  // red-black tree) with a count per key to stand in for "insert, then
+  // repeatedly remove the minimum".
+  private static long treeQueue(Integer[] keys) {
+    TreeMap<Integer, Integer> tree = new TreeMap<>();
+    for (Integer key : keys) {
+      tree.merge(key, 1, Integer::sum);
+    }
+    long sum = 0;
+    while (!tree.isEmpty()) {
+      Integer key = tree.firstKey();
+      sum += key;
+      if (tree.merge(key, -1, Integer::sum) == 0) {
+        tree.remove(key);
+      }
+    }
+    return sum;
+  }
+}
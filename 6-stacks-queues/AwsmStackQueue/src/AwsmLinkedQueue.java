@@ -3,8 +3,16 @@ public class AwsmLinkedQueue<T> implements AwsmQueue<T> {
 
   private AwsmLinkedList<T> list;
 
+  /**
+   * @param pooled
+   *          whether removed nodes are recycled. See AwsmLinkedList.
+   */
+  public AwsmLinkedQueue(boolean pooled) {
+    list = new AwsmLinkedList<>(pooled);
+  }
+
   public AwsmLinkedQueue() {
-    list = new AwsmLinkedList<>();
+    this(true);
   }
 
   @Override
@@ -0,0 +1,72 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures time and bytes allocated per enqueue/dequeue pair on
+ * AwsmLinkedQueue with and without node pooling. Allocation is read from the
+ * JVM's per-thread allocation counter, the same number JMH's GC profiler
+ * reports as gc.alloc.rate.norm.
+ * Run with e.g. java AwsmLinkedQueueBenchmark 10000000
+ */
+public class AwsmLinkedQueueBenchmark {
+
+  public static final int ROUNDS = 5;
+  // how many items sit in the queue while it churns
+  public static final int BACKLOG = 100;
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+
+    AwsmBenchmark.rounds(ROUNDS, report -> {
+      churn("AwsmLinkedQueue pooled", new AwsmLinkedQueue<Integer>(true), n, report);
+      churn("AwsmLinkedQueue unpooled", new AwsmLinkedQueue<Integer>(false), n, report);
+      churn("AwsmLinkedStack pooled", new AwsmLinkedStack<Integer>(true), n, report);
+      churn("AwsmLinkedStack unpooled", new AwsmLinkedStack<Integer>(false), n, report);
+    });
+  }
+
+  private static void churn(String name, AwsmQueue<Integer> queue, int n, boolean report) {
+    Integer item = 1;
+    for (int i = 0; i < BACKLOG; i++) {
+      queue.enqueue(item);
+    }
+    long bytes = allocatedBytes();
+    long elapsed = AwsmBenchmark.nanos(() -> {
+      long sum = 0;
+      for (int i = 0; i < n; i++) {
+        queue.enqueue(item);
+        sum += queue.dequeue();
+      }
+      return sum;
+    });
+    print(name, report, elapsed, allocatedBytes() - bytes, n);
+  }
+
+  private static void churn(String name, AwsmStack<Integer> stack, int n, boolean report) {
+    Integer item = 1;
+    for (int i = 0; i < BACKLOG; i++) {
+      stack.push(item);
+    }
+    long bytes = allocatedBytes();
+    long elapsed = AwsmBenchmark.nanos(() -> {
+      long sum = 0;
+      for (int i = 0; i < n; i++) {
+        stack.push(item);
+        sum += stack.pop();
+      }
+      return sum;
+    });
+    print(name, report, elapsed, allocatedBytes() - bytes, n);
+  }
+
+  private static void print(String name, boolean report, long elapsed, long allocated, int n) {
+    if (report) {
+      System.out.printf("%-26s %6.1f ns/op %8.2f bytes/op%n", name, elapsed / (double) n, allocated / (double) n);
+    }
+  }
+
+  private static long allocatedBytes() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+        .getThreadMXBean();
+    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -2,8 +2,16 @@
 public class AwsmLinkedStack<T> implements AwsmStack<T> {
   private AwsmLinkedList<T> list;
 
+  /**
+   * @param pooled
+   *          whether removed nodes are recycled. See AwsmLinkedList.
+   */
+  public AwsmLinkedStack(boolean pooled) {
+    list = new AwsmLinkedList<>(pooled);
+  }
+
   public AwsmLinkedStack() {
-    list = new AwsmLinkedList<>();
+    this(true);
   }
 
   @Override
@@ -0,0 +1,127 @@
+import java.util.Arrays;
+
+/**
+ * A d-ary min-heap keyed by primitive long priorities, such as deadlines in
+ * nanoseconds. Priorities are kept in a long[] next to the items, so
+ * comparisons never unbox or call a Comparator.
+ */
+public class AwsmLongHeap<T> {
+
+  private long[] priorities;
+  private Object[] items;
+  private int size;
+  private final int d;
+
+  public static final int INITIAL_SIZE = 8;
+  public static final int DEFAULT_ARITY = 4;
+
+  public AwsmLongHeap(int d) {
+    if (d < 2) {
+      throw new IllegalArgumentException("d must be at least 2: " + d);
+    }
+    this.priorities = new long[INITIAL_SIZE];
+    this.items = new Object[INITIAL_SIZE];
+    this.size = 0;
+    this.d = d;
+  }
+
+  public AwsmLongHeap() {
+    this(DEFAULT_ARITY);
+  }
+
+  public void enqueue(long priority, T item) {
+    if (size == items.length) {
+      priorities = Arrays.copyOf(priorities, size * 2);
+      items = Arrays.copyOf(items, size * 2);
+    }
+    int i = size++;
+    while (i > 0) {
+      int p = (i - 1) / d;
+      if (priority >= priorities[p]) {
+        break;
+      }
+      priorities[i] = priorities[p];
+      items[i] = items[p];
+      i = p;
+    }
+    priorities[i] = priority;
+    items[i] = item;
+  }
+
+  @SuppressWarnings("unchecked")
+  public T dequeue() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    T min = (T) items[0];
+    size--;
+    long priority = priorities[size];
+    Object item = items[size];
+    items[size] = null;
+
+    // sift the old last item down from the root
+    int i = 0;
+    while (true) {
+      int first = d * i + 1;
+      if (first >= size) {
+        break;
+      }
+      int last = Math.min(first + d, size);
+      int c = first;
+      for (int j = first + 1; j < last; j++) {
+        if (priorities[j] < priorities[c]) {
+          c = j;
+        }
+      }
+      if (priorities[c] >= priority) {
+        break;
+      }
+      priorities[i] = priorities[c];
+      items[i] = items[c];
+      i = c;
+    }
+    if (size > 0) {
+      priorities[i] = priority;
+      items[i] = item;
+    }
+    return min;
+  }
+
+  @SuppressWarnings("unchecked")
+  public T peek() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    return (T) items[0];
+  }
+
+  public long peekPriority() {
+    if (size == 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    return priorities[0];
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public static void main(String[] args) {
+    AwsmLongHeap<String> timers = new AwsmLongHeap<>();
+    timers.enqueue(300L, "c");
+    timers.enqueue(100L, "a");
+    timers.enqueue(500L, "e");
+    timers.enqueue(200L, "b");
+    timers.enqueue(400L, "d");
+
+    System.out.println(timers.peekPriority()); // 100
+    while (!timers.isEmpty()) {
+      System.out.print(timers.dequeue() + " "); // a b c d e
+    }
+    System.out.println();
+  }
+}
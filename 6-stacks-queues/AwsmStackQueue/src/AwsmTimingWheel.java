@@ -0,0 +1,282 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * A hashed hierarchical timing wheel. Time is counted in ticks, and the wheel
+ * only moves when advance is called.
+ *
+ * Each level is a ring of 64 buckets, like the array in AwsmCircularQueue.
+ * Level 0 buckets are one tick wide, level 1 buckets are 64 ticks wide, level
+ * 2 buckets are 64 * 64 ticks wide, and so on. A timeout goes into the lowest
+ * level that can hold its deadline. Whenever level 0 wraps around, the next
+ * bucket of level 1 is emptied and its timeouts are placed again, this time
+ * one level lower (this is called cascading).
+ *
+ * Each bucket is a doubly-linked list of timeouts, so schedule and cancel are
+ * both O(1).
+ *
+ * A wheel built with concurrent = false must only be used from one thread. A
+ * concurrent wheel lets any thread call schedule and cancel: new timeouts go
+ * into a lock-free inbound queue, and the thread that calls advance moves them
+ * into the buckets. advance must still only be called from one thread.
+ */
+public class AwsmTimingWheel<T> {
+
+  public static final int WHEEL_BITS = 6;
+  public static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+  public static final int LEVELS = 6;
+
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+  // anything further away than this is parked in the top level until it
+  // cascades down
+  private static final long MAX_SPAN = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+  private final Timeout<T>[][] wheels;
+  private final boolean concurrent;
+  private final ConcurrentLinkedQueue<Timeout<T>> inbound;
+  private final ConcurrentLinkedQueue<Timeout<T>> cancelled;
+
+  private volatile long currentTick;
+  private int size;
+
+  @SuppressWarnings("unchecked")
+  public AwsmTimingWheel(boolean concurrent) {
+    wheels = (Timeout<T>[][]) new Timeout[LEVELS][WHEEL_SIZE];
+    for (int level = 0; level < LEVELS; level++) {
+      for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+        // each bucket starts out as an empty circular list with a sentinel
+        Timeout<T> sentinel = new Timeout<>(this, null, 0);
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        wheels[level][slot] = sentinel;
+      }
+    }
+    this.concurrent = concurrent;
+    this.inbound = concurrent ? new ConcurrentLinkedQueue<Timeout<T>>() : null;
+    this.cancelled = concurrent ? new ConcurrentLinkedQueue<Timeout<T>>() : null;
+    this.currentTick = 0;
+    this.size = 0;
+  }
+
+  public AwsmTimingWheel() {
+    this(false);
+  }
+
+  /**
+   * Schedules task to expire after delay ticks. A delay below one tick is
+   * rounded up, so the task expires on the next call to advance.
+   *
+   * @return a handle that can be used to cancel the task.
+   */
+  public Timeout<T> schedule(T task, long delay) {
+    Timeout<T> timeout = new Timeout<>(this, task, currentTick + Math.max(delay, 1));
+    if (concurrent) {
+      inbound.add(timeout);
+    } else {
+      place(timeout);
+      size++;
+    }
+    return timeout;
+  }
+
+  /**
+   * Cancels timeout.
+   *
+   * @return false if it had already expired or been cancelled.
+   */
+  public boolean cancel(Timeout<T> timeout) {
+    if (timeout.wheel != this) {
+      throw new IllegalArgumentException("timeout belongs to another wheel");
+    }
+    if (!timeout.transition(Timeout.PENDING, Timeout.CANCELLED)) {
+      return false;
+    }
+    if (concurrent) {
+      // only the advancing thread touches the buckets
+      cancelled.add(timeout);
+    } else {
+      unlink(timeout);
+      size--;
+    }
+    return true;
+  }
+
+  /**
+   * Moves the wheel forward by ticks, passing every task whose deadline has
+   * been reached to expired.
+   *
+   * @return the number of tasks that expired.
+   */
+  public int advance(long ticks, Consumer<? super T> expired) {
+    int count = 0;
+    for (long i = 0; i < ticks; i++) {
+      long tick = currentTick + 1;
+      currentTick = tick;
+      if (concurrent) {
+        drainCancelled();
+        drainInbound();
+      }
+
+      // find how many levels wrapped around on this tick, then cascade from
+      // the highest one down so that timeouts can fall through several levels
+      int wrapped = 0;
+      while (wrapped < LEVELS - 1 && ((tick >>> (WHEEL_BITS * wrapped)) & WHEEL_MASK) == 0) {
+        wrapped++;
+      }
+      for (int level = wrapped; level >= 1; level--) {
+        cascade(level, (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+      }
+
+      Timeout<T> bucket = wheels[0][(int) (tick & WHEEL_MASK)];
+      while (bucket.next != bucket) {
+        Timeout<T> timeout = bucket.next;
+        unlink(timeout);
+        size--;
+        if (timeout.transition(Timeout.PENDING, Timeout.EXPIRED)) {
+          count++;
+          expired.accept(timeout.task);
+        }
+      }
+    }
+    return count;
+  }
+
+  public long now() {
+    return currentTick;
+  }
+
+  /**
+   * Returns the number of timeouts waiting in the wheel. For a concurrent
+   * wheel this leaves out timeouts that have not been drained yet, and must be
+   * called from the advancing thread.
+   */
+  public int size() {
+    return size;
+  }
+
+  private void cascade(int level, int slot) {
+    Timeout<T> bucket = wheels[level][slot];
+    while (bucket.next != bucket) {
+      Timeout<T> timeout = bucket.next;
+      unlink(timeout);
+      place(timeout);
+    }
+  }
+
+  private void place(Timeout<T> timeout) {
+    long deadline = timeout.deadline;
+    long remaining = deadline - currentTick;
+    if (remaining < 0) {
+      // drained after its deadline; expire on this tick
+      deadline = currentTick;
+      remaining = 0;
+    } else if (remaining > MAX_SPAN) {
+      deadline = currentTick + MAX_SPAN;
+      remaining = MAX_SPAN;
+    }
+
+    int level = 0;
+    while ((remaining >>> (WHEEL_BITS * (level + 1))) != 0) {
+      level++;
+    }
+    int slot = (int) ((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+
+    Timeout<T> bucket = wheels[level][slot];
+    timeout.prev = bucket.prev;
+    timeout.next = bucket;
+    bucket.prev.next = timeout;
+    bucket.prev = timeout;
+  }
+
+  private void unlink(Timeout<T> timeout) {
+    timeout.prev.next = timeout.next;
+    timeout.next.prev = timeout.prev;
+    timeout.prev = null;
+    timeout.next = null;
+  }
+
+  private void drainInbound() {
+    Timeout<T> timeout;
+    while ((timeout = inbound.poll()) != null) {
+      if (timeout.state == Timeout.PENDING) {
+        place(timeout);
+        size++;
+      }
+    }
+  }
+
+  private void drainCancelled() {
+    Timeout<T> timeout;
+    while ((timeout = cancelled.poll()) != null) {
+      // timeouts cancelled before they left the inbound queue were never linked
+      if (timeout.next != null) {
+        unlink(timeout);
+        size--;
+      }
+    }
+  }
+
+  public static class Timeout<Q> {
+    static final int PENDING = 0;
+    static final int CANCELLED = 1;
+    static final int EXPIRED = 2;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater
+        .newUpdater(Timeout.class, "state");
+
+    private final AwsmTimingWheel<Q> wheel;
+    private final Q task;
+    private final long deadline;
+    private volatile int state;
+    private Timeout<Q> prev;
+    private Timeout<Q> next;
+
+    private Timeout(AwsmTimingWheel<Q> wheel, Q task, long deadline) {
+      this.wheel = wheel;
+      this.task = task;
+      this.deadline = deadline;
+      this.state = PENDING;
+    }
+
+    private boolean transition(int from, int to) {
+      return STATE.compareAndSet(this, from, to);
+    }
+
+    public Q task() {
+      return task;
+    }
+
+    public long deadline() {
+      return deadline;
+    }
+
+    public boolean isCancelled() {
+      return state == CANCELLED;
+    }
+
+    public boolean isExpired() {
+      return state == EXPIRED;
+    }
+
+    public boolean cancel() {
+      return wheel.cancel(this);
+    }
+  }
+
+  public static void main(String[] args) {
+    AwsmTimingWheel<String> wheel = new AwsmTimingWheel<>();
+    wheel.schedule("one", 1);
+    wheel.schedule("seventy", 70);
+    wheel.schedule("five thousand", 5000);
+    Timeout<String> never = wheel.schedule("never", 100);
+    never.cancel();
+
+    wheel.advance(10000, task -> System.out.println(wheel.now() + " " + task));
+    // 1 one
+    // 70 seventy
+    // 5000 five thousand
+    System.out.println(wheel.size()); // 0
+  }
+}
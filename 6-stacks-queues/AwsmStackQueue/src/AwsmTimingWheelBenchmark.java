@@ -0,0 +1,120 @@
+import java.util.Random;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rough timing of schedule, cancel and expiry on AwsmTimingWheel against
+ * java.util.concurrent.DelayQueue. Both run off the same fake clock measured in
+ * ticks, so the numbers are pure data structure cost.
+ * Run with e.g. java AwsmTimingWheelBenchmark 1000000
+ */
+public class AwsmTimingWheelBenchmark {
+
+  public static final int ROUNDS = 5;
+  public static final int MAX_DELAY = 100000;
+  // DelayQueue.remove is a linear scan, so only a small share is cancelled
+  public static final int CANCEL_EVERY = 100;
+
+  private static long clock;
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Random random = new Random(42);
+    long[] delays = new long[n];
+    for (int i = 0; i < n; i++) {
+      delays[i] = 1 + random.nextInt(MAX_DELAY);
+    }
+
+    AwsmBenchmark.rounds(ROUNDS, report -> {
+      wheel(delays, false, report);
+      wheel(delays, true, report);
+      delayQueue(delays, report);
+    });
+  }
+
+  private static void wheel(long[] delays, boolean concurrent, boolean report) {
+    AwsmTimingWheel<Integer> wheel = new AwsmTimingWheel<>(concurrent);
+    @SuppressWarnings("unchecked")
+    AwsmTimingWheel.Timeout<Integer>[] timeouts = new AwsmTimingWheel.Timeout[delays.length];
+
+    long schedule = AwsmBenchmark.nanos(() -> {
+      for (int i = 0; i < delays.length; i++) {
+        timeouts[i] = wheel.schedule(i, delays[i]);
+      }
+      return delays.length;
+    });
+    long cancel = AwsmBenchmark.nanos(() -> {
+      for (int i = 0; i < delays.length; i += CANCEL_EVERY) {
+        timeouts[i].cancel();
+      }
+      return wheel.size();
+    });
+    int[] fired = new int[1];
+    long expire = AwsmBenchmark.nanos(() -> fired[0] = wheel.advance(MAX_DELAY + 1, task -> {
+    }));
+
+    if (report) {
+      print(concurrent ? "AwsmTimingWheel (concurrent)" : "AwsmTimingWheel", schedule, cancel, expire,
+          delays.length, fired[0]);
+    }
+  }
+
+  private static void delayQueue(long[] delays, boolean report) {
+    clock = 0;
+    DelayQueue<Task> queue = new DelayQueue<>();
+    Task[] tasks = new Task[delays.length];
+
+    long schedule = AwsmBenchmark.nanos(() -> {
+      for (int i = 0; i < delays.length; i++) {
+        tasks[i] = new Task(clock + delays[i]);
+        queue.add(tasks[i]);
+      }
+      return delays.length;
+    });
+    long cancel = AwsmBenchmark.nanos(() -> {
+      for (int i = 0; i < delays.length; i += CANCEL_EVERY) {
+        queue.remove(tasks[i]);
+      }
+      return queue.size();
+    });
+    int[] fired = new int[1];
+    long expire = AwsmBenchmark.nanos(() -> {
+      while (clock <= MAX_DELAY) {
+        clock++;
+        while (queue.poll() != null) {
+          fired[0]++;
+        }
+      }
+      return fired[0];
+    });
+
+    if (report) {
+      print("java.util.concurrent.DelayQueue", schedule, cancel, expire, delays.length, fired[0]);
+    }
+  }
+
+  private static void print(String name, long schedule, long cancel, long expire, int n, int fired) {
+    int cancels = (n + CANCEL_EVERY - 1) / CANCEL_EVERY;
+    System.out.printf("%-32s schedule %6.1f ns/op, cancel %9.1f ns/op, expire %7.1f ms (%d fired)%n", name,
+        schedule / (double) n, cancel / (double) cancels, expire / 1e6, fired);
+  }
+
+  private static class Task implements Delayed {
+    private final long deadline;
+
+    Task(long deadline) {
+      this.deadline = deadline;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return deadline - clock;
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+      return Long.compare(deadline, ((Task) o).deadline);
+    }
+  }
+}
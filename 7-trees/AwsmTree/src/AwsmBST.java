@@ -1,6 +1,10 @@
+import java.util.ArrayDeque;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class AwsmBST<T extends Comparable<? super T>> implements AwsmSearchTree<T>, Iterable<T> {
 
@@ -12,28 +16,46 @@ public class AwsmBST<T extends Comparable<? super T>> implements AwsmSearchTree<
     size = 0;
   }
 
+  /**
+   * Lists the items in sorted order, one per line, indented by depth. Walks
+   * with an explicit stack, so even a tree that has degenerated into a long
+   * chain cannot overflow the call stack, and leaves the tree alone, so it is
+   * safe next to other readers.
+   */
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    toString(root, sb, 0);
-    return sb.toString();
-  }
-
-  private void toString(AwsmNode<T> node, StringBuilder sb, int level) {
-    if (node != null) {
-      if (node.left != null) {
-        toString(node.left, sb, level + 1);
-      }
-
+    walker().walk(false, (node, level) -> {
       for (int i = 0; i < level; i++) {
         sb.append("  ");
       }
       sb.append(node);
       sb.append("\n");
+    });
+    return sb.toString();
+  }
 
-      if (node.right != null) {
-        toString(node.right, sb, level + 1);
-      }
-    }
+  /**
+   * Passes every item to action in sorted order using Morris traversal, in O(1)
+   * extra space and without recursion.
+   *
+   * The tree is changed while the walk is going on and put back when it ends,
+   * so it must not be read or changed by anyone else in the meantime, including
+   * action itself, iterators, streams and parallel traversals.
+   */
+  public void forEachInfixMorris(Consumer<? super T> action) {
+    walker().morris(false, node -> action.accept(node.data));
+  }
+
+  /**
+   * Passes every item to action in prefix order using Morris traversal. The
+   * same rules as forEachInfixMorris apply.
+   */
+  public void forEachPrefixMorris(Consumer<? super T> action) {
+    walker().morris(true, node -> action.accept(node.data));
+  }
+
+  private AwsmTreeWalk<AwsmNode<T>> walker() {
+    return new AwsmTreeWalk<>(root, node -> node.left, node -> node.right, (node, right) -> node.right = right);
   }
 
   @Override
@@ -85,8 +107,14 @@ public class AwsmBST<T extends Comparable<? super T>> implements AwsmSearchTree<
 
   @Override
   public T remove(T item) {
-    AwsmNode<T> removedNode = remove(root, item);
-    return removedNode != null ? removedNode.data : null;
+    AwsmNode<T> removedNode = get(root, item);
+    if (removedNode == null) {
+      return null;
+    }
+    // read before removing, since a node with two children takes over its successor's data
+    T removed = removedNode.data;
+    root = remove(root, item);
+    return removed;
   }
 
   private AwsmNode<T> remove(AwsmNode<T> node, T item) {
@@ -101,9 +129,10 @@ public class AwsmBST<T extends Comparable<? super T>> implements AwsmSearchTree<
     } else {
       // removal
       if (node.left != null && node.right != null) {
-        // two children
+        // two children; removing the successor below counts the removal
         node.data = findMin(node.right).data;
         node.right = remove(node.right, node.data);
+        return node;
       } else if (node.left != null) {
         // only left child
         node = node.left;
@@ -157,6 +186,45 @@ public class AwsmBST<T extends Comparable<? super T>> implements AwsmSearchTree<
     return new AwsmBSTIterator<T>(root);
   }
 
+  /**
+   * Returns an immutable copy of this tree laid out in one array, for data
+   * that is built once and then only looked up.
+   */
+  public AwsmEytzingerTree<T> freeze() {
+    return AwsmEytzingerTree.freeze(this);
+  }
+
+  /**
+   * Returns a fork/join traversal over this tree that forks the top
+   * parallelDepth levels and walks everything below them sequentially. Items
+   * are combined in sorted order.
+   */
+  public AwsmParallelTraversal<AwsmNode<T>, T> parallel(int parallelDepth) {
+    return new AwsmParallelTraversal<>(root, node -> node.left, node -> node.right, node -> node.data,
+        parallelDepth);
+  }
+
+  public AwsmParallelTraversal<AwsmNode<T>, T> parallel() {
+    return parallel(AwsmParallelTraversal.defaultParallelDepth());
+  }
+
+  /**
+   * Returns a spliterator over the items in sorted order that splits at
+   * subtree boundaries.
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+    return new AwsmInOrderSpliterator<>(root, size, node -> node.left, node -> node.right, node -> node.data);
+  }
+
+  public Stream<T> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  public Stream<T> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
+
   public class AwsmNode<Q extends Comparable<? super Q>> {
     public Q data;
     public AwsmNode<Q> left;
@@ -173,35 +241,39 @@ public class AwsmBST<T extends Comparable<? super T>> implements AwsmSearchTree<
     }
   }
 
+  /**
+   * Walks the tree in order with an explicit stack of the left spine, so it
+   * works on empty and very deep trees alike.
+   */
   public class AwsmBSTIterator<Q extends Comparable<? super Q>> implements Iterator<Q> {
 
-    private LinkedList<AwsmNode<Q>> list;
+    private ArrayDeque<AwsmNode<Q>> stack;
 
     public AwsmBSTIterator(AwsmNode<Q> root) {
-      list = new LinkedList<>();
-      infixTraverse(root);
+      stack = new ArrayDeque<>();
+      pushLeft(root);
     }
 
-    public void infixTraverse(AwsmNode<Q> node) {
-      if (node.left != null) {
-        infixTraverse(node.left);
-      }
-
-      list.add(node);
-
-      if (node.right != null) {
-        infixTraverse(node.right);
+    private void pushLeft(AwsmNode<Q> node) {
+      while (node != null) {
+        stack.push(node);
+        node = node.left;
       }
     }
 
     @Override
     public boolean hasNext() {
-      return !list.isEmpty();
+      return !stack.isEmpty();
     }
 
     @Override
     public Q next() {
-      return list.removeFirst().data;
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      AwsmNode<Q> node = stack.pop();
+      pushLeft(node.right);
+      return node.data;
     }
   }
 }
@@ -0,0 +1,45 @@
+/**
+ * Timing shared by the benchmarks. A benchmark runs all of its candidates once
+ * per round, one after another, so none of them has the JIT to itself. The
+ * first rounds only warm up the JIT; the last one is reported.
+ */
+public class AwsmBenchmark {
+
+  public static final int NAME_WIDTH = 28;
+
+  // every result is added here, so the JIT cannot drop the work even when
+  // nothing is printed
+  private static long sink;
+
+  public interface Round {
+    void run(boolean report);
+  }
+
+  public interface Run {
+    long run();
+  }
+
+  /**
+   * Calls round count times, with report set on the last call only.
+   */
+  public static void rounds(int count, Round round) {
+    for (int i = 0; i < count; i++) {
+      round.run(i == count - 1);
+    }
+  }
+
+  /**
+   * Times run and, if report is set, prints name, the time and what run
+   * returned.
+   */
+  public static long time(String name, boolean report, Run run) {
+    long start = System.nanoTime();
+    long result = run.run();
+    long elapsed = System.nanoTime() - start;
+    sink += result;
+    if (report) {
+      System.out.printf("%-" + NAME_WIDTH + "s %8.1f ms (checksum %d)%n", name, elapsed / 1e6, result);
+    }
+    return elapsed;
+  }
+}
@@ -0,0 +1,53 @@
+import java.util.Random;
+
+/**
+ * Rough timing of contains on an AwsmBST of n items with and without an
+ * AwsmBloomSearchTree in front, for query mixes from all misses to all hits.
+ * java AwsmBloomBenchmark 1000000
+ */
+public class AwsmBloomBenchmark {
+
+  public static final int ROUNDS = 5;
+  public static final int LOOKUPS = 5000000;
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Random random = new Random(42);
+
+    // even items only, added in random order so the tree stays shallow
+    AwsmBST<Integer> bst = new AwsmBST<>();
+    AwsmBloomSearchTree<Integer> filtered = new AwsmBloomSearchTree<>(new AwsmBST<Integer>(), n, 0.01);
+    Integer[] items = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      items[i] = random.nextInt(Integer.MAX_VALUE / 2) * 2;
+      bst.add(items[i]);
+      filtered.add(items[i]);
+    }
+
+    for (double missShare : new double[] { 1.0, 0.9, 0.5, 0.0 }) {
+      Integer[] queries = new Integer[LOOKUPS];
+      for (int q = 0; q < LOOKUPS; q++) {
+        Integer item = items[random.nextInt(n)];
+        // an item plus one is odd, so never there
+        queries[q] = random.nextDouble() < missShare ? item + 1 : item;
+      }
+      System.out.printf("%3.0f%% misses%n", missShare * 100);
+      AwsmBenchmark.rounds(ROUNDS, report -> {
+        AwsmBenchmark.time("  AwsmBST", report, () -> {
+          long hits = 0;
+          for (Integer query : queries) {
+            hits += bst.contains(query) ? 1 : 0;
+          }
+          return hits;
+        });
+        AwsmBenchmark.time("  AwsmBloomSearchTree", report, () -> {
+          long hits = 0;
+          for (Integer query : queries) {
+            hits += filtered.contains(query) ? 1 : 0;
+          }
+          return hits;
+        });
+      });
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * A Bloom filter: a set that answers "definitely not there" or "maybe there".
+ *
+ * Each item sets hashCount bits of a long[] bitset, picked by double hashing:
+ * bit i is h1 + i * h2 for the two halves of a 64-bit hash of the item. A
+ * lookup that finds any of its bits clear knows the item was never added. If
+ * all of them are set, the item was added or other items happened to set the
+ * same bits; with the sizes picked by the constructor that happens for about
+ * falsePositiveRate of lookups.
+ *
+ * Items cannot be taken out again; AwsmCountingBloomFilter can do that, at
+ * four times the memory.
+ */
+public class AwsmBloomFilter {
+
+  private final long[] words;
+  private final long bitCount;
+  private final int hashCount;
+
+  /**
+   * Sizes the filter so that with expectedItems items in it, about
+   * falsePositiveRate of lookups for missing items answer "maybe".
+   */
+  public AwsmBloomFilter(long expectedItems, double falsePositiveRate) {
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+    }
+    long items = Math.max(1, expectedItems);
+    long bits = (long) Math.ceil(-items * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    words = new long[(int) Math.max(1, (bits + 63) / 64)];
+    bitCount = (long) words.length * 64;
+    hashCount = (int) Math.max(1, Math.round((double) bitCount / items * Math.log(2)));
+  }
+
+  public void add(Object item) {
+    long hash = hash(item);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+      words[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  public boolean mightContain(Object item) {
+    long hash = hash(item);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+      if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Spreads hashCode over 64 bits, so both halves are usable.
+   */
+  public static long hash(Object item) {
+    long hash = item.hashCode();
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,118 @@
+
+/**
+ * Puts a Bloom filter in front of any AwsmSearchTree, so that looking up an
+ * item that is not there usually costs a few hashes instead of a walk down the
+ * tree.
+ *
+ * With removable set, the filter is an AwsmCountingBloomFilter and remove
+ * takes items out of it again. Otherwise it is a plain AwsmBloomFilter, a
+ * quarter of the size; removed items then stay in it, so lookups for them
+ * still walk the tree, and a tree with a lot of removes gets less out of the
+ * filter over time.
+ *
+ * The filter has to see every item in the tree, so the tree must be empty when
+ * it is wrapped and only be changed through the wrapper afterwards. Items that
+ * compare as equal must have the same hashCode.
+ */
+public class AwsmBloomSearchTree<T> implements AwsmSearchTree<T> {
+
+  private final AwsmSearchTree<T> tree;
+  // exactly one of the two is set
+  private final AwsmBloomFilter filter;
+  private final AwsmCountingBloomFilter countingFilter;
+  private long skipped;
+
+  /**
+   * Wraps an empty tree with a filter sized for expectedItems items.
+   */
+  public AwsmBloomSearchTree(AwsmSearchTree<T> tree, long expectedItems, double falsePositiveRate,
+      boolean removable) {
+    if (tree.size() != 0) {
+      throw new IllegalArgumentException("the tree must be empty, but has " + tree.size() + " items");
+    }
+    this.tree = tree;
+    this.filter = removable ? null : new AwsmBloomFilter(expectedItems, falsePositiveRate);
+    this.countingFilter = removable ? new AwsmCountingBloomFilter(expectedItems, falsePositiveRate) : null;
+  }
+
+  public AwsmBloomSearchTree(AwsmSearchTree<T> tree, long expectedItems, double falsePositiveRate) {
+    this(tree, expectedItems, falsePositiveRate, true);
+  }
+
+  @Override
+  public void add(T item) {
+    if (filter != null) {
+      filter.add(item);
+    } else if (!countingFilter.mightContain(item) || !tree.contains(item)) {
+      // an item already in the tree is counted once, so one remove clears it
+      countingFilter.add(item);
+    }
+    tree.add(item);
+  }
+
+  @Override
+  public boolean contains(T item) {
+    return get(item) != null;
+  }
+
+  @Override
+  public T remove(T item) {
+    if (!mightContain(item)) {
+      skipped++;
+      return null;
+    }
+    T removed = tree.remove(item);
+    if (removed != null && countingFilter != null) {
+      countingFilter.remove(item);
+    }
+    return removed;
+  }
+
+  @Override
+  public T get(T item) {
+    if (!mightContain(item)) {
+      skipped++;
+      return null;
+    }
+    return tree.get(item);
+  }
+
+  @Override
+  public int size() {
+    return tree.size();
+  }
+
+  @Override
+  public int height() {
+    return tree.height();
+  }
+
+  private boolean mightContain(T item) {
+    return filter != null ? filter.mightContain(item) : countingFilter.mightContain(item);
+  }
+
+  /**
+   * How many lookups the filter answered without going to the tree.
+   */
+  public long skippedCount() {
+    return skipped;
+  }
+
+  public static void main(String[] args) {
+    AwsmBloomSearchTree<Integer> tree = new AwsmBloomSearchTree<>(new AwsmBST<Integer>(), 1000, 0.01);
+    for (int i = 0; i < 1000; i += 2) {
+      tree.add(i);
+    }
+    int found = 0;
+    for (int i = 0; i < 1000; i++) {
+      found += tree.contains(i) ? 1 : 0;
+    }
+    System.out.println(found); // 500
+    System.out.println(tree.skippedCount() > 450); // true
+    System.out.println(tree.remove(4) + " " + tree.contains(4) + " " + tree.size()); // 4 false 499
+
+    AwsmBloomSearchTree<Integer> plain = new AwsmBloomSearchTree<>(new AwsmBST<Integer>(), 1000, 0.01, false);
+    plain.add(4);
+    System.out.println(plain.remove(4) + " " + plain.contains(4) + " " + plain.skippedCount()); // 4 false 0
+  }
+}
@@ -0,0 +1,79 @@
+
+/**
+ * An AwsmBloomFilter that items can be taken out of again.
+ *
+ * Instead of one bit, each item is hashed to hashCount counters of 4 bits,
+ * packed 16 to a long and picked by the same double hashing. Adding an item
+ * bumps its counters and removing it lowers them; it is definitely not there
+ * if any of them is 0. That takes four times the memory of an AwsmBloomFilter
+ * with the same false positive rate.
+ *
+ * A counter that reaches 15 stays there, since its true count is no longer
+ * known, so heavy collisions only ever cause more "maybe" answers. Only remove
+ * items that were added; removing others can cause wrong "not there" answers.
+ */
+public class AwsmCountingBloomFilter {
+
+  public static final int MAX_COUNT = 15;
+
+  private final long[] words;
+  private final long counterCount;
+  private final int hashCount;
+
+  /**
+   * Sizes the filter so that with expectedItems items in it, about
+   * falsePositiveRate of lookups for missing items answer "maybe".
+   */
+  public AwsmCountingBloomFilter(long expectedItems, double falsePositiveRate) {
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+    }
+    long items = Math.max(1, expectedItems);
+    long counters = (long) Math.ceil(-items * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    words = new long[(int) Math.max(1, (counters + 15) / 16)];
+    counterCount = (long) words.length * 16;
+    hashCount = (int) Math.max(1, Math.round((double) counterCount / items * Math.log(2)));
+  }
+
+  public void add(Object item) {
+    long hash = AwsmBloomFilter.hash(item);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long counter = ((h1 + (long) i * h2) & Long.MAX_VALUE) % counterCount;
+      int word = (int) (counter >>> 4);
+      int shift = (int) (counter & 15) << 2;
+      if (((words[word] >>> shift) & 0xf) < MAX_COUNT) {
+        words[word] += 1L << shift;
+      }
+    }
+  }
+
+  public void remove(Object item) {
+    long hash = AwsmBloomFilter.hash(item);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long counter = ((h1 + (long) i * h2) & Long.MAX_VALUE) % counterCount;
+      int word = (int) (counter >>> 4);
+      int shift = (int) (counter & 15) << 2;
+      long count = (words[word] >>> shift) & 0xf;
+      if (count > 0 && count < MAX_COUNT) {
+        words[word] -= 1L << shift;
+      }
+    }
+  }
+
+  public boolean mightContain(Object item) {
+    long hash = AwsmBloomFilter.hash(item);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long counter = ((h1 + (long) i * h2) & Long.MAX_VALUE) % counterCount;
+      if (((words[(int) (counter >>> 4)] >>> ((counter & 15) << 2)) & 0xf) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
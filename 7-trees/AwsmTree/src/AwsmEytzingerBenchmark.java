@@ -0,0 +1,79 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Rough timing of lookups, half of them hits, in a tree of n items: AwsmBST,
+ * the same tree frozen into an AwsmEytzingerTree, and Arrays.binarySearch over
+ * the sorted items. The frozen tree is timed both comparing the Integers and
+ * comparing a long key per item. Run with e.g. java -Xmx2g AwsmEytzingerBenchmark 1000000
+ */
+public class AwsmEytzingerBenchmark {
+
+  public static final int ROUNDS = 5;
+  public static final int LOOKUPS = 5000000;
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Random random = new Random(42);
+
+    // even keys only, added in random order so the AwsmBST stays shallow
+    AwsmBST<Integer> bst = new AwsmBST<>();
+    for (int i = 0; i < n; i++) {
+      bst.add(random.nextInt(Integer.MAX_VALUE / 2) * 2);
+    }
+    AwsmEytzingerTree<Integer> frozen = bst.freeze();
+    AwsmEytzingerTree<Integer> keyed = AwsmEytzingerTree.freeze(bst, Integer::longValue);
+    Integer[] sorted = new Integer[bst.size()];
+    int i = 0;
+    for (Integer item : bst) {
+      sorted[i++] = item;
+    }
+
+    // looking up a present key plus one always misses
+    Integer[] queries = new Integer[LOOKUPS];
+    for (int q = 0; q < LOOKUPS; q++) {
+      Integer key = sorted[random.nextInt(sorted.length)];
+      queries[q] = random.nextBoolean() ? key : key + 1;
+    }
+
+    System.out.println(bst.size() + " items, AwsmBST height " + bst.height() + ", frozen height " + frozen.height());
+    AwsmBenchmark.rounds(ROUNDS, report -> {
+      AwsmBenchmark.time("AwsmBST.contains", report, () -> {
+        long hits = 0;
+        for (Integer query : queries) {
+          hits += bst.contains(query) ? 1 : 0;
+        }
+        return hits;
+      });
+      AwsmBenchmark.time("AwsmEytzingerTree.contains", report, () -> {
+        long hits = 0;
+        for (Integer query : queries) {
+          hits += frozen.contains(query) ? 1 : 0;
+        }
+        return hits;
+      });
+      AwsmBenchmark.time("AwsmEytzingerTree.floor", report, () -> {
+        long sum = 0;
+        for (Integer query : queries) {
+          Integer floor = frozen.floor(query);
+          sum += floor != null ? floor : 0;
+        }
+        return sum;
+      });
+      AwsmBenchmark.time("keyed AwsmEytzingerTree", report, () -> {
+        long hits = 0;
+        for (Integer query : queries) {
+          hits += keyed.contains(query) ? 1 : 0;
+        }
+        return hits;
+      });
+      AwsmBenchmark.time("Arrays.binarySearch", report, () -> {
+        long hits = 0;
+        for (Integer query : queries) {
+          hits += Arrays.binarySearch(sorted, query) >= 0 ? 1 : 0;
+        }
+        return hits;
+      });
+    });
+  }
+}
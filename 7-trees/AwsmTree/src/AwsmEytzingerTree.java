@@ -0,0 +1,279 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
+
+/**
+ * An immutable search tree stored in one array in Eytzinger (breadth-first)
+ * order: the root is at index 1 and the children of index k are at 2k and
+ * 2k + 1, like the array in a binary heap.
+ *
+ * There are no node objects and no child pointers, so a lookup only touches
+ * the array and the items it compares against. The top levels of the tree sit
+ * next to each other at the front of the array and stay in cache, and the
+ * children of a node are always side by side.
+ *
+ * A search never stops early. It always walks all the way down, turning left
+ * or right by adding the result of the comparison to the index, and the answer
+ * is then read off the bits of the final index. The loop runs the same number
+ * of times for every key, so the branch predictor is never wrong about when it
+ * ends.
+ *
+ * Build one with freeze from any search tree that iterates in sorted order,
+ * such as AwsmBST.
+ *
+ * Items are objects, so each comparison still has to follow a reference to
+ * wherever the item lives. When every item can be turned into a long that
+ * sorts the same way (a number, a timestamp, an id), freeze can also be given
+ * that function. The longs are then kept in a second array in the same layout,
+ * and searches only compare longs, touching the items array once at the end.
+ */
+public class AwsmEytzingerTree<T extends Comparable<? super T>> implements AwsmSearchTree<T>, Iterable<T> {
+
+  // items[0] is unused so that the root can sit at index 1
+  private final Object[] items;
+  private final int size;
+  // null unless the tree was frozen with a key function
+  private final long[] keys;
+  private final ToLongFunction<? super T> keyFunction;
+
+  private AwsmEytzingerTree(Object[] sorted, int size, ToLongFunction<? super T> keyFunction) {
+    this.size = size;
+    this.items = new Object[size + 1];
+    this.keyFunction = keyFunction;
+    if (size > 0) {
+      fill(sorted, 0, 1);
+    }
+    if (keyFunction != null) {
+      keys = new long[size + 1];
+      for (int k = 1; k <= size; k++) {
+        keys[k] = keyFunction.applyAsLong(at(k));
+      }
+    } else {
+      keys = null;
+    }
+  }
+
+  /**
+   * Copies the items of tree into a new frozen tree. tree must iterate in
+   * strictly increasing order, and later changes to it are not seen by the
+   * frozen copy.
+   */
+  public static <T extends Comparable<? super T>, S extends AwsmSearchTree<T> & Iterable<T>> AwsmEytzingerTree<T> freeze(
+      S tree) {
+    return freeze(tree, null);
+  }
+
+  /**
+   * Like freeze(tree), but searches compare key(item) instead of calling
+   * compareTo. key must give strictly increasing values for items in
+   * increasing order, and this is checked.
+   */
+  public static <T extends Comparable<? super T>, S extends AwsmSearchTree<T> & Iterable<T>> AwsmEytzingerTree<T> freeze(
+      S tree, ToLongFunction<? super T> key) {
+    Object[] sorted = new Object[tree.size()];
+    int size = 0;
+    T previous = null;
+    for (T item : tree) {
+      if (previous != null && previous.compareTo(item) >= 0) {
+        throw new IllegalArgumentException("items are not in strictly increasing order: " + previous + ", " + item);
+      }
+      if (size == sorted.length) {
+        throw new IllegalArgumentException("tree holds more items than its size says");
+      }
+      if (key != null && previous != null && key.applyAsLong(previous) >= key.applyAsLong(item)) {
+        throw new IllegalArgumentException("key does not keep the order of " + previous + ", " + item);
+      }
+      sorted[size++] = item;
+      previous = item;
+    }
+    return new AwsmEytzingerTree<T>(sorted, size, key);
+  }
+
+  /**
+   * Places sorted[next..] into the subtree rooted at k in infix order, and
+   * returns the index of the next unplaced item. Only recurses as deep as the
+   * tree is tall.
+   */
+  private int fill(Object[] sorted, int next, int k) {
+    if (k <= size) {
+      next = fill(sorted, next, 2 * k);
+      items[k] = sorted[next++];
+      next = fill(sorted, next, 2 * k + 1);
+    }
+    return next;
+  }
+
+  @Override
+  public void add(T item) {
+    throw new UnsupportedOperationException("AwsmEytzingerTree is immutable");
+  }
+
+  @Override
+  public T remove(T item) {
+    throw new UnsupportedOperationException("AwsmEytzingerTree is immutable");
+  }
+
+  @Override
+  public boolean contains(T item) {
+    return get(item) != null;
+  }
+
+  @Override
+  public T get(T item) {
+    if (keys != null) {
+      long key = keyFunction.applyAsLong(item);
+      int k = ceilingIndex(key);
+      return k != 0 && keys[k] == key ? at(k) : null;
+    }
+    int k = ceilingIndex(item);
+    if (k != 0 && at(k).compareTo(item) == 0) {
+      return at(k);
+    }
+    return null;
+  }
+
+  /**
+   * Returns the largest item less than or equal to item, or null if there is
+   * none.
+   */
+  public T floor(T item) {
+    if (keys != null) {
+      int k = floorIndex(keyFunction.applyAsLong(item));
+      return k == 0 ? null : at(k);
+    }
+    int k = 1;
+    while (k <= size) {
+      // go right while the node is not above item
+      k = 2 * k + (at(k).compareTo(item) <= 0 ? 1 : 0);
+    }
+    // the answer is the last node where the search went right: drop the
+    // trailing left turns (zeros), then the right turn itself
+    k >>>= Integer.numberOfTrailingZeros(k) + 1;
+    return k == 0 ? null : at(k);
+  }
+
+  /**
+   * Returns the smallest item greater than or equal to item, or null if there
+   * is none.
+   */
+  public T ceiling(T item) {
+    int k = keys != null ? ceilingIndex(keyFunction.applyAsLong(item)) : ceilingIndex(item);
+    return k == 0 ? null : at(k);
+  }
+
+  // the same searches over the key array
+  private int ceilingIndex(long key) {
+    int k = 1;
+    while (k <= size) {
+      k = 2 * k + (keys[k] < key ? 1 : 0);
+    }
+    return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+  }
+
+  private int floorIndex(long key) {
+    int k = 1;
+    while (k <= size) {
+      k = 2 * k + (keys[k] <= key ? 1 : 0);
+    }
+    return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+  }
+
+  // the index of the smallest item not below item, or 0 if there is none
+  private int ceilingIndex(T item) {
+    int k = 1;
+    while (k <= size) {
+      k = 2 * k + (at(k).compareTo(item) < 0 ? 1 : 0);
+    }
+    // the answer is the last node where the search went left: drop the
+    // trailing right turns (ones), then the left turn itself
+    return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Every level but the last is full, so the height follows from the size.
+   */
+  @Override
+  public int height() {
+    return 32 - Integer.numberOfLeadingZeros(size);
+  }
+
+  @SuppressWarnings("unchecked")
+  private T at(int k) {
+    return (T) items[k];
+  }
+
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (T item : this) {
+      sb.append(item);
+      sb.append(" ");
+    }
+    return sb.toString().trim();
+  }
+
+  /**
+   * Iterates in sorted order by stepping from each index to its infix
+   * successor, so it needs no stack.
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      private int k = leftmost(1);
+
+      @Override
+      public boolean hasNext() {
+        return k != 0;
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        T item = at(k);
+        if (2 * k + 1 <= size) {
+          k = leftmost(2 * k + 1);
+        } else {
+          // climb while coming up from a right child, then once more
+          k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        }
+        return item;
+      }
+    };
+  }
+
+  private int leftmost(int k) {
+    if (k > size) {
+      return 0;
+    }
+    while (2 * k <= size) {
+      k = 2 * k;
+    }
+    return k;
+  }
+
+  public static void main(String[] args) {
+    AwsmBST<Integer> bst = new AwsmBST<>();
+    for (int item : new int[] { 10, 5, 16, 2, 7, 14, 19 }) {
+      bst.add(item);
+    }
+
+    AwsmEytzingerTree<Integer> frozen = AwsmEytzingerTree.freeze(bst);
+    System.out.println(frozen); // 2 5 7 10 14 16 19
+    System.out.println(frozen.contains(14)); // true
+    System.out.println(frozen.contains(15)); // false
+    System.out.println(frozen.floor(15)); // 14
+    System.out.println(frozen.floor(1)); // null
+    System.out.println(frozen.ceiling(15)); // 16
+    System.out.println(frozen.ceiling(20)); // null
+    System.out.println(frozen.height()); // 3
+
+    AwsmEytzingerTree<Integer> keyed = AwsmEytzingerTree.freeze(bst, Integer::longValue);
+    System.out.println(keyed.floor(15)); // 14
+  }
+}
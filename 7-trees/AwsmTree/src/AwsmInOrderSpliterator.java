@@ -0,0 +1,114 @@
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * A spliterator over the items of a binary search tree in sorted order. N is
+ * the node type, and the left, right and data functions tell it how to read a
+ * node, like AwsmParallelTraversal.
+ *
+ * It walks in order with an explicit stack: the top of the stack is the next
+ * node, and every node on the stack still has its right subtree to go.
+ * Splitting hands out everything but the bottom of the stack, which is the
+ * node closest to the root and so carries the biggest right subtree. If only
+ * one node is left on the stack, its item is handed out on its own and the
+ * walk moves into its right subtree.
+ *
+ * Items must be distinct, non-null and sorted by their natural order. The
+ * spliterator is SIZED until it is first split; the parts only estimate
+ * their size.
+ */
+public class AwsmInOrderSpliterator<N, T> implements Spliterator<T> {
+
+  private final UnaryOperator<N> left;
+  private final UnaryOperator<N> right;
+  private final Function<? super N, ? extends T> data;
+  // first = top of the stack
+  private final ArrayDeque<N> stack;
+  private long estimate;
+  private boolean exact;
+
+  /**
+   * Starts at root of a tree that holds exactly size items.
+   */
+  public AwsmInOrderSpliterator(N root, long size, UnaryOperator<N> left, UnaryOperator<N> right,
+      Function<? super N, ? extends T> data) {
+    this(new ArrayDeque<N>(), size, left, right, data);
+    this.exact = true;
+    pushLeft(root);
+  }
+
+  private AwsmInOrderSpliterator(ArrayDeque<N> stack, long estimate, UnaryOperator<N> left, UnaryOperator<N> right,
+      Function<? super N, ? extends T> data) {
+    this.stack = stack;
+    this.estimate = estimate;
+    this.left = left;
+    this.right = right;
+    this.data = data;
+  }
+
+  private void pushLeft(N node) {
+    while (node != null) {
+      stack.push(node);
+      node = left.apply(node);
+    }
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (stack.isEmpty()) {
+      return false;
+    }
+    N node = stack.pop();
+    pushLeft(right.apply(node));
+    if (estimate > 0) {
+      estimate--;
+    }
+    action.accept(data.apply(node));
+    return true;
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    if (stack.size() >= 2) {
+      ArrayDeque<N> prefix = new ArrayDeque<>();
+      while (stack.size() > 1) {
+        prefix.addLast(stack.pollFirst());
+      }
+      exact = false;
+      estimate >>>= 1;
+      return new AwsmInOrderSpliterator<>(prefix, estimate, left, right, data);
+    }
+    if (stack.size() == 1 && right.apply(stack.peek()) != null) {
+      N node = stack.pop();
+      pushLeft(right.apply(node));
+      if (estimate > 0) {
+        estimate--;
+      }
+      exact = false;
+      return Spliterators.spliterator(new Object[] { data.apply(node) }, characteristics());
+    }
+    return null;
+  }
+
+  @Override
+  public long estimateSize() {
+    return estimate;
+  }
+
+  @Override
+  public int characteristics() {
+    int characteristics = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL;
+    return exact ? characteristics | Spliterator.SIZED : characteristics;
+  }
+
+  @Override
+  public Comparator<? super T> getComparator() {
+    // sorted by the natural order of T
+    return null;
+  }
+}
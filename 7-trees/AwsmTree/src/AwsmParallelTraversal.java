@@ -0,0 +1,251 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Runs work over every node of a binary tree in parallel, using fork/join.
+ *
+ * The top parallelDepth levels of the tree are split into tasks: at each of
+ * those nodes the left subtree is forked while the current thread goes on
+ * with the right one. Below that depth each subtree is walked sequentially,
+ * in order, with an explicit stack so that deep trees cannot overflow the call
+ * stack.
+ *
+ * Results are combined in infix order (left subtree, node, right subtree), so
+ * any associative reducer gives the same answer as a sequential in-order
+ * walk. N is the node type, and the left, right and data functions tell the
+ * traversal how to read a node, so the same code serves AwsmTree and AwsmBST.
+ */
+public class AwsmParallelTraversal<N, T> {
+
+  private final N root;
+  private final UnaryOperator<N> left;
+  private final UnaryOperator<N> right;
+  private final Function<? super N, ? extends T> data;
+  private final int parallelDepth;
+
+  public AwsmParallelTraversal(N root, UnaryOperator<N> left, UnaryOperator<N> right,
+      Function<? super N, ? extends T> data, int parallelDepth) {
+    if (parallelDepth < 0) {
+      throw new IllegalArgumentException("parallelDepth must not be negative: " + parallelDepth);
+    }
+    this.root = root;
+    this.left = left;
+    this.right = right;
+    this.data = data;
+    this.parallelDepth = parallelDepth;
+  }
+
+  /**
+   * Forks enough levels to give every thread of the common pool about eight
+   * tasks.
+   */
+  public static int defaultParallelDepth() {
+    int threads = ForkJoinPool.getCommonPoolParallelism();
+    return 32 - Integer.numberOfLeadingZeros(threads) + 3;
+  }
+
+  /**
+   * Maps every item and reduces the results in infix order.
+   *
+   * @param identity
+   *          the result for an empty subtree.
+   */
+  public <R> R mapReduce(Function<? super T, ? extends R> mapper, BinaryOperator<R> reducer, R identity) {
+    return new ReduceTask<R>(root, 0, mapper, reducer, identity).invoke();
+  }
+
+  /**
+   * Calls visitor on every item. The visitor is called from several threads at
+   * once and in no particular order.
+   */
+  public void forEach(Consumer<? super T> visitor) {
+    new VisitTask(root, 0, visitor).invoke();
+  }
+
+  public long count() {
+    return sum(item -> 1L);
+  }
+
+  public long sum(ToLongFunction<? super T> mapper) {
+    return new SumTask(root, 0, mapper).invoke();
+  }
+
+  public Optional<T> min(Comparator<? super T> comparator) {
+    return Optional.ofNullable(mapReduce(item -> item, (a, b) -> {
+      if (a == null) {
+        return b;
+      }
+      if (b == null) {
+        return a;
+      }
+      return comparator.compare(b, a) < 0 ? b : a;
+    }, null));
+  }
+
+  public Optional<T> max(Comparator<? super T> comparator) {
+    return min(comparator.reversed());
+  }
+
+  /**
+   * Collects every item into a list in infix order.
+   */
+  public List<T> toList() {
+    return new ListTask(root, 0).invoke();
+  }
+
+  /**
+   * Walks the subtree under node in order without recursion.
+   */
+  private void inOrder(N node, Consumer<? super T> action) {
+    ArrayDeque<N> stack = new ArrayDeque<>();
+    while (node != null || !stack.isEmpty()) {
+      while (node != null) {
+        stack.push(node);
+        node = left.apply(node);
+      }
+      node = stack.pop();
+      action.accept(data.apply(node));
+      node = right.apply(node);
+    }
+  }
+
+  private class ReduceTask<R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+
+    private final N node;
+    private final int depth;
+    private final Function<? super T, ? extends R> mapper;
+    private final BinaryOperator<R> reducer;
+    private final R identity;
+    // running total for the sequential walk
+    private R result;
+
+    ReduceTask(N node, int depth, Function<? super T, ? extends R> mapper, BinaryOperator<R> reducer, R identity) {
+      this.node = node;
+      this.depth = depth;
+      this.mapper = mapper;
+      this.reducer = reducer;
+      this.identity = identity;
+    }
+
+    @Override
+    protected R compute() {
+      if (node == null) {
+        return identity;
+      }
+      if (depth >= parallelDepth) {
+        result = identity;
+        inOrder(node, item -> result = reducer.apply(result, mapper.apply(item)));
+        return result;
+      }
+      ReduceTask<R> leftTask = new ReduceTask<>(left.apply(node), depth + 1, mapper, reducer, identity);
+      leftTask.fork();
+      R rightResult = new ReduceTask<>(right.apply(node), depth + 1, mapper, reducer, identity).compute();
+      R nodeResult = mapper.apply(data.apply(node));
+      return reducer.apply(reducer.apply(leftTask.join(), nodeResult), rightResult);
+    }
+  }
+
+  private class SumTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+
+    private final N node;
+    private final int depth;
+    private final ToLongFunction<? super T> mapper;
+    private long sum;
+
+    SumTask(N node, int depth, ToLongFunction<? super T> mapper) {
+      this.node = node;
+      this.depth = depth;
+      this.mapper = mapper;
+    }
+
+    @Override
+    protected Long compute() {
+      if (node == null) {
+        return 0L;
+      }
+      if (depth >= parallelDepth) {
+        sum = 0;
+        inOrder(node, item -> sum += mapper.applyAsLong(item));
+        return sum;
+      }
+      SumTask leftTask = new SumTask(left.apply(node), depth + 1, mapper);
+      leftTask.fork();
+      long rightSum = new SumTask(right.apply(node), depth + 1, mapper).compute();
+      return leftTask.join() + mapper.applyAsLong(data.apply(node)) + rightSum;
+    }
+  }
+
+  private class VisitTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final N node;
+    private final int depth;
+    private final Consumer<? super T> visitor;
+
+    VisitTask(N node, int depth, Consumer<? super T> visitor) {
+      this.node = node;
+      this.depth = depth;
+      this.visitor = visitor;
+    }
+
+    @Override
+    protected void compute() {
+      if (node == null) {
+        return;
+      }
+      if (depth >= parallelDepth) {
+        inOrder(node, visitor);
+        return;
+      }
+      VisitTask leftTask = new VisitTask(left.apply(node), depth + 1, visitor);
+      leftTask.fork();
+      visitor.accept(data.apply(node));
+      new VisitTask(right.apply(node), depth + 1, visitor).compute();
+      leftTask.join();
+    }
+  }
+
+  private class ListTask extends RecursiveTask<List<T>> {
+    private static final long serialVersionUID = 1L;
+
+    private final N node;
+    private final int depth;
+
+    ListTask(N node, int depth) {
+      this.node = node;
+      this.depth = depth;
+    }
+
+    @Override
+    protected List<T> compute() {
+      List<T> list = new ArrayList<>();
+      if (node == null) {
+        return list;
+      }
+      if (depth >= parallelDepth) {
+        inOrder(node, list::add);
+        return list;
+      }
+      ListTask leftTask = new ListTask(left.apply(node), depth + 1);
+      leftTask.fork();
+      List<T> rightList = new ListTask(right.apply(node), depth + 1).compute();
+      list.addAll(leftTask.join());
+      list.add(data.apply(node));
+      list.addAll(rightList);
+      return list;
+    }
+  }
+}
@@ -1,5 +1,7 @@
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 public class AwsmTree<T> implements Iterable<T> {
   private AwsmNode<T> parent;
@@ -10,61 +12,31 @@ public class AwsmTree<T> implements Iterable<T> {
 
   public String prefix() {
     StringBuilder sb = new StringBuilder();
-    prefix(parent, sb);
+    forEachPrefix(item -> {
+      sb.append(item);
+      sb.append(" ");
+    });
     return sb.toString().trim();
   }
 
-  private void prefix(AwsmNode<T> node, StringBuilder sb) {
-    sb.append(node);
-    sb.append(" ");
-
-    if (node.left != null) {
-      prefix(node.left, sb);
-    }
-
-    if (node.right != null) {
-      prefix(node.right, sb);
-    }
-  }
-
   public String infix() {
     StringBuilder sb = new StringBuilder();
-    infix(parent, sb);
+    forEachInfix(item -> {
+      sb.append(item);
+      sb.append(" ");
+    });
     return sb.toString().trim();
   }
 
-  private void infix(AwsmNode<T> node, StringBuilder sb) {
-    if (node.left != null) {
-      infix(node.left, sb);
-    }
-
-    sb.append(node);
-    sb.append(" ");
-
-    if (node.right != null) {
-      infix(node.right, sb);
-    }
-  }
-
   public String postfix() {
     StringBuilder sb = new StringBuilder();
-    postfix(parent, sb);
+    forEachPostfix(item -> {
+      sb.append(item);
+      sb.append(" ");
+    });
     return sb.toString().trim();
   }
 
-  private void postfix(AwsmNode<T> node, StringBuilder sb) {
-    if (node.left != null) {
-      postfix(node.left, sb);
-    }
-
-    if (node.right != null) {
-      postfix(node.right, sb);
-    }
-
-    sb.append(node);
-    sb.append(" ");
-  }
-
   public String prefixStack() {
     StringBuilder sb = new StringBuilder();
 
@@ -113,58 +85,350 @@ public class AwsmTree<T> implements Iterable<T> {
 
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    toString(parent, sb, 0);
+    walker().walk(true, (node, level) -> {
+      for (int i = 0; i < level; i++) {
+        sb.append("  ");
+      }
+      sb.append(node);
+      sb.append("\n");
+    });
     return sb.toString().trim();
   }
 
-  private void toString(AwsmNode<T> node, StringBuilder sb, int level) {
-    for (int i = 0; i < level; i++) {
-      sb.append("  ");
+  /**
+   * Passes every item to action in prefix order using Morris traversal, which
+   * needs no stack at all, so it works on trees of any depth.
+   *
+   * The tree is changed while the walk is going on and put back when it ends,
+   * so it must not be read or changed by anyone else in the meantime, including
+   * action itself, iterators and parallel traversals. Everything else in this
+   * class walks with a stack and leaves the tree alone.
+   */
+  public void forEachPrefixMorris(Consumer<? super T> action) {
+    walker().morris(true, node -> action.accept(node.data));
+  }
+
+  /**
+   * Passes every item to action in infix order using Morris traversal. The
+   * same rules as forEachPrefixMorris apply.
+   */
+  public void forEachInfixMorris(Consumer<? super T> action) {
+    walker().morris(false, node -> action.accept(node.data));
+  }
+
+  private AwsmTreeWalk<AwsmNode<T>> walker() {
+    return new AwsmTreeWalk<>(parent, node -> node.left, node -> node.right, (node, right) -> node.right = right);
+  }
+
+  /**
+   * Passes every item to action in prefix order (node, left, right). Uses an
+   * explicit stack instead of recursion and builds no intermediate collection.
+   */
+  public void forEachPrefix(Consumer<? super T> action) {
+    AwsmNodeBuffer<T> stack = new AwsmNodeBuffer<T>();
+    if (parent != null) {
+      stack.push(parent);
     }
-    sb.append(node);
-    sb.append("\n");
+    while (!stack.isEmpty()) {
+      AwsmNode<T> current = stack.pop();
+      action.accept(current.data);
+      // right first, so left comes off the stack first
+      if (current.right != null) {
+        stack.push(current.right);
+      }
+      if (current.left != null) {
+        stack.push(current.left);
+      }
+    }
+  }
 
-    if (node.left != null) {
-      toString(node.left, sb, level + 1);
+  /**
+   * Passes every item to action in infix order (left, node, right).
+   */
+  public void forEachInfix(Consumer<? super T> action) {
+    AwsmNodeBuffer<T> stack = new AwsmNodeBuffer<T>();
+    AwsmNode<T> current = parent;
+    while (current != null || !stack.isEmpty()) {
+      while (current != null) {
+        stack.push(current);
+        current = current.left;
+      }
+      current = stack.pop();
+      action.accept(current.data);
+      current = current.right;
     }
+  }
 
-    if (node.right != null) {
-      toString(node.right, sb, level + 1);
+  /**
+   * Passes every item to action in postfix order (left, right, node).
+   */
+  public void forEachPostfix(Consumer<? super T> action) {
+    AwsmNodeBuffer<T> stack = new AwsmNodeBuffer<T>();
+    AwsmNode<T> current = parent;
+    AwsmNode<T> lastVisited = null;
+    while (current != null || !stack.isEmpty()) {
+      if (current != null) {
+        stack.push(current);
+        current = current.left;
+      } else {
+        AwsmNode<T> top = stack.peek();
+        if (top.right != null && top.right != lastVisited) {
+          // the right subtree has not been done yet
+          current = top.right;
+        } else {
+          action.accept(top.data);
+          lastVisited = stack.pop();
+        }
+      }
+    }
+  }
+
+  /**
+   * Passes every item to action level by level, left to right, the same order
+   * as breadthFirst.
+   */
+  public void forEachLevel(Consumer<? super T> action) {
+    AwsmNodeBuffer<T> queue = new AwsmNodeBuffer<T>();
+    if (parent != null) {
+      queue.push(parent);
+    }
+    while (!queue.isEmpty()) {
+      AwsmNode<T> current = queue.pollFirst();
+      action.accept(current.data);
+      if (current.left != null) {
+        queue.push(current.left);
+      }
+      if (current.right != null) {
+        queue.push(current.right);
+      }
     }
   }
 
+  public Iterator<T> prefixIterator() {
+    return new AwsmTreeIterator<T>(parent);
+  }
+
+  public Iterator<T> infixIterator() {
+    return new AwsmInfixIterator<T>(parent);
+  }
+
+  public Iterator<T> postfixIterator() {
+    return new AwsmPostfixIterator<T>(parent);
+  }
+
+  public Iterator<T> levelIterator() {
+    return new AwsmLevelIterator<T>(parent);
+  }
+
+  /**
+   * Returns a fork/join traversal over this tree that forks the top
+   * parallelDepth levels and walks everything below them sequentially.
+   */
+  public AwsmParallelTraversal<AwsmNode<T>, T> parallel(int parallelDepth) {
+    return new AwsmParallelTraversal<>(parent, node -> node.left, node -> node.right, node -> node.data,
+        parallelDepth);
+  }
+
+  public AwsmParallelTraversal<AwsmNode<T>, T> parallel() {
+    return parallel(AwsmParallelTraversal.defaultParallelDepth());
+  }
+
   @Override
   public Iterator<T> iterator() {
     return new AwsmTreeIterator<T>(parent);
   }
 
-  public class AwsmTreeIterator<Q> implements Iterator<Q> {
+  /**
+   * Iterates in prefix order. Nodes are only looked at as the iteration
+   * reaches them, so at most one path's worth of right children is held.
+   */
+  public static class AwsmTreeIterator<Q> implements Iterator<Q> {
 
-    private LinkedList<AwsmNode<Q>> list;
+    private AwsmNodeBuffer<Q> stack = new AwsmNodeBuffer<>();
 
     public AwsmTreeIterator(AwsmNode<Q> parent) {
-      list = new LinkedList<>();
-      prefixTraverse(parent);
+      if (parent != null) {
+        stack.push(parent);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
     }
 
-    public void prefixTraverse(AwsmNode<Q> node) {
-      list.add(node);
-      if (node.left != null) {
-        prefixTraverse(node.left);
+    @Override
+    public Q next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
       }
-      if (node.right != null) {
-        prefixTraverse(node.right);
+      AwsmNode<Q> current = stack.pop();
+      if (current.right != null) {
+        stack.push(current.right);
+      }
+      if (current.left != null) {
+        stack.push(current.left);
+      }
+      return current.data;
+    }
+  }
+
+  public static class AwsmInfixIterator<Q> implements Iterator<Q> {
+
+    private AwsmNodeBuffer<Q> stack = new AwsmNodeBuffer<>();
+
+    public AwsmInfixIterator(AwsmNode<Q> parent) {
+      pushLeft(parent);
+    }
+
+    private void pushLeft(AwsmNode<Q> node) {
+      while (node != null) {
+        stack.push(node);
+        node = node.left;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
+    }
+
+    @Override
+    public Q next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      AwsmNode<Q> current = stack.pop();
+      pushLeft(current.right);
+      return current.data;
+    }
+  }
+
+  public static class AwsmPostfixIterator<Q> implements Iterator<Q> {
+
+    private AwsmNodeBuffer<Q> stack = new AwsmNodeBuffer<>();
+
+    public AwsmPostfixIterator(AwsmNode<Q> parent) {
+      descend(parent);
+    }
+
+    // go down to the first node in postfix order under node, preferring left
+    private void descend(AwsmNode<Q> node) {
+      while (node != null) {
+        stack.push(node);
+        node = node.left != null ? node.left : node.right;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !stack.isEmpty();
+    }
+
+    @Override
+    public Q next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      AwsmNode<Q> current = stack.pop();
+      if (!stack.isEmpty()) {
+        AwsmNode<Q> up = stack.peek();
+        // coming back up from the left: the right subtree is next
+        if (up.left == current) {
+          descend(up.right);
+        }
+      }
+      return current.data;
+    }
+  }
+
+  public static class AwsmLevelIterator<Q> implements Iterator<Q> {
+
+    private AwsmNodeBuffer<Q> queue = new AwsmNodeBuffer<>();
+
+    public AwsmLevelIterator(AwsmNode<Q> parent) {
+      if (parent != null) {
+        queue.push(parent);
       }
     }
 
     @Override
     public boolean hasNext() {
-      return !list.isEmpty();
+      return !queue.isEmpty();
     }
 
     @Override
     public Q next() {
-      return list.removeFirst().data;
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      AwsmNode<Q> current = queue.pollFirst();
+      if (current.left != null) {
+        queue.push(current.left);
+      }
+      if (current.right != null) {
+        queue.push(current.right);
+      }
+      return current.data;
+    }
+  }
+
+  /**
+   * A growable ring of nodes that works as a stack (push and pop at the back)
+   * or a queue (push at the back, pollFirst at the front).
+   */
+  private static class AwsmNodeBuffer<Q> {
+    private AwsmNode<Q>[] nodes;
+    private int front;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public AwsmNodeBuffer() {
+      nodes = (AwsmNode<Q>[]) new AwsmNode[16];
+      front = 0;
+      size = 0;
+    }
+
+    public void push(AwsmNode<Q> node) {
+      if (size == nodes.length) {
+        expand();
+      }
+      nodes[(front + size) & (nodes.length - 1)] = node;
+      size++;
+    }
+
+    public AwsmNode<Q> pop() {
+      size--;
+      int back = (front + size) & (nodes.length - 1);
+      AwsmNode<Q> node = nodes[back];
+      nodes[back] = null;
+      return node;
+    }
+
+    public AwsmNode<Q> peek() {
+      return nodes[(front + size - 1) & (nodes.length - 1)];
+    }
+
+    public AwsmNode<Q> pollFirst() {
+      AwsmNode<Q> node = nodes[front];
+      nodes[front] = null;
+      front = (front + 1) & (nodes.length - 1);
+      size--;
+      return node;
+    }
+
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expand() {
+      AwsmNode<Q>[] newNodes = (AwsmNode<Q>[]) new AwsmNode[nodes.length * 2];
+      int firstRun = nodes.length - front;
+      System.arraycopy(nodes, front, newNodes, 0, firstRun);
+      System.arraycopy(nodes, 0, newNodes, firstRun, front);
+      nodes = newNodes;
+      front = 0;
     }
   }
 
@@ -209,5 +473,20 @@ public class AwsmTree<T> implements Iterable<T> {
     for (String element : tree) {
       System.out.println(element);
     }
+
+    tree.forEachPostfix(element -> System.out.print(element + " "));
+    System.out.println(); // g1 g2 c1 g3 g4 c2 p1
+
+    // a chain this deep would overflow the call stack if walked recursively
+    AwsmNode<Integer> deep = null;
+    for (int i = 0; i < 1_000_000; i++) {
+      deep = new AwsmNode<>(i, deep, null);
+    }
+    long[] total = new long[1];
+    new AwsmTree<>(deep).forEachInfixMorris(item -> total[0] += item);
+    System.out.println(total[0]); // 499999500000
+
+    System.out.println(tree.parallel().count()); // 7
+    System.out.println(tree.parallel().mapReduce(String::toUpperCase, String::concat, "")); // G1C1G2P1G3C2G4
   }
 }
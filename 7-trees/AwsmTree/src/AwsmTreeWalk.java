@@ -0,0 +1,123 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sequential walks over a binary tree that need no recursion, shared by
+ * AwsmTree and AwsmBST. N is the node type; left and right read a node's
+ * children and setRight changes its right child, which only morris uses.
+ */
+class AwsmTreeWalk<N> {
+
+  private final N root;
+  private final UnaryOperator<N> left;
+  private final UnaryOperator<N> right;
+  private final BiConsumer<N, N> setRight;
+
+  AwsmTreeWalk(N root, UnaryOperator<N> left, UnaryOperator<N> right, BiConsumer<N, N> setRight) {
+    this.root = root;
+    this.left = left;
+    this.right = right;
+    this.setRight = setRight;
+  }
+
+  /**
+   * Walks the tree in prefix or infix order in O(1) extra space, passing each
+   * node to visitor.
+   *
+   * Before going down into a left subtree, the right pointer of the last node
+   * in that subtree (the predecessor) is pointed back at the current node, so
+   * the walk can climb back up without a stack. The second time a node is
+   * reached through such a thread, the thread is removed again.
+   *
+   * If visitor throws, the rest of the walk still runs without it, so every
+   * thread is removed, and then the exception goes on unchanged.
+   */
+  void morris(boolean prefixOrder, Consumer<? super N> visitor) {
+    N current = root;
+    try {
+      while (current != null) {
+        current = step(current, prefixOrder, visitor);
+      }
+    } finally {
+      // only left non-null when visitor threw
+      while (current != null) {
+        current = step(current, prefixOrder, null);
+      }
+    }
+  }
+
+  // one move of morris; current is only left behind if visitor throws, and
+  // the walk can then go on from it
+  private N step(N current, boolean prefixOrder, Consumer<? super N> visitor) {
+    N next = left.apply(current);
+    if (next == null) {
+      visit(visitor, current);
+      return right.apply(current);
+    }
+
+    N predecessor = next;
+    while (right.apply(predecessor) != null && right.apply(predecessor) != current) {
+      predecessor = right.apply(predecessor);
+    }
+
+    if (right.apply(predecessor) == null) {
+      // first time here: thread the way back and go left
+      if (prefixOrder) {
+        visit(visitor, current);
+      }
+      setRight.accept(predecessor, current);
+      return next;
+    }
+    // back through the thread: the left subtree is done
+    if (!prefixOrder) {
+      visit(visitor, current);
+    }
+    setRight.accept(predecessor, null);
+    return right.apply(current);
+  }
+
+  private void visit(Consumer<? super N> visitor, N node) {
+    if (visitor != null) {
+      visitor.accept(node);
+    }
+  }
+
+  /**
+   * Walks the tree in prefix or infix order with an explicit stack, passing
+   * each node and its depth to visitor. Unlike morris it does not change the
+   * tree, so it can run next to other readers.
+   */
+  void walk(boolean prefixOrder, ObjIntConsumer<? super N> visitor) {
+    ArrayDeque<N> stack = new ArrayDeque<>();
+    // levels[i] is the depth of the i-th node on the stack
+    int[] levels = new int[16];
+    int depth = 0;
+    N current = root;
+    int level = 0;
+    while (current != null || depth > 0) {
+      while (current != null) {
+        if (prefixOrder) {
+          visitor.accept(current, level);
+        }
+        if (depth == levels.length) {
+          levels = Arrays.copyOf(levels, depth * 2);
+        }
+        levels[depth++] = level;
+        stack.push(current);
+        current = left.apply(current);
+        level++;
+      }
+      current = stack.pop();
+      level = levels[--depth];
+      if (!prefixOrder) {
+        visitor.accept(current, level);
+      }
+      current = right.apply(current);
+      level++;
+    }
+  }
+}
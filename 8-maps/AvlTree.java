@@ -1,3 +1,9 @@
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * Implements an AVL tree. Note that all "matching" is based on the compareTo
  * method.
@@ -10,6 +16,7 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>> {
    */
   public AvlTree() {
     root = null;
+    size = 0;
   }
 
   /**
@@ -55,8 +62,10 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>> {
     {
       t.element = findMin(t.right).element;
       t.right = remove(t.element, t.right);
-    } else
+    } else {
       t = (t.left != null) ? t.left : t.right;
+      size--;
+    }
     return balance(t);
   }
 
@@ -104,11 +113,72 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>> {
     return get(x, root);
   }
 
+  /**
+   * Passes every item from low (inclusive) to high (exclusive) to action, in
+   * sorted order. Subtrees entirely outside the range are skipped.
+   * 
+   * @param low
+   *          the smallest item to visit.
+   * @param high
+   *          the first item too large to visit.
+   */
+  public void forEachInRange(AnyType low, AnyType high, Consumer<? super AnyType> action) {
+    forEachInRange(low, high, action, root);
+  }
+
+  /**
+   * Replace the contents of the tree with count items taken from items, which
+   * must come in strictly increasing order. The tree is built directly in
+   * balanced shape in O(count), without any rotations.
+   * 
+   * @param items
+   *          yields at least count items in increasing order.
+   * @param count
+   *          the number of items to take.
+   */
+  public void buildFromSorted(Iterator<? extends AnyType> items, int count) {
+    makeEmpty();
+    root = buildFromSorted(items, count, new AvlNode<AnyType>(null));
+    size = count;
+  }
+
+  /**
+   * Internal method to build a subtree of count items in order: first the
+   * left half, then the middle item, then the right half.
+   * 
+   * @param last
+   *          holds the most recent item taken, to check the order.
+   * @return the root of the subtree.
+   */
+  private AvlNode<AnyType> buildFromSorted(Iterator<? extends AnyType> items, int count, AvlNode<AnyType> last) {
+    if (count == 0)
+      return null;
+
+    int leftCount = (count - 1) / 2;
+    AvlNode<AnyType> left = buildFromSorted(items, leftCount, last);
+    AnyType x = items.next();
+    if (last.element != null && last.element.compareTo(x) >= 0)
+      throw new IllegalArgumentException("items are not in increasing order: " + last.element + ", " + x);
+    last.element = x;
+    AvlNode<AnyType> t = new AvlNode<>(x, left, null);
+    t.right = buildFromSorted(items, count - 1 - leftCount, last);
+    t.height = Math.max(height(t.left), height(t.right)) + 1;
+    return t;
+  }
+
   /**
    * Make the tree logically empty.
    */
   public void makeEmpty() {
     root = null;
+    size = 0;
+  }
+
+  /**
+   * Returns the number of items in the tree.
+   */
+  public int size() {
+    return size;
   }
 
   /**
@@ -180,8 +250,10 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>> {
    * @return the new root of the subtree.
    */
   private AvlNode<AnyType> insert(AnyType x, AvlNode<AnyType> t) {
-    if (t == null)
+    if (t == null) {
+      size++;
       return new AvlNode<>(x, null, null);
+    }
 
     int compareResult = x.compareTo(t.element);
 
@@ -277,6 +349,26 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>> {
     return null; // No match
   }
 
+  /**
+   * Internal method to visit the items of a subtree that fall in [low, high).
+   * 
+   * @param t
+   *          the node that roots the subtree.
+   */
+  private void forEachInRange(AnyType low, AnyType high, Consumer<? super AnyType> action, AvlNode<AnyType> t) {
+    if (t == null)
+      return;
+
+    boolean aboveLow = low.compareTo(t.element) <= 0;
+    boolean belowHigh = t.element.compareTo(high) < 0;
+    if (aboveLow)
+      forEachInRange(low, high, action, t.left);
+    if (aboveLow && belowHigh)
+      action.accept(t.element);
+    if (belowHigh)
+      forEachInRange(low, high, action, t.right);
+  }
+
   /**
    * Internal method to print a subtree in sorted order.
    * 
@@ -363,9 +455,35 @@ public class AvlTree<AnyType extends Comparable<? super AnyType>> {
     int height; // Height
   }
 
+  /**
+   * Returns a spliterator over the items in sorted order. It splits at subtree
+   * boundaries, so parallel streams over a balanced tree get close to even
+   * halves.
+   */
+  public Spliterator<AnyType> spliterator() {
+    return new InOrderSpliterator<>(root, size, t -> t.left, t -> t.right, t -> t.element);
+  }
+
+  /**
+   * Returns a sequential stream over the items in sorted order.
+   */
+  public Stream<AnyType> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /**
+   * Returns a parallel stream over the items in sorted order.
+   */
+  public Stream<AnyType> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
+
   /** The tree root. */
   private AvlNode<AnyType> root;
 
+  /** The number of items in the tree. */
+  private int size;
+
   // Test program
   @SuppressWarnings("unused")
   public static void main(String[] args) {
@@ -0,0 +1,67 @@
+/**
+ * Timing shared by the benchmarks. A benchmark runs all of its candidates once
+ * per round, one after another, so none of them has the JIT to itself. The
+ * first rounds only warm up the JIT; the last one is reported.
+ *
+ * A round or run may throw a checked exception E, such as an IOException,
+ * which is passed on to the caller.
+ */
+public class Benchmark {
+
+  public static final int NAME_WIDTH = 28;
+
+  // every result is added here, so the JIT cannot drop the work even when
+  // nothing is printed
+  private static long sink;
+
+  public interface Round<E extends Exception> {
+    void run(boolean report) throws E;
+  }
+
+  public interface Run<E extends Exception> {
+    long run() throws E;
+  }
+
+  /**
+   * Calls round count times, with report set on the last call only.
+   */
+  public static <E extends Exception> void rounds(int count, Round<E> round) throws E {
+    for (int i = 0; i < count; i++) {
+      round.run(i == count - 1);
+    }
+  }
+
+  /**
+   * Times run and, if report is set, prints name, the time and what run
+   * returned.
+   */
+  public static <E extends Exception> long time(String name, boolean report, Run<E> run) throws E {
+    long start = System.nanoTime();
+    long result = run.run();
+    long elapsed = System.nanoTime() - start;
+    sink += result;
+    if (report) {
+      System.out.printf("%-" + NAME_WIDTH + "s %8.1f ms (checksum %d)%n", name, elapsed / 1e6, result);
+    }
+    return elapsed;
+  }
+
+  /**
+   * How long run takes, in ns, for benchmarks that print their own figures.
+   */
+  public static <E extends Exception> long nanos(Run<E> run) throws E {
+    long start = System.nanoTime();
+    long result = run.run();
+    long elapsed = System.nanoTime() - start;
+    sink += result;
+    return elapsed;
+  }
+
+  /**
+   * The value fraction of the way through sorted, e.g. 0.99 for the 99th
+   * percentile.
+   */
+  public static long percentile(long[] sorted, double fraction) {
+    return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+  }
+}
@@ -0,0 +1,115 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A set that can answer "definitely not there" or "maybe there".
+ *
+ * Items are added as 64-bit hashes. Each hash sets hashCount bits of a long[]
+ * bitset, chosen by double hashing: bit i is h1 + i * h2, where h1 and h2 are
+ * the low and high halves of the hash. A lookup that finds any of its bits
+ * clear knows the item was never added. If all of them are set, the item was
+ * added or another item happened to set the same bits; with the sizes picked
+ * by the constructor that happens for about falsePositiveRate of lookups.
+ */
+public class BloomFilter {
+
+  private final long[] words;
+  private final long bitCount;
+  private final int hashCount;
+
+  /**
+   * Sizes the filter so that after expectedItems adds, about
+   * falsePositiveRate of lookups for missing items answer "maybe".
+   */
+  public BloomFilter(long expectedItems, double falsePositiveRate) {
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+    }
+    long items = Math.max(1, expectedItems);
+    long bits = (long) Math.ceil(-items * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    this.words = new long[(int) Math.max(1, (bits + 63) / 64)];
+    this.bitCount = (long) words.length * 64;
+    this.hashCount = (int) Math.max(1, Math.round((double) bitCount / items * Math.log(2)));
+  }
+
+  /**
+   * Wraps bits saved earlier with words().
+   */
+  public BloomFilter(long[] words, int hashCount) {
+    this.words = words;
+    this.bitCount = (long) words.length * 64;
+    this.hashCount = hashCount;
+  }
+
+  public void add(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+      words[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  public boolean mightContain(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+      if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The bitset itself, for saving the filter. Changing it changes the filter.
+   */
+  public long[] words() {
+    return words;
+  }
+
+  public int hashCount() {
+    return hashCount;
+  }
+
+  /**
+   * Hashes length bytes of buffer starting at offset with 64-bit FNV-1a, then
+   * mixes the result so that both halves are usable for double hashing.
+   */
+  public static long hash(ByteBuffer buffer, int offset, int length) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < length; i++) {
+      hash ^= buffer.get(offset + i) & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  /**
+   * Spreads the bits of a hash that is weak in some of its bits, such as a
+   * hashCode, over all 64 bits.
+   */
+  public static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  public static void main(String[] args) {
+    BloomFilter filter = new BloomFilter(100000, 0.01);
+    for (long i = 0; i < 100000; i++) {
+      filter.add(mix(i));
+    }
+    int falsePositives = 0;
+    for (long i = 100000; i < 200000; i++) {
+      if (filter.mightContain(mix(i))) {
+        falsePositives++;
+      }
+    }
+    System.out.println(filter.mightContain(mix(42))); // true
+    System.out.println(falsePositives < 1500); // true
+  }
+}
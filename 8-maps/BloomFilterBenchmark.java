@@ -0,0 +1,56 @@
+import java.util.Random;
+
+/**
+ * Rough timing of get on a TreeMap and a SeparateChainingMapGrow of n keys,
+ * each with and without a BloomFilteredMap in front, for query mixes from all
+ * misses to all hits. java BloomFilterBenchmark 1000000
+ */
+public class BloomFilterBenchmark {
+
+  public static final int ROUNDS = 5;
+  public static final int LOOKUPS = 5000000;
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Random random = new Random(42);
+
+    TreeMap<Integer, Integer> treeMap = new TreeMap<>();
+    BloomFilteredMap<Integer, Integer> filteredTreeMap = new BloomFilteredMap<>(new TreeMap<Integer, Integer>(), n,
+        0.01);
+    SeparateChainingMapGrow<Integer, Integer> chainingMap = new SeparateChainingMapGrow<>();
+    BloomFilteredMap<Integer, Integer> filteredChainingMap = new BloomFilteredMap<>(
+        new SeparateChainingMapGrow<Integer, Integer>(), n, 0.01);
+    Integer[] keys = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      // even keys only, so a key plus one is never there
+      keys[i] = random.nextInt(Integer.MAX_VALUE / 2) * 2;
+      treeMap.put(keys[i], i);
+      filteredTreeMap.put(keys[i], i);
+      chainingMap.put(keys[i], i);
+      filteredChainingMap.put(keys[i], i);
+    }
+
+    for (double missShare : new double[] { 1.0, 0.9, 0.5, 0.0 }) {
+      Integer[] queries = new Integer[LOOKUPS];
+      for (int q = 0; q < LOOKUPS; q++) {
+        Integer key = keys[random.nextInt(n)];
+        queries[q] = random.nextDouble() < missShare ? key + 1 : key;
+      }
+      System.out.printf("%3.0f%% misses%n", missShare * 100);
+      Benchmark.rounds(ROUNDS, report -> {
+        Benchmark.time("  TreeMap", report, () -> hits(treeMap, queries));
+        Benchmark.time("  filtered TreeMap", report, () -> hits(filteredTreeMap, queries));
+        Benchmark.time("  SeparateChaining", report, () -> hits(chainingMap, queries));
+        Benchmark.time("  filtered SeparateChaining", report, () -> hits(filteredChainingMap, queries));
+      });
+    }
+  }
+
+  private static long hits(Map<Integer, Integer> map, Integer[] queries) {
+    long hits = 0;
+    for (Integer query : queries) {
+      hits += map.get(query) != null ? 1 : 0;
+    }
+    return hits;
+  }
+}
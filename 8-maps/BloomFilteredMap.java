@@ -0,0 +1,104 @@
+/**
+ * Puts a Bloom filter in front of any Map, so that a get for a key that is not
+ * there usually costs a few hashes instead of a lookup in the map.
+ *
+ * With removable set, the filter is a CountingBloomFilter and remove takes
+ * keys out of it again. Otherwise it is a plain BloomFilter, a quarter of the
+ * size; removed keys then stay in it, so gets for them still go to the map,
+ * and a map with a lot of removes gets less out of the filter over time.
+ *
+ * The filter has to see every key in the map, so the map must be empty when it
+ * is wrapped and only be changed through the wrapper afterwards. Keys that are
+ * equal must have the same hashCode, and for TreeMap, keys that compare as
+ * equal must too.
+ */
+public class BloomFilteredMap<K, V> implements Map<K, V> {
+
+  private final Map<K, V> map;
+  // exactly one of the two is set
+  private final BloomFilter filter;
+  private final CountingBloomFilter countingFilter;
+  private long skipped;
+
+  /**
+   * Wraps an empty map with a filter sized for expectedKeys keys.
+   */
+  public BloomFilteredMap(Map<K, V> map, long expectedKeys, double falsePositiveRate, boolean removable) {
+    this.map = map;
+    this.filter = removable ? null : new BloomFilter(expectedKeys, falsePositiveRate);
+    this.countingFilter = removable ? new CountingBloomFilter(expectedKeys, falsePositiveRate) : null;
+  }
+
+  public BloomFilteredMap(Map<K, V> map, long expectedKeys, double falsePositiveRate) {
+    this(map, expectedKeys, falsePositiveRate, true);
+  }
+
+  @Override
+  public void put(K key, V value) {
+    long hash = hash(key);
+    if (filter != null) {
+      filter.add(hash);
+    } else if (!countingFilter.mightContain(hash) || map.get(key) == null) {
+      // a key already in the map is counted once, so one remove clears it
+      countingFilter.add(hash);
+    }
+    map.put(key, value);
+  }
+
+  @Override
+  public V get(K key) {
+    if (!mightContain(hash(key))) {
+      skipped++;
+      return null;
+    }
+    return map.get(key);
+  }
+
+  @Override
+  public V remove(K key) {
+    long hash = hash(key);
+    if (!mightContain(hash)) {
+      skipped++;
+      return null;
+    }
+    V value = map.remove(key);
+    if (value != null && countingFilter != null) {
+      countingFilter.remove(hash);
+    }
+    return value;
+  }
+
+  private boolean mightContain(long hash) {
+    return filter != null ? filter.mightContain(hash) : countingFilter.mightContain(hash);
+  }
+
+  /**
+   * How many lookups the filter answered without going to the map.
+   */
+  public long skippedCount() {
+    return skipped;
+  }
+
+  private static long hash(Object key) {
+    return BloomFilter.mix(key.hashCode());
+  }
+
+  public static void main(String[] args) {
+    BloomFilteredMap<Integer, String> map = new BloomFilteredMap<>(new TreeMap<Integer, String>(), 1000, 0.01);
+    for (int i = 0; i < 1000; i += 2) {
+      map.put(i, "v" + i);
+    }
+    int found = 0;
+    for (int i = 0; i < 1000; i++) {
+      found += map.get(i) != null ? 1 : 0;
+    }
+    System.out.println(found); // 500
+    System.out.println(map.skippedCount() > 450); // true
+    System.out.println(map.remove(4) + " " + map.get(4)); // v4 null
+
+    BloomFilteredMap<Integer, String> plain = new BloomFilteredMap<>(new TreeMap<Integer, String>(), 1000, 0.01,
+        false);
+    plain.put(4, "v4");
+    System.out.println(plain.remove(4) + " " + plain.get(4) + " " + plain.skippedCount()); // v4 null 0
+  }
+}
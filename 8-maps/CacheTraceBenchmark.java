@@ -0,0 +1,112 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Replays a recorded trace of cache keys against LruCache and TinyLfuCache
+ * and prints the hit rate and speed of each. A miss puts the key, as a
+ * read-through cache would.
+ *
+ * A trace is a text file with one request per line; the first word of the line
+ * is the key. Numeric keys are used as they are, other words are numbered in
+ * order of first appearance. Without a trace file, a synthetic one is written
+ * to a temporary file first: Zipf-distributed requests for 100000 keys, with a
+ * scan over 50000 keys never asked for before after every 200000 requests.
+ * java CacheTraceBenchmark [trace file] [capacity]
+ */
+public class CacheTraceBenchmark {
+
+  public static final int ROUNDS = 3;
+
+  public static void main(String[] args) throws IOException {
+    Path file = args.length > 0 ? Paths.get(args[0]) : writeSyntheticTrace();
+    int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+    long[] trace = readTrace(file);
+    System.out.println(trace.length + " requests from " + file + ", capacity " + capacity);
+
+    Benchmark.rounds(ROUNDS, report -> {
+      LruCache<Long, Long> lru = new LruCache<>(capacity);
+      long nanos = Benchmark.nanos(() -> {
+        for (long key : trace) {
+          if (lru.get(key) == null) {
+            lru.put(key, key);
+          }
+        }
+        return lru.size();
+      });
+      if (report) {
+        print("LruCache", nanos, lru.hitRate(), trace.length);
+      }
+
+      TinyLfuCache<Long, Long> tinyLfu = new TinyLfuCache<>(capacity);
+      nanos = Benchmark.nanos(() -> {
+        for (long key : trace) {
+          if (tinyLfu.get(key) == null) {
+            tinyLfu.put(key, key);
+          }
+        }
+        return tinyLfu.size();
+      });
+      if (report) {
+        print("TinyLfuCache", nanos, tinyLfu.hitRate(), trace.length);
+      }
+    });
+  }
+
+  private static long[] readTrace(Path file) throws IOException {
+    long[] trace = new long[1024];
+    int length = 0;
+    HashMap<String, Long> names = new HashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(file)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] words = line.trim().split("\\s+", 2);
+        if (words[0].isEmpty()) {
+          continue;
+        }
+        long key;
+        try {
+          key = Long.parseLong(words[0]);
+        } catch (NumberFormatException e) {
+          Long known = names.get(words[0]);
+          key = known != null ? known : Long.MIN_VALUE + names.size();
+          names.putIfAbsent(words[0], key);
+        }
+        if (length == trace.length) {
+          trace = Arrays.copyOf(trace, length * 2);
+        }
+        trace[length++] = key;
+      }
+    }
+    return Arrays.copyOf(trace, length);
+  }
+
+  private static Path writeSyntheticTrace() throws IOException {
+    Path file = Files.createTempFile("cache-trace", ".txt");
+    Zipf zipf = new Zipf(100000, 0.8, 42);
+    long scanKey = 1000000;
+    try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+      for (int i = 1; i <= 2000000; i++) {
+        writer.write(Integer.toString(zipf.next()));
+        writer.newLine();
+        if (i % 200000 == 0) {
+          for (int j = 0; j < 50000; j++) {
+            writer.write(Long.toString(scanKey++));
+            writer.newLine();
+          }
+        }
+      }
+    }
+    return file;
+  }
+
+  private static void print(String name, long nanos, double hitRate, int requests) {
+    double millis = nanos / 1e6;
+    System.out.printf("%-13s hit rate %.4f %8.1f ms %6.1f Mops/s%n", name, hitRate, millis, requests / millis / 1e3);
+  }
+}
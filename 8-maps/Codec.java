@@ -0,0 +1,143 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns values of type T into a fixed number of bytes and back, so they can be
+ * kept outside the Java heap. Every value takes exactly width() bytes.
+ */
+public interface Codec<T> {
+
+  /**
+   * The number of bytes every value takes.
+   */
+  public int width();
+
+  /**
+   * Writes value into buffer at offset, without moving the buffer's position.
+   */
+  public void write(ByteBuffer buffer, int offset, T value);
+
+  /**
+   * Reads the value stored in buffer at offset.
+   */
+  public T read(ByteBuffer buffer, int offset);
+
+  /**
+   * Compares key with the value stored at offset, the same way
+   * key.compareTo(read(buffer, offset)) would. Codecs for numbers override this
+   * to compare without decoding.
+   */
+  @SuppressWarnings("unchecked")
+  public default int compare(T key, ByteBuffer buffer, int offset) {
+    return ((Comparable<? super T>) key).compareTo(read(buffer, offset));
+  }
+
+  public static final Codec<Integer> INT = new Codec<Integer>() {
+    @Override
+    public int width() {
+      return Integer.BYTES;
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, int offset, Integer value) {
+      buffer.putInt(offset, value);
+    }
+
+    @Override
+    public Integer read(ByteBuffer buffer, int offset) {
+      return buffer.getInt(offset);
+    }
+
+    @Override
+    public int compare(Integer key, ByteBuffer buffer, int offset) {
+      return Integer.compare(key, buffer.getInt(offset));
+    }
+  };
+
+  public static final Codec<Long> LONG = new Codec<Long>() {
+    @Override
+    public int width() {
+      return Long.BYTES;
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, int offset, Long value) {
+      buffer.putLong(offset, value);
+    }
+
+    @Override
+    public Long read(ByteBuffer buffer, int offset) {
+      return buffer.getLong(offset);
+    }
+
+    @Override
+    public int compare(Long key, ByteBuffer buffer, int offset) {
+      return Long.compare(key, buffer.getLong(offset));
+    }
+  };
+
+  public static final Codec<Double> DOUBLE = new Codec<Double>() {
+    @Override
+    public int width() {
+      return Double.BYTES;
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, int offset, Double value) {
+      buffer.putDouble(offset, value);
+    }
+
+    @Override
+    public Double read(ByteBuffer buffer, int offset) {
+      return buffer.getDouble(offset);
+    }
+
+    @Override
+    public int compare(Double key, ByteBuffer buffer, int offset) {
+      return Double.compare(key, buffer.getDouble(offset));
+    }
+  };
+
+  /**
+   * Stores strings as UTF-8 in maxBytes bytes plus a two-byte length, with the
+   * unused bytes zeroed, so that equal strings encode to equal bytes and
+   * encoded keys can be hashed and compared byte by byte. Writing a longer
+   * string throws an IllegalArgumentException.
+   */
+  public static Codec<String> string(int maxBytes) {
+    if (maxBytes < 0 || maxBytes > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("maxBytes must be between 0 and " + Short.MAX_VALUE + ": " + maxBytes);
+    }
+    return new Codec<String>() {
+      @Override
+      public int width() {
+        return Short.BYTES + maxBytes;
+      }
+
+      @Override
+      public void write(ByteBuffer buffer, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+          throw new IllegalArgumentException("string is " + bytes.length + " bytes, at most " + maxBytes + " fit");
+        }
+        buffer.putShort(offset, (short) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+          buffer.put(offset + Short.BYTES + i, bytes[i]);
+        }
+        // zero the rest, so equal strings always take up equal bytes
+        for (int i = bytes.length; i < maxBytes; i++) {
+          buffer.put(offset + Short.BYTES + i, (byte) 0);
+        }
+      }
+
+      @Override
+      public String read(ByteBuffer buffer, int offset) {
+        byte[] bytes = new byte[buffer.getShort(offset)];
+        for (int i = 0; i < bytes.length; i++) {
+          bytes[i] = buffer.get(offset + Short.BYTES + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+    };
+  }
+}
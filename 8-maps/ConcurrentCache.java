@@ -0,0 +1,857 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A cache that many threads can use at once, with a maximum size, entries that
+ * expire a while after they were written (TTL) or last read (TTI), loading of
+ * missing entries and refreshing of old ones in the background.
+ *
+ * The entries are kept in SEGMENTS hash tables chained like
+ * SeparateChainingMapGrow. A chain is made of immutable links and a segment
+ * publishes its table through a volatile field, so get never locks: it walks
+ * whatever chain it finds, which is always complete. put and remove lock only
+ * their segment and replace the links they change.
+ *
+ * Everything else, the LRU order for the maximum size and the timer wheel for
+ * expiry, belongs to whichever thread holds the eviction lock. Threads do not
+ * wait for it. A write adds a task to the write buffer and a read records its
+ * entry in a small read buffer for its thread, and then they try the lock: the
+ * thread that gets it replays both buffers in one batch, expires what is due
+ * and evicts down to the maximum size. Read buffers are lossy, so under heavy
+ * load some reads do not count towards recency, which only makes the LRU
+ * order a little less exact.
+ *
+ * Expiry is driven by a hierarchical timer wheel: level i has WHEEL_BUCKETS[i]
+ * buckets, each covering 2^WHEEL_SHIFTS[i] nanoseconds, from about 17 ms up to
+ * about 3 days. Every entry sits in the bucket of the time it expires, and
+ * catching up with the clock only looks at the buckets that time has passed,
+ * not at every entry. An entry in a coarse bucket is moved to a finer one when
+ * its bucket comes due. get checks the expiry time itself, so an expired entry
+ * is never returned even before the wheel removes it. Maintenance only runs
+ * when the cache is used; call cleanUp to run it on an idle cache.
+ *
+ * getOrLoad calls the loader once for all threads that miss the same key at
+ * the same time; the others wait for that load. With refreshAfterWrite set, a
+ * getOrLoad that finds an entry older than that returns it at once and loads a
+ * new value on the executor.
+ *
+ * The expiry, refresh, executor and ticker settings should be made before the
+ * cache is used. Keys and values must not be null.
+ */
+public class ConcurrentCache<K, V> implements Map<K, V> {
+
+  public static final int SEGMENTS = 16;
+  public static final int READ_BUFFER_SIZE = 64;
+  public static final int WRITE_BUFFER_MAX = 4096;
+
+  private static final int INITIAL_SEGMENT_TABLE = 16;
+  private static final double MAX_LOAD_FACTOR = 0.75;
+  private static final long NEVER = Long.MAX_VALUE;
+
+  // level i of the wheel has WHEEL_BUCKETS[i] buckets of 2^WHEEL_SHIFTS[i] ns
+  private static final int[] WHEEL_SHIFTS = { 24, 30, 36, 42, 48 };
+  private static final int[] WHEEL_BUCKETS = { 64, 64, 64, 64, 1 };
+
+  private static final int ALIVE = 0;
+  private static final int RETIRED = 1;
+  private static final int DEAD = 2;
+
+  private final long maximumSize;
+  private final Segment<K, V>[] segments;
+  private final ReadBuffer<K, V>[] readBuffers;
+  private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingWrites = new AtomicInteger();
+  private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+  // everything below the lock is only touched while holding it
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final Node<K, V> accessOrder = sentinel();
+  private final Node<K, V>[][] wheel;
+  private long wheelOrigin;
+  private long wheelTime;
+  private long policySize;
+
+  private volatile long expireAfterWriteNanos = NEVER;
+  private volatile long expireAfterAccessNanos = NEVER;
+  private volatile long refreshAfterWriteNanos = NEVER;
+  private volatile Executor executor = ForkJoinPool.commonPool();
+  private volatile LongSupplier ticker = System::nanoTime;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder refreshes = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+
+  private static final class Node<K, V> {
+    @SuppressWarnings("rawtypes")
+    static final AtomicIntegerFieldUpdater<Node> REFRESHING = AtomicIntegerFieldUpdater.newUpdater(Node.class,
+        "refreshing");
+
+    final K key;
+    final int hash;
+    volatile V value;
+    volatile long writeTime;
+    volatile long accessTime;
+    volatile long timeToLive;
+    volatile int state;
+    volatile int refreshing;
+
+    // owned by the eviction lock
+    Node<K, V> accessPrev;
+    Node<K, V> accessNext;
+    Node<K, V> timerPrev;
+    Node<K, V> timerNext;
+    boolean linked;
+
+    Node(K key, int hash, V value, long now, long timeToLive) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+      this.writeTime = now;
+      this.accessTime = now;
+      this.timeToLive = timeToLive;
+    }
+  }
+
+  /**
+   * A link in a hash chain. Links never change, so a reader that found one
+   * can follow the chain while a writer builds a new one.
+   */
+  private static final class Link<K, V> {
+    final Node<K, V> node;
+    final Link<K, V> next;
+
+    Link(Node<K, V> node, Link<K, V> next) {
+      this.node = node;
+      this.next = next;
+    }
+  }
+
+  /**
+   * One hash table. Readers go through table without locking; writers hold the
+   * segment's lock.
+   */
+  @SuppressWarnings("serial")
+  private static final class Segment<K, V> extends ReentrantLock {
+    volatile AtomicReferenceArray<Link<K, V>> table = new AtomicReferenceArray<>(INITIAL_SEGMENT_TABLE);
+    volatile int count;
+
+    Node<K, V> find(Object key, int hash) {
+      AtomicReferenceArray<Link<K, V>> t = table;
+      for (Link<K, V> link = t.get(hash & (t.length() - 1)); link != null; link = link.next) {
+        if (link.node.hash == hash && link.node.key.equals(key)) {
+          return link.node;
+        }
+      }
+      return null;
+    }
+
+    void insert(Node<K, V> node) {
+      AtomicReferenceArray<Link<K, V>> t = table;
+      if (count + 1 > t.length() * MAX_LOAD_FACTOR) {
+        t = upsize();
+      }
+      int index = node.hash & (t.length() - 1);
+      t.set(index, new Link<>(node, t.get(index)));
+      count++;
+    }
+
+    // rebuilds the chain without node; false if node is not in the table
+    boolean unlink(Node<K, V> node) {
+      AtomicReferenceArray<Link<K, V>> t = table;
+      int index = node.hash & (t.length() - 1);
+      Link<K, V> first = t.get(index);
+      Link<K, V> found = first;
+      while (found != null && found.node != node) {
+        found = found.next;
+      }
+      if (found == null) {
+        return false;
+      }
+      Link<K, V> chain = found.next;
+      for (Link<K, V> link = first; link != found; link = link.next) {
+        chain = new Link<>(link.node, chain);
+      }
+      t.set(index, chain);
+      count--;
+      return true;
+    }
+
+    private AtomicReferenceArray<Link<K, V>> upsize() {
+      AtomicReferenceArray<Link<K, V>> old = table;
+      AtomicReferenceArray<Link<K, V>> t = new AtomicReferenceArray<>(old.length() * 2);
+      for (int i = 0; i < old.length(); i++) {
+        for (Link<K, V> link = old.get(i); link != null; link = link.next) {
+          int index = link.node.hash & (t.length() - 1);
+          t.set(index, new Link<>(link.node, t.get(index)));
+        }
+      }
+      table = t;
+      return t;
+    }
+  }
+
+  /**
+   * A ring of recently read entries. Any thread may add; only the holder of the
+   * eviction lock takes them out. When the ring is full, reads are dropped.
+   */
+  private static final class ReadBuffer<K, V> {
+    final AtomicReferenceArray<Node<K, V>> ring = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    final AtomicLong writes = new AtomicLong();
+    volatile long reads;
+
+    // true if the ring is full and should be drained
+    boolean offer(Node<K, V> node) {
+      long tail = writes.get();
+      long size = tail - reads;
+      if (size >= READ_BUFFER_SIZE) {
+        return true;
+      }
+      if (writes.compareAndSet(tail, tail + 1)) {
+        ring.lazySet((int) (tail & (READ_BUFFER_SIZE - 1)), node);
+        return size + 1 >= READ_BUFFER_SIZE;
+      }
+      return false;
+    }
+
+    void drain(ConcurrentCache<K, V> cache) {
+      long head = reads;
+      long tail = writes.get();
+      for (; head < tail; head++) {
+        int index = (int) (head & (READ_BUFFER_SIZE - 1));
+        Node<K, V> node = ring.get(index);
+        if (node == null) {
+          // claimed but not written yet; picked up next time
+          break;
+        }
+        ring.lazySet(index, null);
+        cache.onRead(node);
+      }
+      reads = head;
+    }
+  }
+
+  /**
+   * An unbounded cache.
+   */
+  public ConcurrentCache() {
+    this(Long.MAX_VALUE);
+  }
+
+  /**
+   * Holds at most about maximumSize entries, evicting the least recently used.
+   */
+  @SuppressWarnings("unchecked")
+  public ConcurrentCache(long maximumSize) {
+    if (maximumSize < 0) {
+      throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+    }
+    this.maximumSize = maximumSize;
+    segments = (Segment<K, V>[]) new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment<>();
+    }
+    int buffers = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+    readBuffers = (ReadBuffer<K, V>[]) new ReadBuffer[buffers];
+    for (int i = 0; i < buffers; i++) {
+      readBuffers[i] = new ReadBuffer<>();
+    }
+    wheel = (Node<K, V>[][]) new Node[WHEEL_BUCKETS.length][];
+    for (int i = 0; i < wheel.length; i++) {
+      wheel[i] = (Node<K, V>[]) new Node[WHEEL_BUCKETS[i]];
+      for (int j = 0; j < WHEEL_BUCKETS[i]; j++) {
+        wheel[i][j] = sentinel();
+      }
+    }
+    wheelOrigin = ticker.getAsLong();
+  }
+
+  public void setExpireAfterWrite(long duration, TimeUnit unit) {
+    expireAfterWriteNanos = unit.toNanos(duration);
+  }
+
+  public void setExpireAfterAccess(long duration, TimeUnit unit) {
+    expireAfterAccessNanos = unit.toNanos(duration);
+  }
+
+  public void setRefreshAfterWrite(long duration, TimeUnit unit) {
+    refreshAfterWriteNanos = unit.toNanos(duration);
+  }
+
+  /**
+   * Where refreshes run; the common ForkJoinPool by default.
+   */
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Where the cache gets the time in nanoseconds; System.nanoTime by default.
+   */
+  public void setTicker(LongSupplier ticker) {
+    evictionLock.lock();
+    try {
+      this.ticker = ticker;
+      wheelOrigin = ticker.getAsLong();
+      wheelTime = 0;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public V get(K key) {
+    long now = ticker.getAsLong();
+    Node<K, V> node = liveNode(key, now);
+    if (node == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    V value = node.value;
+    afterRead(node, now);
+    return value;
+  }
+
+  /**
+   * Returns the cached value of key, or calls loader, caches what it returns
+   * and returns that. Threads that miss the same key while it is loading wait
+   * for the same load. A null from loader is returned but not cached.
+   */
+  public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+    long now = ticker.getAsLong();
+    Node<K, V> node = liveNode(key, now);
+    if (node != null) {
+      hits.increment();
+      V value = node.value;
+      afterRead(node, now);
+      refreshIfOld(node, loader, now);
+      return value;
+    }
+    misses.increment();
+
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> running = loading.putIfAbsent(key, future);
+    if (running != null) {
+      try {
+        return running.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    try {
+      // a load that finished just before ours started has already put the value
+      node = liveNode(key, ticker.getAsLong());
+      V value = node != null ? node.value : loader.apply(key);
+      if (node == null && value != null) {
+        loads.increment();
+        put(key, value);
+      }
+      future.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(key, future);
+    }
+  }
+
+  /**
+   * Puts key with the default time to live, set by setExpireAfterWrite.
+   */
+  @Override
+  public void put(K key, V value) {
+    put(key, value, expireAfterWriteNanos);
+  }
+
+  /**
+   * Puts key so that it expires duration after now.
+   */
+  public void put(K key, V value, long duration, TimeUnit unit) {
+    put(key, value, unit.toNanos(duration));
+  }
+
+  @Override
+  public V remove(K key) {
+    int hash = hash(key);
+    Segment<K, V> segment = segmentFor(hash);
+    Node<K, V> removed;
+    segment.lock();
+    try {
+      removed = segment.find(key, hash);
+      if (removed == null) {
+        return null;
+      }
+      segment.unlink(removed);
+      removed.state = RETIRED;
+    } finally {
+      segment.unlock();
+    }
+    afterWrite(() -> onRemove(removed));
+    return isExpired(removed, ticker.getAsLong()) ? null : removed.value;
+  }
+
+  /**
+   * The number of entries, counting expired ones that have not been cleaned
+   * up yet.
+   */
+  public long size() {
+    long size = 0;
+    for (Segment<K, V> segment : segments) {
+      size += segment.count;
+    }
+    return size;
+  }
+
+  /**
+   * Replays the buffers, removes expired entries and evicts down to the
+   * maximum size now, instead of on the next use.
+   */
+  public void cleanUp() {
+    evictionLock.lock();
+    try {
+      maintenance();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  public long loadCount() {
+    return loads.sum();
+  }
+
+  public long refreshCount() {
+    return refreshes.sum();
+  }
+
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  public long expirationCount() {
+    return expirations.sum();
+  }
+
+  private void put(K key, V value, long timeToLive) {
+    int hash = hash(key);
+    Segment<K, V> segment = segmentFor(hash);
+    long now = ticker.getAsLong();
+    Node<K, V> added = null;
+    Node<K, V> updated = null;
+    Node<K, V> expired = null;
+    segment.lock();
+    try {
+      Node<K, V> node = segment.find(key, hash);
+      if (node != null && !isExpired(node, now)) {
+        node.value = value;
+        node.writeTime = now;
+        node.accessTime = now;
+        node.timeToLive = timeToLive;
+        updated = node;
+      } else {
+        if (node != null) {
+          segment.unlink(node);
+          node.state = RETIRED;
+          expired = node;
+        }
+        added = new Node<>(key, hash, value, now, timeToLive);
+        segment.insert(added);
+      }
+    } finally {
+      segment.unlock();
+    }
+
+    if (expired != null) {
+      Node<K, V> old = expired;
+      expirations.increment();
+      afterWrite(() -> onRemove(old));
+    }
+    if (added != null) {
+      Node<K, V> node = added;
+      afterWrite(() -> onAdd(node));
+    } else {
+      Node<K, V> node = updated;
+      afterWrite(() -> onUpdate(node));
+    }
+  }
+
+  private Node<K, V> liveNode(K key, long now) {
+    int hash = hash(key);
+    Node<K, V> node = segmentFor(hash).find(key, hash);
+    return node == null || isExpired(node, now) ? null : node;
+  }
+
+  private boolean isExpired(Node<K, V> node, long now) {
+    return now - node.writeTime >= node.timeToLive || now - node.accessTime >= expireAfterAccessNanos;
+  }
+
+  // the ticker time at which node expires, or NEVER
+  private long expiresAt(Node<K, V> node) {
+    return Math.min(saturatedAdd(node.writeTime, node.timeToLive),
+        saturatedAdd(node.accessTime, expireAfterAccessNanos));
+  }
+
+  private static long saturatedAdd(long time, long duration) {
+    long sum = time + duration;
+    return duration == NEVER || ((time ^ sum) & (duration ^ sum)) < 0 ? NEVER : sum;
+  }
+
+  private void refreshIfOld(Node<K, V> node, Function<? super K, ? extends V> loader, long now) {
+    long refreshAfter = refreshAfterWriteNanos;
+    if (refreshAfter == NEVER || now - node.writeTime < refreshAfter || !Node.REFRESHING.compareAndSet(node, 0, 1)) {
+      return;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          V value = loader.apply(node.key);
+          if (value != null) {
+            replace(node, value);
+            refreshes.increment();
+          }
+        } catch (RuntimeException e) {
+          // the old value stays, and a later read tries again
+        } finally {
+          node.refreshing = 0;
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      node.refreshing = 0;
+    }
+  }
+
+  // stores a refreshed value, unless node was removed or replaced meanwhile
+  private void replace(Node<K, V> node, V value) {
+    Segment<K, V> segment = segmentFor(node.hash);
+    segment.lock();
+    try {
+      if (node.state != ALIVE) {
+        return;
+      }
+      long now = ticker.getAsLong();
+      node.value = value;
+      node.writeTime = now;
+      node.accessTime = now;
+    } finally {
+      segment.unlock();
+    }
+    afterWrite(() -> onUpdate(node));
+  }
+
+  private void afterRead(Node<K, V> node, long now) {
+    if (expireAfterAccessNanos != NEVER) {
+      node.accessTime = now;
+    }
+    int index = (int) Thread.currentThread().getId() & (readBuffers.length - 1);
+    if (readBuffers[index].offer(node)) {
+      tryMaintenance();
+    }
+  }
+
+  private void afterWrite(Runnable task) {
+    writeBuffer.add(task);
+    if (pendingWrites.incrementAndGet() > WRITE_BUFFER_MAX) {
+      // maintenance is falling behind, so this writer waits for it
+      cleanUp();
+    } else {
+      tryMaintenance();
+    }
+  }
+
+  private void tryMaintenance() {
+    while (evictionLock.tryLock()) {
+      try {
+        maintenance();
+      } finally {
+        evictionLock.unlock();
+      }
+      // a writer that failed to get the lock just before it was let go
+      if (pendingWrites.get() == 0) {
+        return;
+      }
+    }
+  }
+
+  // called with the eviction lock held
+  private void maintenance() {
+    Runnable task;
+    while ((task = writeBuffer.poll()) != null) {
+      pendingWrites.decrementAndGet();
+      task.run();
+    }
+    for (ReadBuffer<K, V> buffer : readBuffers) {
+      buffer.drain(this);
+    }
+    advanceWheel(ticker.getAsLong() - wheelOrigin);
+    while (policySize > maximumSize && accessOrder.accessNext != accessOrder) {
+      if (evict(accessOrder.accessNext, false)) {
+        evictions.increment();
+      }
+    }
+  }
+
+  private void onAdd(Node<K, V> node) {
+    if (node.state != ALIVE) {
+      return;
+    }
+    node.linked = true;
+    linkLast(node);
+    schedule(node);
+    policySize++;
+  }
+
+  private void onUpdate(Node<K, V> node) {
+    if (node.linked) {
+      unlinkAccess(node);
+      linkLast(node);
+      schedule(node);
+    }
+  }
+
+  private void onRead(Node<K, V> node) {
+    if (node.linked) {
+      unlinkAccess(node);
+      linkLast(node);
+      if (expireAfterAccessNanos != NEVER) {
+        schedule(node);
+      }
+    }
+  }
+
+  private void onRemove(Node<K, V> node) {
+    if (node.linked) {
+      unlinkPolicy(node);
+    }
+    node.state = DEAD;
+  }
+
+  /**
+   * Takes node out of its segment and out of the policy. With onlyIfExpired,
+   * leaves it alone if a write made it live again. True if it was still in
+   * its segment.
+   */
+  private boolean evict(Node<K, V> node, boolean onlyIfExpired) {
+    Segment<K, V> segment = segmentFor(node.hash);
+    boolean removed = false;
+    segment.lock();
+    try {
+      if (onlyIfExpired && node.state == ALIVE && !isExpired(node, ticker.getAsLong())) {
+        schedule(node);
+        return false;
+      }
+      if (node.state == ALIVE) {
+        removed = segment.unlink(node);
+        node.state = RETIRED;
+      }
+    } finally {
+      segment.unlock();
+    }
+    unlinkPolicy(node);
+    node.state = DEAD;
+    return removed;
+  }
+
+  private void unlinkPolicy(Node<K, V> node) {
+    unlinkAccess(node);
+    unlinkTimer(node);
+    node.linked = false;
+    policySize--;
+  }
+
+  private void linkLast(Node<K, V> node) {
+    node.accessPrev = accessOrder.accessPrev;
+    node.accessNext = accessOrder;
+    accessOrder.accessPrev.accessNext = node;
+    accessOrder.accessPrev = node;
+  }
+
+  private void unlinkAccess(Node<K, V> node) {
+    node.accessPrev.accessNext = node.accessNext;
+    node.accessNext.accessPrev = node.accessPrev;
+  }
+
+  // puts node in the wheel bucket of its expiry time, or nowhere if it never expires
+  private void schedule(Node<K, V> node) {
+    unlinkTimer(node);
+    long expiresAt = expiresAt(node);
+    if (expiresAt == NEVER) {
+      return;
+    }
+    Node<K, V> bucket = findBucket(Math.max(expiresAt - wheelOrigin, wheelTime));
+    node.timerPrev = bucket.timerPrev;
+    node.timerNext = bucket;
+    bucket.timerPrev.timerNext = node;
+    bucket.timerPrev = node;
+  }
+
+  private void unlinkTimer(Node<K, V> node) {
+    if (node.timerNext != null) {
+      node.timerPrev.timerNext = node.timerNext;
+      node.timerNext.timerPrev = node.timerPrev;
+      node.timerPrev = null;
+      node.timerNext = null;
+    }
+  }
+
+  // the finest level whose range reaches time covers it
+  private Node<K, V> findBucket(long time) {
+    long duration = time - wheelTime;
+    for (int i = 0; i < WHEEL_SHIFTS.length - 1; i++) {
+      if (duration < 1L << WHEEL_SHIFTS[i + 1]) {
+        long ticks = time >>> WHEEL_SHIFTS[i];
+        return wheel[i][(int) (ticks & (WHEEL_BUCKETS[i] - 1))];
+      }
+    }
+    return wheel[WHEEL_BUCKETS.length - 1][0];
+  }
+
+  /**
+   * Moves the wheel to now, a time since wheelOrigin. On each level, the
+   * buckets between the old and the new tick are emptied: expired entries are
+   * evicted and the rest go to the bucket that fits them now.
+   */
+  private void advanceWheel(long now) {
+    long previous = wheelTime;
+    if (now <= previous) {
+      return;
+    }
+    wheelTime = now;
+    for (int i = 0; i < WHEEL_SHIFTS.length; i++) {
+      long previousTicks = previous >>> WHEEL_SHIFTS[i];
+      long ticks = now >>> WHEEL_SHIFTS[i];
+      if (ticks == previousTicks) {
+        break;
+      }
+      Node<K, V>[] buckets = wheel[i];
+      int mask = buckets.length - 1;
+      int steps = (int) Math.min(ticks - previousTicks + 1, buckets.length);
+      for (int j = 0; j < steps; j++) {
+        Node<K, V> bucket = buckets[(int) ((previousTicks + j) & mask)];
+        Node<K, V> node = bucket.timerNext;
+        bucket.timerNext = bucket;
+        bucket.timerPrev = bucket;
+        while (node != bucket) {
+          Node<K, V> next = node.timerNext;
+          node.timerPrev = null;
+          node.timerNext = null;
+          if (expiresAt(node) - wheelOrigin <= now) {
+            if (evict(node, true)) {
+              expirations.increment();
+            }
+          } else {
+            schedule(node);
+          }
+          node = next;
+        }
+      }
+    }
+  }
+
+  private Segment<K, V> segmentFor(int hash) {
+    return segments[(hash >>> 28) & (SEGMENTS - 1)];
+  }
+
+  private static int hash(Object key) {
+    return (int) BloomFilter.mix(key.hashCode());
+  }
+
+  private static <K, V> Node<K, V> sentinel() {
+    Node<K, V> sentinel = new Node<>(null, 0, null, 0, NEVER);
+    sentinel.accessPrev = sentinel;
+    sentinel.accessNext = sentinel;
+    sentinel.timerPrev = sentinel;
+    sentinel.timerNext = sentinel;
+    return sentinel;
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    AtomicLong time = new AtomicLong();
+    ConcurrentCache<String, Integer> cache = new ConcurrentCache<>(1000);
+    cache.setTicker(time::get);
+    cache.setExpireAfterWrite(10, TimeUnit.SECONDS);
+    cache.put("ten seconds", 1);
+    cache.put("one second", 2, 1, TimeUnit.SECONDS);
+    time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    System.out.println(cache.get("one second")); // null
+    System.out.println(cache.get("ten seconds")); // 1
+    time.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    cache.cleanUp();
+    System.out.println(cache.size() + " " + cache.expirationCount()); // 0 2
+
+    // eight threads miss the same key at once; the loader runs once
+    ConcurrentCache<Integer, Integer> loaded = new ConcurrentCache<>(1000);
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        loaded.getOrLoad(42, key -> {
+          calls.incrementAndGet();
+          try {
+            Thread.sleep(100);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return key * 2;
+        });
+      });
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    System.out.println(calls.get() + " " + loaded.get(42)); // 1 84
+
+    // with refreshAfterWrite, an old entry is returned and reloaded behind the scenes
+    ConcurrentCache<Integer, Integer> refreshed = new ConcurrentCache<>(1000);
+    refreshed.setTicker(time::get);
+    refreshed.setExecutor(Runnable::run);
+    refreshed.setRefreshAfterWrite(1, TimeUnit.MINUTES);
+    refreshed.put(1, 100);
+    time.addAndGet(TimeUnit.MINUTES.toNanos(2));
+    System.out.println(refreshed.getOrLoad(1, key -> 200)); // 100
+    System.out.println(refreshed.get(1)); // 200
+
+    ConcurrentCache<Integer, Integer> bounded = new ConcurrentCache<>(100);
+    for (int i = 0; i < 1000; i++) {
+      bounded.put(i, i);
+    }
+    bounded.cleanUp();
+    System.out.println(bounded.size() + " " + bounded.get(999)); // 100 999
+  }
+}
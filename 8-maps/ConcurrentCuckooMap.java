@@ -0,0 +1,315 @@
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+
+/**
+ * A CuckooMap that many threads can read while one thread at a time writes,
+ * with get never taking a lock.
+ *
+ * Every bucket has a version counter, which a writer makes odd before it
+ * changes the bucket and even again afterwards. get reads the versions of the
+ * key's two buckets, then the buckets, then the versions once more, and if
+ * either was odd or has changed since, it reads again. Writers take the lock
+ * of the map.
+ *
+ * When put has to evict entries to make room, it first looks for the whole
+ * chain of evictions ending in a free slot, and then moves the entries
+ * starting from the end of the chain. Each entry is copied into its other
+ * bucket before it is cleared from the first one, so a key is always in one
+ * of its buckets, and a reader that raced a move sees a version change and
+ * tries again. There is no stash: when no chain is found, the table doubles.
+ * A table that has been replaced by a bigger one is never written again, so
+ * readers still in it see a consistent, if old, map.
+ *
+ * Keys with the same hashCode always get the same two buckets, so at most
+ * 2 * SLOTS of them fit, and put throws an IllegalStateException for more.
+ * Keys are compared without the lock while a writer may be changing them, so
+ * they should be immutable, like Integer or String. Keys and values must not
+ * be null.
+ */
+public class ConcurrentCuckooMap<K, V> implements Map<K, V> {
+
+  public static final int SLOTS = 4;
+  public static final int INITIAL_BUCKETS = 4;
+  public static final double MAX_LOAD_FACTOR = 0.9;
+  public static final int MAX_PATH = 250;
+
+  private static final class Table {
+    final Object[] keys;
+    final Object[] values;
+    final int[] codes;
+    final AtomicLongArray versions;
+    final int mask;
+
+    Table(int buckets) {
+      keys = new Object[buckets * SLOTS];
+      values = new Object[buckets * SLOTS];
+      codes = new int[buckets * SLOTS];
+      versions = new AtomicLongArray(buckets);
+      mask = buckets - 1;
+    }
+
+    int bucket1(long hash) {
+      return (int) hash & mask;
+    }
+
+    int bucket2(long hash, int first) {
+      int second = (int) (hash >>> 32) & mask;
+      return second != first ? second : first ^ 1;
+    }
+
+    int otherBucket(int code, int bucket) {
+      long hash = BloomFilter.mix(code);
+      int first = bucket1(hash);
+      return bucket != first ? first : bucket2(hash, first);
+    }
+
+    int find(Object key, int code, int bucket) {
+      for (int i = bucket * SLOTS; i < bucket * SLOTS + SLOTS; i++) {
+        Object candidate = keys[i];
+        if (codes[i] == code && candidate != null && candidate.equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    int freeSlot(int bucket) {
+      for (int i = bucket * SLOTS; i < bucket * SLOTS + SLOTS; i++) {
+        if (keys[i] == null) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    void write(int slot, Object key, Object value, int code) {
+      int bucket = slot / SLOTS;
+      versions.incrementAndGet(bucket);
+      keys[slot] = key;
+      values[slot] = value;
+      codes[slot] = code;
+      versions.incrementAndGet(bucket);
+    }
+  }
+
+  private volatile Table table;
+  private int size;
+  private long random = 0x9E3779B97F4A7C15L;
+
+  /**
+   * Starts with room for at least initialSize entries.
+   */
+  public ConcurrentCuckooMap(int initialSize) {
+    int buckets = INITIAL_BUCKETS;
+    while (buckets * SLOTS * MAX_LOAD_FACTOR < initialSize) {
+      buckets *= 2;
+    }
+    table = new Table(buckets);
+  }
+
+  public ConcurrentCuckooMap() {
+    this(0);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    int code = key.hashCode();
+    long hash = BloomFilter.mix(code);
+    while (true) {
+      Table t = table;
+      int first = t.bucket1(hash);
+      int second = t.bucket2(hash, first);
+      long firstVersion = t.versions.get(first);
+      long secondVersion = t.versions.get(second);
+      if (((firstVersion | secondVersion) & 1) == 0) {
+        Object value = null;
+        int slot = t.find(key, code, first);
+        if (slot < 0) {
+          slot = t.find(key, code, second);
+        }
+        if (slot >= 0) {
+          value = t.values[slot];
+        }
+        // the reads above must not move past the checks below
+        VarHandle.acquireFence();
+        if (t.versions.get(first) == firstVersion && t.versions.get(second) == secondVersion) {
+          return (V) value;
+        }
+      }
+      Thread.onSpinWait();
+    }
+  }
+
+  @Override
+  public synchronized void put(K key, V value) {
+    int code = key.hashCode();
+    long hash = BloomFilter.mix(code);
+    Table t = table;
+    int first = t.bucket1(hash);
+    int slot = t.find(key, code, first);
+    if (slot < 0) {
+      slot = t.find(key, code, t.bucket2(hash, first));
+    }
+    if (slot >= 0) {
+      t.write(slot, key, value, code);
+      return;
+    }
+    if (size + 1 > MAX_LOAD_FACTOR * t.keys.length) {
+      t = upsize(t);
+    }
+    while (!insert(t, key, value, code)) {
+      t = upsize(t);
+    }
+    size++;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public synchronized V remove(K key) {
+    int code = key.hashCode();
+    long hash = BloomFilter.mix(code);
+    Table t = table;
+    int first = t.bucket1(hash);
+    int slot = t.find(key, code, first);
+    if (slot < 0) {
+      slot = t.find(key, code, t.bucket2(hash, first));
+    }
+    if (slot < 0) {
+      return null;
+    }
+    V value = (V) t.values[slot];
+    t.write(slot, null, null, 0);
+    size--;
+    return value;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Passes every entry to action, in no particular order. Writers wait until
+   * it is done.
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized void forEach(BiConsumer<? super K, ? super V> action) {
+    Table t = table;
+    for (int i = 0; i < t.keys.length; i++) {
+      if (t.keys[i] != null) {
+        action.accept((K) t.keys[i], (V) t.values[i]);
+      }
+    }
+  }
+
+  // places a key that is not in t yet; false if no chain of evictions was found
+  private boolean insert(Table t, Object key, Object value, int code) {
+    long hash = BloomFilter.mix(code);
+    int first = t.bucket1(hash);
+    int second = t.bucket2(hash, first);
+    int free = t.freeSlot(first);
+    if (free < 0) {
+      free = t.freeSlot(second);
+    }
+    if (free >= 0) {
+      t.write(free, key, value, code);
+      return true;
+    }
+
+    // walk a random chain of evictions without moving anything yet; a chain
+    // never uses a slot twice, so each entry on it moves exactly once
+    int[] path = new int[MAX_PATH];
+    int bucket = (nextRandom() & 1) == 0 ? first : second;
+    for (int depth = 0; depth < MAX_PATH; depth++) {
+      int slot = -1;
+      int start = nextRandom() & (SLOTS - 1);
+      for (int j = 0; j < SLOTS && slot < 0; j++) {
+        int candidate = bucket * SLOTS + ((start + j) & (SLOTS - 1));
+        if (!contains(path, depth, candidate)) {
+          slot = candidate;
+        }
+      }
+      if (slot < 0) {
+        return false;
+      }
+      path[depth] = slot;
+      bucket = t.otherBucket(t.codes[slot], bucket);
+      free = t.freeSlot(bucket);
+      if (free >= 0) {
+        for (int d = depth; d >= 0; d--) {
+          int from = path[d];
+          t.write(free, t.keys[from], t.values[from], t.codes[from]);
+          free = from;
+        }
+        t.write(free, key, value, code);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean contains(int[] path, int length, int slot) {
+    for (int i = 0; i < length; i++) {
+      if (path[i] == slot) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int nextRandom() {
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    return (int) random;
+  }
+
+  // fills a new table of twice the size before publishing it, so readers see
+  // either the old table or the complete new one
+  private Table upsize(Table old) {
+    int buckets = (old.mask + 1) * 2;
+    while (true) {
+      if ((long) buckets * SLOTS > 64L * (size + 1) + 1024) {
+        throw new IllegalStateException("too many keys with the same hashCode");
+      }
+      Table bigger = new Table(buckets);
+      boolean complete = true;
+      for (int i = 0; i < old.keys.length && complete; i++) {
+        if (old.keys[i] != null) {
+          complete = insert(bigger, old.keys[i], old.values[i], old.codes[i]);
+        }
+      }
+      if (complete) {
+        table = bigger;
+        return bigger;
+      }
+      buckets *= 2;
+    }
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    ConcurrentCuckooMap<Integer, Integer> map = new ConcurrentCuckooMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, i);
+    }
+    // a reader checks that every key it looks up is there with a valid value
+    // while a writer keeps overwriting and growing the map
+    Thread writer = new Thread(() -> {
+      for (int i = 0; i < 200000; i++) {
+        map.put(i % 1000, i % 1000 + 1000 * (i / 1000));
+        map.put(1000 + i, i);
+      }
+    });
+    writer.start();
+    long wrong = 0;
+    while (writer.isAlive()) {
+      for (int i = 0; i < 1000; i++) {
+        Integer value = map.get(i);
+        wrong += value == null || value % 1000 != i ? 1 : 0;
+      }
+    }
+    writer.join();
+    System.out.println(wrong + " " + map.size() + " " + map.get(999)); // 0 201000 199999
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Estimates how often each item was seen, in a fixed amount of memory.
+ *
+ * Counters are 4 bits wide and packed 16 to a long. An item has one counter in
+ * each of 4 rows; row i picks a long with its own hash of the item and uses
+ * one of the counters i * 4 to i * 4 + 3 in it. Adding an item bumps its 4
+ * counters, and its frequency is the smallest of them, which can only be too
+ * high, never too low, when items share counters.
+ *
+ * Counters stop at 15. After 10 adds per long the sketch ages: every counter
+ * is halved, so the estimates follow what is popular now rather than what was
+ * popular once.
+ */
+public class CountMinSketch {
+
+  public static final int MAX_COUNT = 15;
+
+  private static final int ROWS = 4;
+  private static final long[] SEEDS = { 0x97cb3127L, 0xd9f5b4a1L, 0xbc2fa571L, 0x8e6cb9c3L };
+  private static final long HALF_MASK = 0x7777777777777777L;
+
+  private final long[] table;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * Sizes the sketch for about expectedItems distinct items.
+   */
+  public CountMinSketch(long expectedItems) {
+    int length = Integer.highestOneBit((int) Math.max(16, Math.min(expectedItems, 1 << 30)) - 1) << 1;
+    table = new long[length];
+    mask = length - 1;
+    sampleSize = 10 * length;
+  }
+
+  /**
+   * Counts one more sighting of the item with this hash.
+   */
+  public void increment(long hash) {
+    boolean added = false;
+    for (int i = 0; i < ROWS; i++) {
+      long spread = BloomFilter.mix(hash + SEEDS[i]);
+      int index = (int) spread & mask;
+      int shift = (i * 4 + (int) ((spread >>> 32) & 3)) * 4;
+      if (((table[index] >>> shift) & 0xf) < MAX_COUNT) {
+        table[index] += 1L << shift;
+        added = true;
+      }
+    }
+    if (added && ++additions == sampleSize) {
+      age();
+    }
+  }
+
+  /**
+   * How often the item with this hash was seen, at most MAX_COUNT.
+   */
+  public int frequency(long hash) {
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < ROWS; i++) {
+      long spread = BloomFilter.mix(hash + SEEDS[i]);
+      int index = (int) spread & mask;
+      int shift = (i * 4 + (int) ((spread >>> 32) & 3)) * 4;
+      frequency = Math.min(frequency, (int) ((table[index] >>> shift) & 0xf));
+    }
+    return frequency;
+  }
+
+  // halves every counter at once, 16 per long
+  private void age() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & HALF_MASK;
+    }
+    additions /= 2;
+  }
+
+  public static void main(String[] args) {
+    CountMinSketch sketch = new CountMinSketch(1000);
+    for (int i = 0; i < 7; i++) {
+      sketch.increment(42);
+    }
+    for (long i = 0; i < 500; i++) {
+      sketch.increment(i * 1000003);
+    }
+    System.out.println(sketch.frequency(42)); // 7
+    System.out.println(sketch.frequency(-1) <= 1); // true
+  }
+}
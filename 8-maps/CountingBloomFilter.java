@@ -0,0 +1,96 @@
+/**
+ * A BloomFilter that items can be removed from again.
+ *
+ * Instead of one bit, each position is a 4-bit counter, packed 16 to a long,
+ * and picked by the same double hashing as BloomFilter. Adding a hash bumps
+ * its counters, removing it lowers them, and a hash is definitely not there
+ * if any of its counters is 0. That takes four times the memory of a
+ * BloomFilter with the same false positive rate.
+ *
+ * A counter that reaches MAX_COUNT stays there, since its true count is no
+ * longer known, so heavy collisions only ever cause more "maybe" answers. Only
+ * remove hashes that were added; removing others can cause wrong "not there"
+ * answers.
+ */
+public class CountingBloomFilter {
+
+  public static final int MAX_COUNT = 15;
+
+  private final long[] words;
+  private final long counterCount;
+  private final int hashCount;
+
+  /**
+   * Sizes the filter so that with expectedItems items in it, about
+   * falsePositiveRate of lookups for missing items answer "maybe".
+   */
+  public CountingBloomFilter(long expectedItems, double falsePositiveRate) {
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+    }
+    long items = Math.max(1, expectedItems);
+    long counters = (long) Math.ceil(-items * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    this.words = new long[(int) Math.max(1, (counters + 15) / 16)];
+    this.counterCount = (long) words.length * 16;
+    this.hashCount = (int) Math.max(1, Math.round((double) counterCount / items * Math.log(2)));
+  }
+
+  public void add(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long counter = ((h1 + (long) i * h2) & Long.MAX_VALUE) % counterCount;
+      int word = (int) (counter >>> 4);
+      int shift = (int) (counter & 15) << 2;
+      if (((words[word] >>> shift) & 0xf) < MAX_COUNT) {
+        words[word] += 1L << shift;
+      }
+    }
+  }
+
+  public void remove(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long counter = ((h1 + (long) i * h2) & Long.MAX_VALUE) % counterCount;
+      int word = (int) (counter >>> 4);
+      int shift = (int) (counter & 15) << 2;
+      long count = (words[word] >>> shift) & 0xf;
+      if (count > 0 && count < MAX_COUNT) {
+        words[word] -= 1L << shift;
+      }
+    }
+  }
+
+  public boolean mightContain(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long counter = ((h1 + (long) i * h2) & Long.MAX_VALUE) % counterCount;
+      if (((words[(int) (counter >>> 4)] >>> ((counter & 15) << 2)) & 0xf) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int hashCount() {
+    return hashCount;
+  }
+
+  public static void main(String[] args) {
+    CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+    for (long i = 0; i < 1000; i++) {
+      filter.add(BloomFilter.mix(i));
+    }
+    for (long i = 0; i < 500; i++) {
+      filter.remove(BloomFilter.mix(i));
+    }
+    int maybe = 0;
+    for (long i = 0; i < 500; i++) {
+      maybe += filter.mightContain(BloomFilter.mix(i)) ? 1 : 0;
+    }
+    System.out.println(maybe < 15); // true
+    System.out.println(filter.mightContain(BloomFilter.mix(700))); // true
+  }
+}
@@ -0,0 +1,284 @@
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * A hash map where every key sits in one of two buckets of SLOTS slots, picked
+ * by two hash functions, so get reads at most those two buckets and, only if
+ * anything was ever stashed, a stash of STASH_SIZE entries. Unlike in
+ * ProbingMap, where runs of full slots grow into each other and a lookup can
+ * walk far, a lookup here never costs more than that.
+ *
+ * put places a new key into a free slot of either bucket. When both are full
+ * it evicts a random entry of one of them into that entry's other bucket,
+ * which may evict another one, and so on, up to MAX_KICKS times. If that does
+ * not end in a free slot, the entry left over goes into the stash, and if the
+ * stash is full, the table doubles. With 4 slots per bucket, this works up to
+ * loads of about 95%, so the table only grows at MAX_LOAD_FACTOR.
+ *
+ * Each slot also keeps the hashCode of its key, which lets get skip most slots
+ * without calling equals and lets put find an evicted entry's other bucket.
+ *
+ * Keys with the same hashCode always get the same two buckets, and no table
+ * size spreads them out. When the stash is full but the table is less than a
+ * quarter full, the stash grows instead, and lookups for such keys get slower,
+ * as they do in the other maps.
+ */
+public class CuckooMap<K extends Comparable<? super K>, V> implements Map<K, V> {
+
+  public static final int SLOTS = 4;
+  public static final int STASH_SIZE = 4;
+  public static final int INITIAL_BUCKETS = 4;
+  public static final double MAX_LOAD_FACTOR = 0.9;
+  public static final int MAX_KICKS = 500;
+
+  private Pair<K, V>[] table;
+  private int[] codes;
+  private int mask;
+  private Pair<K, V>[] stash;
+  private int[] stashCodes;
+  private int stashSize;
+  private int size;
+  private long random = 0x9E3779B97F4A7C15L;
+
+  /**
+   * Starts with room for at least initialSize entries.
+   */
+  @SuppressWarnings("unchecked")
+  public CuckooMap(int initialSize) {
+    int buckets = INITIAL_BUCKETS;
+    while (buckets * SLOTS * MAX_LOAD_FACTOR < initialSize) {
+      buckets *= 2;
+    }
+    table = (Pair<K, V>[]) new Pair[buckets * SLOTS];
+    codes = new int[buckets * SLOTS];
+    mask = buckets - 1;
+    stash = (Pair<K, V>[]) new Pair[STASH_SIZE];
+    stashCodes = new int[STASH_SIZE];
+  }
+
+  public CuckooMap() {
+    this(0);
+  }
+
+  @Override
+  public void put(K key, V value) {
+    int code = key.hashCode();
+    int slot = find(key, code);
+    if (slot >= 0) {
+      table[slot].value = value;
+      return;
+    }
+    for (int i = 0; i < stashSize; i++) {
+      if (stashCodes[i] == code && stash[i].key.equals(key)) {
+        stash[i].value = value;
+        return;
+      }
+    }
+    if (size + 1 > MAX_LOAD_FACTOR * table.length) {
+      upsize();
+    }
+    insert(new Pair<K, V>(key, value), code);
+    size++;
+  }
+
+  @Override
+  public V get(K key) {
+    int code = key.hashCode();
+    int slot = find(key, code);
+    if (slot >= 0) {
+      return table[slot].value;
+    }
+    for (int i = 0; i < stashSize; i++) {
+      if (stashCodes[i] == code && stash[i].key.equals(key)) {
+        return stash[i].value;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public V remove(K key) {
+    int code = key.hashCode();
+    int slot = find(key, code);
+    if (slot >= 0) {
+      V value = table[slot].value;
+      table[slot] = null;
+      size--;
+      unstash();
+      return value;
+    }
+    for (int i = 0; i < stashSize; i++) {
+      if (stashCodes[i] == code && stash[i].key.equals(key)) {
+        V value = stash[i].value;
+        stashSize--;
+        stash[i] = stash[stashSize];
+        stashCodes[i] = stashCodes[stashSize];
+        stash[stashSize] = null;
+        size--;
+        return value;
+      }
+    }
+    return null;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * How many entries are in the stash, which should almost always be 0.
+   */
+  public int stashSize() {
+    return stashSize;
+  }
+
+  /**
+   * Passes every entry to action, in no particular order.
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Pair<K, V> pair : table) {
+      if (pair != null) {
+        action.accept(pair.key, pair.value);
+      }
+    }
+    for (int i = 0; i < stashSize; i++) {
+      action.accept(stash[i].key, stash[i].value);
+    }
+  }
+
+  // returns the slot of key in either of its buckets, or -1
+  private int find(K key, int code) {
+    long hash = BloomFilter.mix(code);
+    int first = bucket1(hash);
+    for (int i = first * SLOTS; i < first * SLOTS + SLOTS; i++) {
+      if (codes[i] == code && table[i] != null && table[i].key.equals(key)) {
+        return i;
+      }
+    }
+    int second = bucket2(hash, first);
+    for (int i = second * SLOTS; i < second * SLOTS + SLOTS; i++) {
+      if (codes[i] == code && table[i] != null && table[i].key.equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // places an entry that is not in the map yet, evicting others if needed
+  private void insert(Pair<K, V> pair, int code) {
+    long hash = BloomFilter.mix(code);
+    int first = bucket1(hash);
+    int second = bucket2(hash, first);
+    if (place(pair, code, first) || place(pair, code, second)) {
+      return;
+    }
+    int bucket = (nextRandom() & 1) == 0 ? first : second;
+    for (int kick = 0; kick < MAX_KICKS; kick++) {
+      int slot = bucket * SLOTS + (nextRandom() & (SLOTS - 1));
+      Pair<K, V> evicted = table[slot];
+      int evictedCode = codes[slot];
+      table[slot] = pair;
+      codes[slot] = code;
+      pair = evicted;
+      code = evictedCode;
+      bucket = otherBucket(code, bucket);
+      if (place(pair, code, bucket)) {
+        return;
+      }
+    }
+    if (stashSize == stash.length && size < table.length / 4) {
+      stash = Arrays.copyOf(stash, stash.length * 2);
+      stashCodes = Arrays.copyOf(stashCodes, stashCodes.length * 2);
+    }
+    if (stashSize < stash.length) {
+      stash[stashSize] = pair;
+      stashCodes[stashSize] = code;
+      stashSize++;
+      return;
+    }
+    upsize();
+    insert(pair, code);
+  }
+
+  private boolean place(Pair<K, V> pair, int code, int bucket) {
+    for (int i = bucket * SLOTS; i < bucket * SLOTS + SLOTS; i++) {
+      if (table[i] == null) {
+        table[i] = pair;
+        codes[i] = code;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // moves stashed entries back into the table once their buckets have room
+  private void unstash() {
+    for (int i = stashSize - 1; i >= 0; i--) {
+      long hash = BloomFilter.mix(stashCodes[i]);
+      int first = bucket1(hash);
+      if (place(stash[i], stashCodes[i], first) || place(stash[i], stashCodes[i], bucket2(hash, first))) {
+        stashSize--;
+        stash[i] = stash[stashSize];
+        stashCodes[i] = stashCodes[stashSize];
+        stash[stashSize] = null;
+      }
+    }
+  }
+
+  private int bucket1(long hash) {
+    return (int) hash & mask;
+  }
+
+  // the second bucket comes from the other half of the hash, and is never the
+  // first one, so every key really has two choices
+  private int bucket2(long hash, int first) {
+    int second = (int) (hash >>> 32) & mask;
+    return second != first ? second : first ^ 1;
+  }
+
+  private int otherBucket(int code, int bucket) {
+    long hash = BloomFilter.mix(code);
+    int first = bucket1(hash);
+    return bucket != first ? first : bucket2(hash, first);
+  }
+
+  private int nextRandom() {
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    return (int) random;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void upsize() {
+    Pair<K, V>[] oldTable = table;
+    int[] oldCodes = codes;
+    Pair<K, V>[] oldStash = stash;
+    int[] oldStashCodes = stashCodes;
+    int oldStashSize = stashSize;
+    table = (Pair<K, V>[]) new Pair[oldTable.length * 2];
+    codes = new int[oldTable.length * 2];
+    mask = table.length / SLOTS - 1;
+    stash = (Pair<K, V>[]) new Pair[STASH_SIZE];
+    stashCodes = new int[STASH_SIZE];
+    stashSize = 0;
+    for (int i = 0; i < oldTable.length; i++) {
+      if (oldTable[i] != null) {
+        insert(oldTable[i], oldCodes[i]);
+      }
+    }
+    for (int i = 0; i < oldStashSize; i++) {
+      insert(oldStash[i], oldStashCodes[i]);
+    }
+  }
+
+  public static void main(String[] args) {
+    CuckooMap<Integer, String> map = new CuckooMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, "v" + i);
+    }
+    System.out.println(map.size() + " " + map.get(7) + " " + map.get(1000)); // 1000 v7 null
+    map.put(7, "seven");
+    System.out.println(map.remove(7) + " " + map.get(7) + " " + map.size()); // seven null 999
+  }
+}
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Rough timing of get on CuckooMap, ProbingMap, SeparateChainingMapGrow and
+ * java.util.HashMap, all holding the same n random Integer keys, for hits and
+ * for misses. The average comes from timing all lookups at once; the
+ * percentiles and the maximum come from timing every lookup on its own, which
+ * adds the cost of System.nanoTime (some tens of ns) to each of them.
+ *
+ * Then THREADS threads read from a ConcurrentCuckooMap and a
+ * java.util.concurrent.ConcurrentHashMap while one more thread keeps writing,
+ * and the reads per second are printed.
+ * java CuckooMapBenchmark [n] [threads]
+ */
+public class CuckooMapBenchmark {
+
+  public static final int LOOKUPS = 2000000;
+  public static final int ROUNDS = 3;
+  public static final int CONCURRENT_ROUNDS = 2;
+  public static final int CONCURRENT_MILLIS = 2000;
+
+  public static void main(String[] args) throws InterruptedException {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    Random random = new Random(42);
+
+    // even keys only, so a key plus one is never there
+    Integer[] keys = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = random.nextInt(Integer.MAX_VALUE / 2) * 2;
+    }
+    Integer[] hits = new Integer[LOOKUPS];
+    Integer[] misses = new Integer[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      hits[i] = keys[random.nextInt(n)];
+      misses[i] = keys[random.nextInt(n)] + 1;
+    }
+
+    CuckooMap<Integer, Integer> cuckoo = new CuckooMap<>();
+    ProbingMap<Integer, Integer> probing = new ProbingMap<>();
+    SeparateChainingMapGrow<Integer, Integer> chaining = new SeparateChainingMapGrow<>();
+    HashMap<Integer, Integer> hashMap = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      cuckoo.put(keys[i], i);
+      probing.put(keys[i], i);
+      chaining.put(keys[i], i);
+      hashMap.put(keys[i], i);
+    }
+    System.out.printf("%d keys, CuckooMap stash holds %d%n", cuckoo.size(), cuckoo.stashSize());
+
+    System.out.printf("%-24s %5s %9s %8s %8s %8s %9s%n", "", "", "avg ns", "p50", "p99", "p99.99", "max");
+    Benchmark.rounds(ROUNDS, report -> {
+      time("CuckooMap", report, cuckoo::get, hits, misses);
+      time("ProbingMap", report, probing::get, hits, misses);
+      time("SeparateChainingMapGrow", report, chaining::get, hits, misses);
+      time("java.util.HashMap", report, hashMap::get, hits, misses);
+    });
+
+    ConcurrentCuckooMap<Integer, Integer> concurrentCuckoo = new ConcurrentCuckooMap<>();
+    ConcurrentHashMap<Integer, Integer> concurrentHashMap = new ConcurrentHashMap<>();
+    for (int i = 0; i < n; i++) {
+      concurrentCuckoo.put(keys[i], i);
+      concurrentHashMap.put(keys[i], i);
+    }
+    System.out.printf("%n%d readers, 1 writer%n", threads);
+    Benchmark.rounds(CONCURRENT_ROUNDS, report -> {
+      concurrent("ConcurrentCuckooMap", report, threads, concurrentCuckoo::get, concurrentCuckoo::put, keys);
+      concurrent("ConcurrentHashMap", report, threads, concurrentHashMap::get, concurrentHashMap::put, keys);
+    });
+  }
+
+  private static void time(String name, boolean report, Function<Integer, Integer> get, Integer[] hits,
+      Integer[] misses) {
+    for (String kind : new String[] { "hit", "miss" }) {
+      Integer[] queries = kind.equals("hit") ? hits : misses;
+      long[] found = new long[1];
+      double average = Benchmark.nanos(() -> {
+        for (Integer query : queries) {
+          found[0] += get.apply(query) != null ? 1 : 0;
+        }
+        return found[0];
+      }) / (double) queries.length;
+
+      long[] latencies = new long[queries.length];
+      for (int i = 0; i < queries.length; i++) {
+        Integer query = queries[i];
+        latencies[i] = Benchmark.nanos(() -> get.apply(query) != null ? 1 : 0);
+      }
+      Arrays.sort(latencies);
+      if (report) {
+        System.out.printf("%-24s %5s %9.1f %8d %8d %8d %9d   (%d found)%n", name, kind, average,
+            Benchmark.percentile(latencies, 0.5), Benchmark.percentile(latencies, 0.99),
+            Benchmark.percentile(latencies, 0.9999), latencies[latencies.length - 1], found[0]);
+      }
+    }
+  }
+
+  private interface Put {
+    void put(Integer key, Integer value);
+  }
+
+  private static void concurrent(String name, boolean report, int threads, Function<Integer, Integer> get, Put put,
+      Integer[] keys) throws InterruptedException {
+    AtomicBoolean done = new AtomicBoolean();
+    LongAdder reads = new LongAdder();
+    Thread[] readers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      int seed = t;
+      readers[t] = new Thread(() -> {
+        Random random = new Random(seed);
+        long count = 0;
+        while (!done.get()) {
+          for (int i = 0; i < 1000; i++) {
+            get.apply(keys[random.nextInt(keys.length)]);
+          }
+          count += 1000;
+        }
+        reads.add(count);
+      });
+    }
+    Thread writer = new Thread(() -> {
+      Random random = new Random(-1);
+      while (!done.get()) {
+        Integer key = keys[random.nextInt(keys.length)];
+        put.put(key, key);
+      }
+    });
+    for (Thread reader : readers) {
+      reader.start();
+    }
+    writer.start();
+    Thread.sleep(CONCURRENT_MILLIS);
+    done.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    writer.join();
+    if (report) {
+      System.out.printf("%-24s %8.1f M reads/s%n", name, reads.sum() / (CONCURRENT_MILLIS * 1000.0));
+    }
+  }
+}
@@ -0,0 +1,635 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Makes a TreeMap, ProbingMap or SeparateChainingMapGrow survive crashes.
+ *
+ * Every put and remove is first appended to a write-ahead log and then applied
+ * to the map in memory. Every checkpointEvery records, the whole map is saved
+ * with MapSnapshot and a new log is started. Opening the directory again loads
+ * the newest snapshot and replays the logs written after it.
+ *
+ * The directory holds snapshot-G.bin and wal-G.log files. snapshot-G holds
+ * everything from the logs before generation G, so recovery loads the highest
+ * G and replays wal-G, wal-G+1 and so on in order. Each log record is
+ *
+ * type (byte) | key | value | crc (int)
+ *
+ * with fixed-width keys and values, so a record cut short by a crash, or one
+ * whose CRC32 does not match, marks the end of the log. It is cut off there,
+ * and everything before it is kept.
+ *
+ * How long put and remove wait for the disk depends on the durability:
+ *
+ * - PER_WRITE forces the log after every record.
+ *
+ * - PER_BATCH (group commit) lets records from many threads pile up while one
+ * of them forces the log, and then that one force covers them all. Every call
+ * still returns only once its own record is on disk.
+ *
+ * - PER_INTERVAL returns at once and forces the log every flushIntervalMillis
+ * from a background thread, so a crash can lose that much.
+ *
+ * All calls are safe from several threads; they take turns on one lock, which
+ * is let go while a PER_BATCH force is running. A checkpoint holds the lock
+ * while the snapshot is written, so other calls wait for it.
+ */
+public class DurableMap<K extends Comparable<? super K>, V> implements Map<K, V>, AutoCloseable {
+
+  public enum Durability {
+    PER_WRITE, PER_BATCH, PER_INTERVAL
+  }
+
+  public static final long DEFAULT_CHECKPOINT_EVERY = 1000000;
+  public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+  public static final int BUFFER_BYTES = 1 << 20;
+
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".bin";
+  private static final String LOG_PREFIX = "wal-";
+  private static final String LOG_SUFFIX = ".log";
+
+  private final Path directory;
+  private final Codec<K> keyCodec;
+  private final Codec<V> valueCodec;
+  private final MapSnapshot<K, V> snapshot;
+  private final Backing<K, V, ?> backing;
+  private final Durability durability;
+  private final int recordBytes;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition flushed = lock.newCondition();
+  private final CRC32 crc = new CRC32();
+  // records are appended to pending; while a PER_BATCH force is running, the
+  // batch being written sits in spare
+  private ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES);
+  private ByteBuffer spare = ByteBuffer.allocate(BUFFER_BYTES);
+  private FileChannel log;
+  private long generation;
+  private long appended;
+  private long durable;
+  private boolean flushing;
+  private boolean closed;
+  private IOException failure;
+  private long sinceCheckpoint;
+
+  private volatile long checkpointEvery = DEFAULT_CHECKPOINT_EVERY;
+  private volatile long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+  private final Thread flusher;
+
+  public static <K extends Comparable<? super K>, V> DurableMap<K, V> treeMap(Path directory, Codec<K> keyCodec,
+      Codec<V> valueCodec, Durability durability) throws IOException {
+    return new DurableMap<>(directory, keyCodec, valueCodec, durability,
+        new Backing<K, V, TreeMap<K, V>>(TreeMap::new, MapSnapshot::readTreeMap, MapSnapshot::write, TreeMap::size));
+  }
+
+  public static <K extends Comparable<? super K>, V> DurableMap<K, V> probingMap(Path directory, Codec<K> keyCodec,
+      Codec<V> valueCodec, Durability durability) throws IOException {
+    return new DurableMap<>(directory, keyCodec, valueCodec, durability, new Backing<K, V, ProbingMap<K, V>>(
+        ProbingMap::new, MapSnapshot::readProbingMap, MapSnapshot::write, ProbingMap::size));
+  }
+
+  public static <K extends Comparable<? super K>, V> DurableMap<K, V> separateChainingMap(Path directory,
+      Codec<K> keyCodec, Codec<V> valueCodec, Durability durability) throws IOException {
+    return new DurableMap<>(directory, keyCodec, valueCodec, durability,
+        new Backing<K, V, SeparateChainingMapGrow<K, V>>(SeparateChainingMapGrow::new,
+            MapSnapshot::readSeparateChainingMap, MapSnapshot::write, SeparateChainingMapGrow::getSize));
+  }
+
+  private DurableMap(Path directory, Codec<K> keyCodec, Codec<V> valueCodec, Durability durability,
+      Backing<K, V, ?> backing) throws IOException {
+    this.directory = directory;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.snapshot = new MapSnapshot<>(keyCodec, valueCodec);
+    this.backing = backing;
+    this.durability = durability;
+    this.recordBytes = 1 + keyCodec.width() + valueCodec.width() + Integer.BYTES;
+    recover();
+
+    if (durability == Durability.PER_INTERVAL) {
+      flusher = new Thread(this::flushPeriodically, "DurableMap flusher " + directory);
+      flusher.setDaemon(true);
+      flusher.start();
+    } else {
+      flusher = null;
+    }
+  }
+
+  @Override
+  public void put(K key, V value) {
+    lock.lock();
+    try {
+      checkOpen();
+      long record = append(PUT, key, value);
+      backing.map.put(key, value);
+      committed(record);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public V get(K key) {
+    lock.lock();
+    try {
+      checkOpen();
+      return backing.map.get(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public V remove(K key) {
+    lock.lock();
+    try {
+      checkOpen();
+      if (backing.map.get(key) == null) {
+        // nothing to remove, so nothing to log
+        return null;
+      }
+      long record = append(REMOVE, key, null);
+      V value = backing.map.remove(key);
+      committed(record);
+      return value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    lock.lock();
+    try {
+      return backing.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sets how many records are logged between automatic checkpoints.
+   */
+  public void setCheckpointEvery(long records) {
+    checkpointEvery = records;
+  }
+
+  /**
+   * Sets how often a PER_INTERVAL map forces its log.
+   */
+  public void setFlushIntervalMillis(long millis) {
+    flushIntervalMillis = millis;
+  }
+
+  /**
+   * Waits until every record logged so far is on disk.
+   */
+  public void sync() {
+    lock.lock();
+    try {
+      checkOpen();
+      awaitDurable(appended);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Saves the whole map as a new snapshot, starts a new log, and deletes the
+   * logs and snapshot it replaces.
+   */
+  public void checkpoint() throws IOException {
+    lock.lock();
+    try {
+      checkOpen();
+      awaitDurable(appended);
+
+      // from here on every record lands in the next generation's log
+      log.close();
+      generation++;
+      log = FileChannel.open(logFile(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+      backing.save(snapshot, snapshotFile(generation));
+      deleteBefore(generation);
+      sinceCheckpoint = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Forces everything to disk and closes the log. The map must not be used
+   * afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      if (failure == null) {
+        awaitDurable(appended);
+      }
+      closed = true;
+      log.close();
+      flushed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    if (flusher != null) {
+      flusher.interrupt();
+    }
+  }
+
+  // encodes a record into pending and returns its number
+  private long append(byte type, K key, V value) {
+    while (pending.remaining() < recordBytes) {
+      if (flushing) {
+        flushed.awaitUninterruptibly();
+        checkOpen();
+      } else {
+        writeOut();
+      }
+    }
+    int start = pending.position();
+    pending.put(start, type);
+    keyCodec.write(pending, start + 1, key);
+    int valueStart = start + 1 + keyCodec.width();
+    if (value != null) {
+      valueCodec.write(pending, valueStart, value);
+    } else {
+      for (int i = 0; i < valueCodec.width(); i++) {
+        pending.put(valueStart + i, (byte) 0);
+      }
+    }
+    int crcStart = valueStart + valueCodec.width();
+    crc.reset();
+    crc.update(pending.array(), start, crcStart - start);
+    pending.putInt(crcStart, (int) crc.getValue());
+    pending.position(start + recordBytes);
+    return ++appended;
+  }
+
+  // called with the record applied; waits as long as the durability asks for
+  private void committed(long record) {
+    if (durability == Durability.PER_WRITE) {
+      // a force running on another thread is writing earlier records with the
+      // lock let go; writing this one now could put it ahead of them
+      while (flushing) {
+        flushed.awaitUninterruptibly();
+      }
+      if (failure != null) {
+        throw new UncheckedIOException(failure);
+      }
+      if (durable < record) {
+        writeOut();
+        try {
+          log.force(false);
+        } catch (IOException e) {
+          fail(e);
+        }
+        // records appended while this thread waited went out with it
+        durable = appended;
+      }
+    } else if (durability == Durability.PER_BATCH) {
+      awaitDurable(record);
+    }
+
+    if (++sinceCheckpoint >= checkpointEvery) {
+      try {
+        checkpoint();
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+  }
+
+  /**
+   * Waits until record is on disk. If no force is running, this thread takes
+   * everything in pending, lets go of the lock while it writes and forces the
+   * log, and then wakes up everyone whose record went with it.
+   */
+  private void awaitDurable(long record) {
+    while (durable < record) {
+      if (failure != null) {
+        throw new UncheckedIOException(failure);
+      }
+      if (flushing) {
+        flushed.awaitUninterruptibly();
+        continue;
+      }
+
+      flushing = true;
+      long target = appended;
+      ByteBuffer batch = pending;
+      pending = spare;
+      spare = batch;
+      IOException error = null;
+      lock.unlock();
+      try {
+        batch.flip();
+        while (batch.hasRemaining()) {
+          log.write(batch);
+        }
+        log.force(false);
+      } catch (IOException e) {
+        error = e;
+      } finally {
+        batch.clear();
+        lock.lock();
+        flushing = false;
+      }
+      if (error != null) {
+        fail(error);
+      }
+      durable = Math.max(durable, target);
+      flushed.signalAll();
+    }
+  }
+
+  // writes pending to the log without forcing it; only while nobody is flushing
+  private void writeOut() {
+    pending.flip();
+    try {
+      while (pending.hasRemaining()) {
+        log.write(pending);
+      }
+    } catch (IOException e) {
+      fail(e);
+    } finally {
+      pending.clear();
+    }
+  }
+
+  private void fail(IOException e) {
+    failure = e;
+    flushed.signalAll();
+    throw new UncheckedIOException(e);
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("DurableMap is closed");
+    }
+    if (failure != null) {
+      throw new IllegalStateException("the log could not be written", failure);
+    }
+  }
+
+  private void flushPeriodically() {
+    while (true) {
+      try {
+        Thread.sleep(flushIntervalMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+      lock.lock();
+      try {
+        if (closed || failure != null) {
+          return;
+        }
+        awaitDurable(appended);
+      } catch (UncheckedIOException e) {
+        // failure is set, and the next call on the map reports it
+        return;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Loads the newest snapshot, replays the logs after it, cuts a torn record
+   * off the end of the last log, and opens that log for appending.
+   */
+  private void recover() throws IOException {
+    Files.createDirectories(directory);
+    long snapshotGeneration = -1;
+    List<Long> logs = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String name = file.getFileName().toString();
+        long fileGeneration = parseGeneration(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (fileGeneration >= 0) {
+          snapshotGeneration = Math.max(snapshotGeneration, fileGeneration);
+        }
+        fileGeneration = parseGeneration(name, LOG_PREFIX, LOG_SUFFIX);
+        if (fileGeneration >= 0) {
+          logs.add(fileGeneration);
+        }
+      }
+    }
+    Collections.sort(logs);
+
+    if (snapshotGeneration >= 0) {
+      backing.load(snapshot, snapshotFile(snapshotGeneration));
+      generation = snapshotGeneration;
+    } else {
+      backing.empty();
+      generation = 0;
+    }
+
+    for (int i = 0; i < logs.size(); i++) {
+      long logGeneration = logs.get(i);
+      if (logGeneration < generation) {
+        // already in the snapshot
+        continue;
+      }
+      boolean last = i == logs.size() - 1;
+      replay(logFile(logGeneration), last);
+      generation = logGeneration;
+    }
+    deleteBefore(generation);
+
+    log = FileChannel.open(logFile(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    log.position(log.size());
+  }
+
+  private void replay(Path file, boolean last) throws IOException {
+    long good = 0;
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES - BUFFER_BYTES % recordBytes);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      boolean torn = false;
+      while (!torn) {
+        buffer.clear();
+        int read = 0;
+        while (buffer.hasRemaining() && read >= 0) {
+          read = channel.read(buffer);
+        }
+        buffer.flip();
+        while (buffer.remaining() >= recordBytes) {
+          if (!applyRecord(buffer, buffer.position())) {
+            torn = true;
+            break;
+          }
+          buffer.position(buffer.position() + recordBytes);
+          good += recordBytes;
+          sinceCheckpoint++;
+        }
+        if (buffer.hasRemaining()) {
+          // a record cut short at the end of the file
+          torn = true;
+        }
+        if (read < 0 && !buffer.hasRemaining()) {
+          break;
+        }
+      }
+
+      if (good < channel.size()) {
+        if (!last) {
+          throw new IOException(file + " is damaged, but a later log exists");
+        }
+        channel.truncate(good);
+        channel.force(true);
+      }
+    }
+  }
+
+  // checks and applies one record; false if it is damaged
+  private boolean applyRecord(ByteBuffer buffer, int start) {
+    int crcStart = start + recordBytes - Integer.BYTES;
+    crc.reset();
+    crc.update(buffer.array(), start, crcStart - start);
+    if ((int) crc.getValue() != buffer.getInt(crcStart)) {
+      return false;
+    }
+    byte type = buffer.get(start);
+    K key = keyCodec.read(buffer, start + 1);
+    if (type == PUT) {
+      backing.map.put(key, valueCodec.read(buffer, start + 1 + keyCodec.width()));
+    } else if (type == REMOVE) {
+      backing.map.remove(key);
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private void deleteBefore(long keep) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String name = file.getFileName().toString();
+        long fileGeneration = Math.max(parseGeneration(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX),
+            parseGeneration(name, LOG_PREFIX, LOG_SUFFIX));
+        if (fileGeneration >= 0 && fileGeneration < keep) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  private static long parseGeneration(String name, String prefix, String suffix) {
+    if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private Path snapshotFile(long generation) {
+    return directory.resolve(SNAPSHOT_PREFIX + generation + SNAPSHOT_SUFFIX);
+  }
+
+  private Path logFile(long generation) {
+    return directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+  }
+
+  private interface SnapshotReader<K extends Comparable<? super K>, V, M> {
+    M read(MapSnapshot<K, V> snapshot, Path file) throws IOException;
+  }
+
+  private interface SnapshotWriter<K extends Comparable<? super K>, V, M> {
+    void write(MapSnapshot<K, V> snapshot, M map, Path file) throws IOException;
+  }
+
+  /**
+   * The map being made durable, with the ways to create, save and load it.
+   */
+  private static class Backing<K extends Comparable<? super K>, V, M extends Map<K, V>> {
+    private final Supplier<M> create;
+    private final SnapshotReader<K, V, M> reader;
+    private final SnapshotWriter<K, V, M> writer;
+    private final ToIntFunction<M> sizer;
+    M map;
+
+    Backing(Supplier<M> create, SnapshotReader<K, V, M> reader, SnapshotWriter<K, V, M> writer,
+        ToIntFunction<M> sizer) {
+      this.create = create;
+      this.reader = reader;
+      this.writer = writer;
+      this.sizer = sizer;
+    }
+
+    void empty() {
+      map = create.get();
+    }
+
+    void load(MapSnapshot<K, V> snapshot, Path file) throws IOException {
+      map = reader.read(snapshot, file);
+    }
+
+    void save(MapSnapshot<K, V> snapshot, Path file) throws IOException {
+      writer.write(snapshot, map, file);
+    }
+
+    int size() {
+      return sizer.applyAsInt(map);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path directory = Files.createTempDirectory("durable-map");
+
+    DurableMap<Long, Long> map = DurableMap.treeMap(directory, Codec.LONG, Codec.LONG, Durability.PER_BATCH);
+    for (long i = 0; i < 1000; i++) {
+      map.put(i, i * i);
+    }
+    map.remove(3L);
+    map.checkpoint();
+    for (long i = 1000; i < 1100; i++) {
+      map.put(i, i * i);
+    }
+
+    // simulate the process dying part way through writing a record: the map is
+    // never closed, and only the first few bytes of the record reach the log
+    Path lastLog;
+    try (Stream<Path> files = Files.list(directory)) {
+      lastLog = files.filter(file -> file.getFileName().toString().endsWith(LOG_SUFFIX)).findFirst().get();
+    }
+    try (FileChannel channel = FileChannel.open(lastLog, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[] { PUT, 0, 0, 0, 0, 0 }));
+    }
+
+    try (DurableMap<Long, Long> recovered = DurableMap.treeMap(directory, Codec.LONG, Codec.LONG,
+        Durability.PER_BATCH)) {
+      System.out.println(recovered.size()); // 1099
+      System.out.println(recovered.get(3L)); // null
+      System.out.println(recovered.get(1099L)); // 1207801
+      recovered.put(2000L, 1L);
+    }
+    try (DurableMap<Long, Long> reopened = DurableMap.treeMap(directory, Codec.LONG, Codec.LONG,
+        Durability.PER_WRITE)) {
+      System.out.println(reopened.get(2000L)); // 1
+    }
+  }
+}
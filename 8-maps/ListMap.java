@@ -1,3 +1,4 @@
+import java.util.Iterator;
 import java.util.LinkedList;
 
 public class ListMap<K extends Comparable<? super K>, V> implements Map<K, V> {
@@ -18,6 +19,19 @@ public class ListMap<K extends Comparable<? super K>, V> implements Map<K, V> {
     list.add(new Pair<K, V>(key, value));
   }
 
+  @Override
+  public V remove(K key) {
+    Iterator<Pair<K, V>> iterator = list.iterator();
+    while (iterator.hasNext()) {
+      Pair<K, V> pair = iterator.next();
+      if (pair.key.equals(key)) {
+        iterator.remove();
+        return pair.value;
+      }
+    }
+    return null;
+  }
+
   @Override
   public V get(K key) {
     for (Pair<K, V> pair : list) {
@@ -0,0 +1,312 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A map that holds at most capacity worth of entries and, when full, evicts the
+ * entry that was used least recently.
+ *
+ * The entries are hashed into chains like in SeparateChainingMapGrow, and the
+ * same entry objects are also linked into a recency list like
+ * DoublyLinkedList, between a head and a tail sentinel. The least recently
+ * used entry sits right after head. get and put move their entry to just
+ * before tail by unlinking it, and eviction unlinks head.next, so every
+ * operation is O(1) with no second lookup and no extra list nodes.
+ *
+ * Capacity counts entries, or with a weigher, the sum of the weights of the
+ * entries. An entry heavier than the whole capacity is evicted as soon as it
+ * is put, without evicting anything else; an entry it overwrites is removed.
+ * Eviction listeners hear about every entry evicted to make room, but
+ * not about removes or overwrites.
+ */
+public class LruCache<K, V> implements Map<K, V> {
+
+  public static final int SCALE_FACTOR = 2;
+  public static final int INITIAL_TABLE_SIZE = 8;
+  public static final double MAX_LOAD_FACTOR = 1.0;
+
+  private final long capacity;
+  private final ToLongBiFunction<? super K, ? super V> weigher;
+  private final List<BiConsumer<? super K, ? super V>> evictionListeners = new ArrayList<>();
+
+  private Entry<K, V>[] table;
+  private final Entry<K, V> head;
+  private final Entry<K, V> tail;
+  private int size;
+  private long weight;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * An entry is both a link in its hash chain and a node in the recency list.
+   */
+  private static class Entry<K, V> {
+    final K key;
+    V value;
+    long weight;
+    Entry<K, V> chain;
+    Entry<K, V> prev;
+    Entry<K, V> next;
+
+    Entry(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Holds at most capacity entries.
+   */
+  public LruCache(long capacity) {
+    this(capacity, (key, value) -> 1);
+  }
+
+  /**
+   * Holds entries whose weights, as given by weigher, add up to at most
+   * capacity.
+   */
+  @SuppressWarnings("unchecked")
+  public LruCache(long capacity, ToLongBiFunction<? super K, ? super V> weigher) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+    }
+    this.capacity = capacity;
+    this.weigher = weigher;
+    table = (Entry<K, V>[]) new Entry[INITIAL_TABLE_SIZE];
+    head = new Entry<>(null, null);
+    tail = new Entry<>(null, null);
+    head.next = tail;
+    tail.prev = head;
+  }
+
+  @Override
+  public void put(K key, V value) {
+    long entryWeight = weigher.applyAsLong(key, value);
+    if (entryWeight < 0) {
+      throw new IllegalArgumentException("weight of " + key + " is negative: " + entryWeight);
+    }
+
+    Entry<K, V> entry = find(key);
+    if (entryWeight > capacity) {
+      // it could never fit, so it goes on its own instead of the cache making
+      // room for it; the value it overwrites goes with it
+      if (entry != null) {
+        delete(entry);
+      }
+      evicted(key, value);
+      return;
+    }
+    if (entry != null) {
+      entry.value = value;
+      weight += entryWeight - entry.weight;
+      entry.weight = entryWeight;
+      unlink(entry);
+    } else {
+      if (size / (double) table.length > MAX_LOAD_FACTOR) {
+        upsize();
+      }
+      entry = new Entry<>(key, value);
+      entry.weight = entryWeight;
+      int index = getIndex(key, table.length);
+      entry.chain = table[index];
+      table[index] = entry;
+      size++;
+      weight += entryWeight;
+    }
+    linkLast(entry);
+    evict();
+  }
+
+  @Override
+  public V get(K key) {
+    Entry<K, V> entry = find(key);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    unlink(entry);
+    linkLast(entry);
+    return entry.value;
+  }
+
+  @Override
+  public V remove(K key) {
+    Entry<K, V> entry = find(key);
+    if (entry == null) {
+      return null;
+    }
+    delete(entry);
+    return entry.value;
+  }
+
+  /**
+   * Whether key is cached, without counting a hit or miss or making it recently
+   * used.
+   */
+  public boolean containsKey(K key) {
+    return find(key) != null;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * The sum of the weights of all entries; the same as size without a weigher.
+   */
+  public long weight() {
+    return weight;
+  }
+
+  public long capacity() {
+    return capacity;
+  }
+
+  public void clear() {
+    while (head.next != tail) {
+      delete(head.next);
+    }
+  }
+
+  /**
+   * Calls listener with the key and value of every entry evicted from now on.
+   */
+  public void addEvictionListener(BiConsumer<? super K, ? super V> listener) {
+    evictionListeners.add(listener);
+  }
+
+  public long hitCount() {
+    return hits;
+  }
+
+  public long missCount() {
+    return misses;
+  }
+
+  public long evictionCount() {
+    return evictions;
+  }
+
+  /**
+   * The share of gets that found their key, or 0 before the first get.
+   */
+  public double hitRate() {
+    long requests = hits + misses;
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+
+  /**
+   * Passes every entry to action, from least to most recently used.
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Entry<K, V> entry = head.next; entry != tail; entry = entry.next) {
+      action.accept(entry.key, entry.value);
+    }
+  }
+
+  // evicts least recently used entries until the cache fits its capacity
+  private void evict() {
+    while (weight > capacity) {
+      Entry<K, V> eldest = head.next;
+      delete(eldest);
+      evicted(eldest.key, eldest.value);
+    }
+  }
+
+  private void evicted(K key, V value) {
+    evictions++;
+    for (BiConsumer<? super K, ? super V> listener : evictionListeners) {
+      listener.accept(key, value);
+    }
+  }
+
+  private Entry<K, V> find(K key) {
+    for (Entry<K, V> entry = table[getIndex(key, table.length)]; entry != null; entry = entry.chain) {
+      if (key.equals(entry.key)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  // takes entry out of both its hash chain and the recency list
+  private void delete(Entry<K, V> entry) {
+    int index = getIndex(entry.key, table.length);
+    if (table[index] == entry) {
+      table[index] = entry.chain;
+    } else {
+      Entry<K, V> before = table[index];
+      while (before.chain != entry) {
+        before = before.chain;
+      }
+      before.chain = entry.chain;
+    }
+    entry.chain = null;
+    unlink(entry);
+    size--;
+    weight -= entry.weight;
+  }
+
+  private void unlink(Entry<K, V> entry) {
+    entry.prev.next = entry.next;
+    entry.next.prev = entry.prev;
+  }
+
+  private void linkLast(Entry<K, V> entry) {
+    entry.prev = tail.prev;
+    entry.next = tail;
+    tail.prev.next = entry;
+    tail.prev = entry;
+  }
+
+  private int getIndex(K key, int tableSize) {
+    int index = key.hashCode() % tableSize;
+    if (index < 0) {
+      index += tableSize;
+    }
+    return index;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void upsize() {
+    Entry<K, V>[] newTable = (Entry<K, V>[]) new Entry[table.length * SCALE_FACTOR];
+    // walking the recency list visits every entry once, without touching chains
+    for (Entry<K, V> entry = head.next; entry != tail; entry = entry.next) {
+      int index = getIndex(entry.key, newTable.length);
+      entry.chain = newTable[index];
+      newTable[index] = entry;
+    }
+    table = newTable;
+  }
+
+  public static void main(String[] args) {
+    LruCache<String, Integer> cache = new LruCache<>(3);
+    cache.addEvictionListener((key, value) -> System.out.print("evicted " + key + " "));
+    cache.put("a", 1);
+    cache.put("b", 2);
+    cache.put("c", 3);
+    cache.get("a");
+    cache.put("d", 4);
+    System.out.println(); // evicted b
+    cache.forEach((key, value) -> System.out.print(key + " "));
+    System.out.println(); // c a d
+    System.out.println(cache.get("b")); // null
+    System.out.println(cache.hitRate()); // 0.5
+
+    LruCache<String, String> bytes = new LruCache<>(10, (key, value) -> value.length());
+    bytes.put("x", "12345");
+    bytes.put("y", "1234");
+    bytes.put("z", "123");
+    System.out.println(bytes.weight() + " " + bytes.size()); // 7 2
+    bytes.put("big", "123456789012345");
+    System.out.println(bytes.weight() + " " + bytes.size() + " " + bytes.evictionCount()); // 7 2 2
+  }
+}
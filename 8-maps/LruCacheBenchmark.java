@@ -0,0 +1,69 @@
+import java.util.LinkedHashMap;
+
+/**
+ * Replays the same Zipf-distributed gets against LruCache and an access-ordered
+ * java.util.LinkedHashMap of the same capacity. A miss puts the key, as a
+ * read-through cache would. Prints the time and hit rate of each.
+ * java LruCacheBenchmark [keys] [capacity] [requests] [exponent]
+ */
+public class LruCacheBenchmark {
+
+  public static final int ROUNDS = 3;
+
+  public static void main(String[] args) {
+    int keys = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+    int requests = args.length > 2 ? Integer.parseInt(args[2]) : 10000000;
+    double exponent = args.length > 3 ? Double.parseDouble(args[3]) : 0.9;
+
+    Zipf zipf = new Zipf(keys, exponent, 42);
+    Integer[] trace = new Integer[requests];
+    for (int i = 0; i < requests; i++) {
+      trace[i] = zipf.next();
+    }
+
+    Benchmark.rounds(ROUNDS, report -> {
+      LruCache<Integer, Integer> cache = new LruCache<>(capacity);
+      long nanos = Benchmark.nanos(() -> {
+        for (Integer key : trace) {
+          if (cache.get(key) == null) {
+            cache.put(key, key);
+          }
+        }
+        return cache.size();
+      });
+      if (report) {
+        print("LruCache", nanos, cache.hitCount(), requests);
+      }
+
+      LinkedHashMap<Integer, Integer> linked = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(java.util.Map.Entry<Integer, Integer> eldest) {
+          return size() > capacity;
+        }
+      };
+      long[] hits = new long[1];
+      nanos = Benchmark.nanos(() -> {
+        for (Integer key : trace) {
+          if (linked.get(key) == null) {
+            linked.put(key, key);
+          } else {
+            hits[0]++;
+          }
+        }
+        return linked.size();
+      });
+      if (report) {
+        print("LinkedHashMap", nanos, hits[0], requests);
+      }
+    });
+  }
+
+  private static void print(String name, long nanos, long hits, int requests) {
+    double millis = nanos / 1e6;
+    System.out.printf("%-14s %8.1f ms %7.1f Mops/s  hit rate %.4f%n", name, millis, requests / millis / 1e3,
+        (double) hits / requests);
+  }
+}
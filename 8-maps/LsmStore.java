@@ -0,0 +1,964 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A log-structured merge tree: a map that keeps most of its entries in sorted
+ * files on disk and only the newest ones in memory.
+ *
+ * Puts and removes go into a TreeMap, the memtable. Once it holds
+ * memtableEntries keys it is frozen, a fresh one takes its place, and a
+ * background thread writes the frozen one to disk as a table. Tables are never
+ * changed after that. A remove writes a tombstone, which hides the key in
+ * every older table.
+ *
+ * A get looks in the memtable, then the frozen memtables, then the tables from
+ * newest to oldest, and stops at the first one that has the key. Each table has
+ * a BloomFilter of its keys, so most tables without the key are skipped
+ * without touching the disk, and a sparse index holding every INDEX_INTERVAL-th
+ * key, so a table that may have the key is read one block at a time.
+ *
+ * A second background thread compacts the tables: whenever COMPACTION_TRIGGER
+ * tables next to each other in age have about the same size, it merges them
+ * into one, keeping the newest value of each key. Tombstones are dropped when
+ * the oldest table takes part, since nothing older is left for them to hide.
+ * Each entry is rewritten about once per size tier, which keeps the write
+ * amplification logarithmic in the size of the store.
+ *
+ * A table covering memtables min to max is stored as sst-min-max.dat:
+ *
+ * magic (long) | count (int) | hash count (int) | bloom words (int) | key width
+ * (int) | value width (int) | padding | records | index keys | bloom words
+ *
+ * with each record being
+ *
+ * deleted (byte) | key | value
+ *
+ * Tables are written to a temporary file and moved into place, so a crash
+ * never leaves half a table. If a crash comes between writing a compacted
+ * table and deleting its inputs, the inputs are deleted on the next open,
+ * since the new table's range covers theirs. The memtable itself is not
+ * logged: entries not yet flushed by flush() or close() are lost in a crash.
+ */
+public class LsmStore<K extends Comparable<? super K>, V> implements Map<K, V>, AutoCloseable {
+
+  public static final int DEFAULT_MEMTABLE_ENTRIES = 1 << 16;
+  public static final int MAX_FROZEN_MEMTABLES = 2;
+  public static final int COMPACTION_TRIGGER = 4;
+  public static final int INDEX_INTERVAL = 64;
+  public static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+  public static final int BUFFER_BYTES = 1 << 20;
+
+  private static final long MAGIC = 0x4177736d53537431L; // "AwsmSSt1"
+  private static final int HEADER_BYTES = 32;
+  private static final byte LIVE = 0;
+  private static final byte DELETED = 1;
+  private static final String TABLE_PREFIX = "sst-";
+  private static final String TABLE_SUFFIX = ".dat";
+  // stands for a removed key in memtables and merges
+  private static final Object TOMBSTONE = new Object();
+
+  private final Path directory;
+  private final Codec<K> keyCodec;
+  private final Codec<V> valueCodec;
+  private final int recordBytes;
+  private final int memtableEntries;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Condition changed = lock.writeLock().newCondition();
+  private Memtable memtable;
+  // newest first
+  private List<Memtable> frozen = new ArrayList<>();
+  // newest first; replaced, never changed, so a copy can be used outside the lock
+  private List<Table> tables = new ArrayList<>();
+  private long nextSequence;
+  private boolean closed;
+  private Exception failure;
+
+  private long userBytes;
+  private long diskBytes;
+  private int compactions;
+
+  private final Thread flusher;
+  private final Thread compactor;
+
+  public LsmStore(Path directory, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+    this(directory, keyCodec, valueCodec, DEFAULT_MEMTABLE_ENTRIES);
+  }
+
+  public LsmStore(Path directory, Codec<K> keyCodec, Codec<V> valueCodec, int memtableEntries) throws IOException {
+    this.directory = directory;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.recordBytes = 1 + keyCodec.width() + valueCodec.width();
+    this.memtableEntries = memtableEntries;
+    if (recordBytes > BUFFER_BYTES || memtableEntries < 1) {
+      throw new IllegalArgumentException("records of " + recordBytes + " bytes, " + memtableEntries + " per memtable");
+    }
+    openTables();
+    memtable = new Memtable(nextSequence++);
+
+    flusher = new Thread(this::flushFrozen, "LsmStore flusher " + directory);
+    compactor = new Thread(this::compactTables, "LsmStore compactor " + directory);
+    flusher.setDaemon(true);
+    compactor.setDaemon(true);
+    flusher.start();
+    compactor.start();
+  }
+
+  @Override
+  public void put(K key, V value) {
+    lock.writeLock().lock();
+    try {
+      checkOpen();
+      memtable.entries.put(key, value);
+      userBytes += recordBytes;
+      freezeIfFull();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    lock.readLock().lock();
+    try {
+      checkOpen();
+      Object value = find(key);
+      return value == TOMBSTONE ? null : (V) value;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V remove(K key) {
+    lock.writeLock().lock();
+    try {
+      checkOpen();
+      Object value = find(key);
+      if (value == null || value == TOMBSTONE) {
+        return null;
+      }
+      memtable.entries.put(key, TOMBSTONE);
+      userBytes += recordBytes;
+      freezeIfFull();
+      return (V) value;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Passes every entry with from <= key < to to action in key order. Writers
+   * wait until the scan is done.
+   */
+  @SuppressWarnings("unchecked")
+  public void scan(K from, K to, BiConsumer<? super K, ? super V> action) {
+    lock.readLock().lock();
+    try {
+      checkOpen();
+      List<Iterator<Pair<K, Object>>> sources = new ArrayList<>();
+      sources.add(memtable.range(from, to));
+      for (Memtable m : frozen) {
+        sources.add(m.range(from, to));
+      }
+      for (Table table : tables) {
+        sources.add(table.cursor(from, to));
+      }
+      merge(sources, (key, value) -> {
+        if (value != TOMBSTONE) {
+          action.accept(key, (V) value);
+        }
+      });
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Writes the memtable to disk and waits until every frozen memtable is a
+   * table.
+   */
+  public void flush() {
+    lock.writeLock().lock();
+    try {
+      checkOpen();
+      if (memtable.entries.size() > 0) {
+        freeze();
+      }
+      while (!frozen.isEmpty()) {
+        changed.awaitUninterruptibly();
+        checkOpen();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Bytes written to tables, flushes and compactions together, per byte put or
+   * removed.
+   */
+  public double writeAmplification() {
+    lock.readLock().lock();
+    try {
+      return userBytes == 0 ? 0 : (double) diskBytes / userBytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int tableCount() {
+    lock.readLock().lock();
+    try {
+      return tables.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int compactionCount() {
+    lock.readLock().lock();
+    try {
+      return compactions;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Writes the memtable to disk, lets running compactions finish and closes
+   * every table.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      if (memtable.entries.size() > 0) {
+        frozen.add(0, memtable);
+        memtable = new Memtable(nextSequence++);
+      }
+      closed = true;
+      changed.signalAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    try {
+      flusher.join();
+      compactor.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (Table table : tables) {
+      table.channel.close();
+    }
+    if (failure != null) {
+      throw new IOException("background work on " + directory + " failed", failure);
+    }
+  }
+
+  // the newest value, TOMBSTONE, or null if no table has key
+  private Object find(K key) {
+    Object value = memtable.entries.get(key);
+    if (value != null) {
+      return value;
+    }
+    for (Memtable m : frozen) {
+      value = m.entries.get(key);
+      if (value != null) {
+        return value;
+      }
+    }
+    if (tables.isEmpty()) {
+      return null;
+    }
+    long hash = hash(key);
+    for (Table table : tables) {
+      value = table.get(key, hash);
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  // called with the write lock held
+  private void freezeIfFull() {
+    while (memtable.entries.size() >= memtableEntries) {
+      if (frozen.size() < MAX_FROZEN_MEMTABLES) {
+        freeze();
+        return;
+      }
+      // the flusher is behind, so writers wait for it
+      changed.awaitUninterruptibly();
+      checkOpen();
+    }
+  }
+
+  private void freeze() {
+    frozen.add(0, memtable);
+    memtable = new Memtable(nextSequence++);
+    changed.signalAll();
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("LsmStore is closed");
+    }
+    if (failure != null) {
+      throw new IllegalStateException("background work on " + directory + " failed", failure);
+    }
+  }
+
+  private void fail(Exception e) {
+    lock.writeLock().lock();
+    try {
+      if (failure == null) {
+        failure = e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : e;
+      }
+      changed.signalAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // runs on the flusher thread: turns frozen memtables into tables, oldest first
+  private void flushFrozen() {
+    try {
+      while (true) {
+        Memtable oldest;
+        lock.writeLock().lock();
+        try {
+          while (frozen.isEmpty() && !closed && failure == null) {
+            changed.awaitUninterruptibly();
+          }
+          if (frozen.isEmpty() || failure != null) {
+            return;
+          }
+          oldest = frozen.get(frozen.size() - 1);
+        } finally {
+          lock.writeLock().unlock();
+        }
+
+        Table table = writeTable(oldest.sequence, oldest.sequence, oldest.entries::forEach, oldest.entries.size(),
+            false);
+
+        lock.writeLock().lock();
+        try {
+          List<Table> next = new ArrayList<>(tables.size() + 1);
+          next.add(table);
+          next.addAll(tables);
+          tables = next;
+          frozen.remove(oldest);
+          diskBytes += table.bytes;
+          changed.signalAll();
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      fail(e);
+    }
+  }
+
+  // runs on the compactor thread
+  private void compactTables() {
+    try {
+      while (true) {
+        List<Table> inputs;
+        boolean oldest;
+        lock.writeLock().lock();
+        try {
+          while ((inputs = pickCompaction()) == null && !closed && failure == null) {
+            changed.awaitUninterruptibly();
+          }
+          if (closed || failure != null) {
+            return;
+          }
+          oldest = inputs.get(inputs.size() - 1) == tables.get(tables.size() - 1);
+        } finally {
+          lock.writeLock().unlock();
+        }
+
+        List<Iterator<Pair<K, Object>>> sources = new ArrayList<>();
+        long count = 0;
+        for (Table input : inputs) {
+          sources.add(input.cursor(null, null));
+          count += input.count;
+        }
+        Table output = writeTable(inputs.get(inputs.size() - 1).minSequence, inputs.get(0).maxSequence,
+            action -> merge(sources, action), count, oldest);
+
+        lock.writeLock().lock();
+        try {
+          List<Table> next = new ArrayList<>(tables);
+          int at = next.indexOf(inputs.get(0));
+          next.removeAll(inputs);
+          next.add(at, output);
+          tables = next;
+          diskBytes += output.bytes;
+          compactions++;
+          changed.signalAll();
+        } finally {
+          lock.writeLock().unlock();
+        }
+        // readers that could still see the inputs held the read lock, and are done
+        for (Table input : inputs) {
+          input.channel.close();
+          Files.delete(input.file);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Finds the newest COMPACTION_TRIGGER tables in a row that are in the same
+   * size tier, or returns null.
+   */
+  private List<Table> pickCompaction() {
+    for (int i = 0; i + COMPACTION_TRIGGER <= tables.size(); i++) {
+      int tier = tier(tables.get(i));
+      int j = i + 1;
+      while (j < i + COMPACTION_TRIGGER && tier(tables.get(j)) == tier) {
+        j++;
+      }
+      if (j == i + COMPACTION_TRIGGER) {
+        return new ArrayList<>(tables.subList(i, j));
+      }
+    }
+    return null;
+  }
+
+  // 0 for tables up to COMPACTION_TRIGGER memtables, 1 for the next factor, ...
+  private int tier(Table table) {
+    long memtables = table.count / memtableEntries;
+    int tier = 0;
+    while (memtables >= COMPACTION_TRIGGER) {
+      memtables /= COMPACTION_TRIGGER;
+      tier++;
+    }
+    return tier;
+  }
+
+  /**
+   * Merges sorted sources, newest first, passing each key once with the value
+   * from the newest source that has it.
+   */
+  private void merge(List<Iterator<Pair<K, Object>>> sources, BiConsumer<K, Object> action) {
+    PriorityQueue<Source<K>> queue = new PriorityQueue<>();
+    for (int i = 0; i < sources.size(); i++) {
+      Source<K> source = new Source<>(sources.get(i), i);
+      if (source.advance()) {
+        queue.add(source);
+      }
+    }
+    while (!queue.isEmpty()) {
+      Source<K> newest = queue.poll();
+      Pair<K, Object> entry = newest.current;
+      action.accept(entry.key, entry.value);
+      if (newest.advance()) {
+        queue.add(newest);
+      }
+      // older values of the same key are hidden
+      while (!queue.isEmpty() && queue.peek().current.key.compareTo(entry.key) == 0) {
+        Source<K> older = queue.poll();
+        if (older.advance()) {
+          queue.add(older);
+        }
+      }
+    }
+  }
+
+  private static class Source<K extends Comparable<? super K>> implements Comparable<Source<K>> {
+    private final Iterator<Pair<K, Object>> entries;
+    private final int age;
+    Pair<K, Object> current;
+
+    Source(Iterator<Pair<K, Object>> entries, int age) {
+      this.entries = entries;
+      this.age = age;
+    }
+
+    boolean advance() {
+      current = entries.hasNext() ? entries.next() : null;
+      return current != null;
+    }
+
+    @Override
+    public int compareTo(Source<K> o) {
+      int compareResult = current.key.compareTo(o.current.key);
+      return compareResult != 0 ? compareResult : Integer.compare(age, o.age);
+    }
+  }
+
+  private long hash(K key) {
+    ByteBuffer encoded = ByteBuffer.allocate(keyCodec.width());
+    keyCodec.write(encoded, 0, key);
+    return BloomFilter.hash(encoded, 0, keyCodec.width());
+  }
+
+  private Object decode(ByteBuffer buffer, int offset) {
+    if (buffer.get(offset) == DELETED) {
+      return TOMBSTONE;
+    }
+    return valueCodec.read(buffer, offset + 1 + keyCodec.width());
+  }
+
+  /**
+   * Writes the entries given by entries to a new table file. expectedCount
+   * sizes the Bloom filter and may be more than the entries written.
+   */
+  @SuppressWarnings("unchecked")
+  private Table writeTable(long minSequence, long maxSequence, Consumer<BiConsumer<K, Object>> entries,
+      long expectedCount, boolean dropTombstones) throws IOException {
+    Path file = tableFile(minSequence, maxSequence);
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    List<K> index = new ArrayList<>();
+    BloomFilter bloom = new BloomFilter(expectedCount, BLOOM_FALSE_POSITIVE_RATE);
+    int keyWidth = keyCodec.width();
+    int[] count = new int[1];
+
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+      channel.position(HEADER_BYTES);
+      try {
+        entries.accept((key, value) -> {
+          if (dropTombstones && value == TOMBSTONE) {
+            return;
+          }
+          if (buffer.remaining() < recordBytes) {
+            drain(channel, buffer);
+          }
+          int position = buffer.position();
+          if (count[0] % INDEX_INTERVAL == 0) {
+            index.add(key);
+          }
+          // the buffer is reused, so clear what an earlier record left here;
+          // a codec that does not fill its width must hash the same as in
+          // hash(), which encodes into zeroed bytes
+          for (int i = 1; i < recordBytes; i++) {
+            buffer.put(position + i, (byte) 0);
+          }
+          keyCodec.write(buffer, position + 1, key);
+          if (value == TOMBSTONE) {
+            buffer.put(position, DELETED);
+          } else {
+            buffer.put(position, LIVE);
+            valueCodec.write(buffer, position + 1 + keyWidth, (V) value);
+          }
+          bloom.add(BloomFilter.hash(buffer, position + 1, keyWidth));
+          buffer.position(position + recordBytes);
+          count[0]++;
+        });
+        for (K key : index) {
+          if (buffer.remaining() < keyWidth) {
+            drain(channel, buffer);
+          }
+          for (int i = 0; i < keyWidth; i++) {
+            buffer.put(buffer.position() + i, (byte) 0);
+          }
+          keyCodec.write(buffer, buffer.position(), key);
+          buffer.position(buffer.position() + keyWidth);
+        }
+        for (long word : bloom.words()) {
+          if (buffer.remaining() < Long.BYTES) {
+            drain(channel, buffer);
+          }
+          buffer.putLong(word);
+        }
+        drain(channel, buffer);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+
+      buffer.putLong(MAGIC);
+      buffer.putInt(count[0]);
+      buffer.putInt(bloom.hashCount());
+      buffer.putInt(bloom.words().length);
+      buffer.putInt(keyCodec.width());
+      buffer.putInt(valueCodec.width());
+      buffer.position(HEADER_BYTES);
+      buffer.flip();
+      long position = 0;
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    return new Table(file, minSequence, maxSequence, count[0], index, bloom, channel);
+  }
+
+  // writes out everything in buffer and empties it
+  private static void drain(FileChannel channel, ByteBuffer buffer) {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer.clear();
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("table ended early");
+      }
+      position += read;
+    }
+    buffer.flip();
+  }
+
+  /**
+   * Opens every table in the directory. Deletes leftover temporary files and
+   * tables whose range another table covers, which a compaction replaced.
+   */
+  private void openTables() throws IOException {
+    Files.createDirectories(directory);
+    List<long[]> ranges = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(TABLE_PREFIX) && name.endsWith(TABLE_SUFFIX + ".tmp")) {
+          Files.delete(file);
+        } else if (name.startsWith(TABLE_PREFIX) && name.endsWith(TABLE_SUFFIX)) {
+          String[] parts = name.substring(TABLE_PREFIX.length(), name.length() - TABLE_SUFFIX.length()).split("-");
+          if (parts.length == 2) {
+            ranges.add(new long[] { Long.parseLong(parts[0]), Long.parseLong(parts[1]) });
+          }
+        }
+      }
+    }
+
+    List<long[]> live = new ArrayList<>();
+    for (long[] range : ranges) {
+      boolean covered = false;
+      for (long[] other : ranges) {
+        if (other != range && other[0] <= range[0] && range[1] <= other[1]) {
+          covered = true;
+        }
+      }
+      if (covered) {
+        Files.delete(tableFile(range[0], range[1]));
+      } else {
+        live.add(range);
+      }
+    }
+    live.sort((a, b) -> Long.compare(b[1], a[1]));
+
+    for (long[] range : live) {
+      tables.add(openTable(range[0], range[1]));
+      nextSequence = Math.max(nextSequence, range[1] + 1);
+    }
+  }
+
+  private Table openTable(long minSequence, long maxSequence) throws IOException {
+    Path file = tableFile(minSequence, maxSequence);
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      readFully(channel, header, 0);
+      if (header.getLong() != MAGIC) {
+        throw new IOException(file + " is not a table");
+      }
+      int count = header.getInt();
+      int hashCount = header.getInt();
+      int words = header.getInt();
+      int keyWidth = header.getInt();
+      int valueWidth = header.getInt();
+      if (keyWidth != keyCodec.width() || valueWidth != valueCodec.width()) {
+        throw new IOException(file + " has keys of " + keyWidth + " bytes and values of " + valueWidth + " bytes");
+      }
+
+      long indexOffset = HEADER_BYTES + (long) count * recordBytes;
+      int indexKeys = (count + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+      ByteBuffer tail = ByteBuffer.allocate(indexKeys * keyWidth + words * Long.BYTES);
+      if (indexOffset + tail.capacity() != channel.size()) {
+        throw new IOException(file + " should hold " + count + " records but its size does not match");
+      }
+      readFully(channel, tail, indexOffset);
+      List<K> index = new ArrayList<>(indexKeys);
+      for (int i = 0; i < indexKeys; i++) {
+        index.add(keyCodec.read(tail, i * keyWidth));
+      }
+      long[] bits = new long[words];
+      tail.position(indexKeys * keyWidth);
+      tail.asLongBuffer().get(bits);
+      return new Table(file, minSequence, maxSequence, count, index, new BloomFilter(bits, hashCount), channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private Path tableFile(long minSequence, long maxSequence) {
+    return directory.resolve(TABLE_PREFIX + minSequence + "-" + maxSequence + TABLE_SUFFIX);
+  }
+
+  private class Memtable {
+    final TreeMap<K, Object> entries = new TreeMap<>();
+    final long sequence;
+
+    Memtable(long sequence) {
+      this.sequence = sequence;
+    }
+
+    Iterator<Pair<K, Object>> range(K from, K to) {
+      List<Pair<K, Object>> pairs = new ArrayList<>();
+      entries.forEachInRange(from, to, (key, value) -> pairs.add(new Pair<>(key, value)));
+      return pairs.iterator();
+    }
+  }
+
+  /**
+   * An open table file with its sparse index and Bloom filter in memory. Reads
+   * use positional reads, so any number of threads can share it. Interrupting a
+   * thread while it reads closes the channel for everyone, so the channel is
+   * opened again when that happens.
+   */
+  private class Table {
+    final Path file;
+    final long minSequence;
+    final long maxSequence;
+    final int count;
+    final long bytes;
+    final List<K> index;
+    final BloomFilter bloom;
+    volatile FileChannel channel;
+
+    Table(Path file, long minSequence, long maxSequence, int count, List<K> index, BloomFilter bloom,
+        FileChannel channel) throws IOException {
+      this.file = file;
+      this.minSequence = minSequence;
+      this.maxSequence = maxSequence;
+      this.count = count;
+      this.bytes = channel.size();
+      this.index = index;
+      this.bloom = bloom;
+      this.channel = channel;
+    }
+
+    // the value, TOMBSTONE, or null if key is not in this table
+    Object get(K key, long hash) {
+      if (!bloom.mightContain(hash)) {
+        return null;
+      }
+      int block = floorBlock(key);
+      if (block < 0) {
+        return null;
+      }
+      int first = block * INDEX_INTERVAL;
+      int records = Math.min(INDEX_INTERVAL, count - first);
+      ByteBuffer buffer = ByteBuffer.allocate(records * recordBytes);
+      read(buffer, HEADER_BYTES + (long) first * recordBytes);
+
+      int low = 0;
+      int high = records - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int compareResult = keyCodec.compare(key, buffer, middle * recordBytes + 1);
+        if (compareResult < 0) {
+          high = middle - 1;
+        } else if (compareResult > 0) {
+          low = middle + 1;
+        } else {
+          return decode(buffer, middle * recordBytes);
+        }
+      }
+      return null;
+    }
+
+    void read(ByteBuffer buffer, long position) {
+      int start = buffer.position();
+      while (true) {
+        FileChannel current = channel;
+        try {
+          readFully(current, buffer, position);
+          return;
+        } catch (ClosedByInterruptException e) {
+          // this thread was interrupted, others should carry on
+          reopen(current);
+          throw new UncheckedIOException(e);
+        } catch (ClosedChannelException e) {
+          // another thread was interrupted while reading
+          reopen(current);
+          buffer.position(start);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+
+    private synchronized void reopen(FileChannel closed) {
+      if (channel == closed) {
+        try {
+          channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+
+    // the last block whose first key is at most key, or -1
+    int floorBlock(K key) {
+      int low = 0;
+      int high = index.size() - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        if (index.get(middle).compareTo(key) <= 0) {
+          low = middle + 1;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return high;
+    }
+
+    /**
+     * Entries with from <= key < to in key order; null means no bound.
+     */
+    Iterator<Pair<K, Object>> cursor(K from, K to) {
+      int start = from == null ? 0 : Math.max(0, floorBlock(from)) * INDEX_INTERVAL;
+      return new TableCursor(this, start, from, to);
+    }
+  }
+
+  private class TableCursor implements Iterator<Pair<K, Object>> {
+    private final Table table;
+    private final K from;
+    private final K to;
+    private final ByteBuffer buffer;
+    private final int bufferRecords;
+    private int next;
+    private int bufferFirst;
+    private int buffered;
+    private Pair<K, Object> lookahead;
+
+    TableCursor(Table table, int start, K from, K to) {
+      this.table = table;
+      this.from = from;
+      this.to = to;
+      this.bufferRecords = Math.max(1, Math.min(table.count, BUFFER_BYTES / 16 / recordBytes));
+      this.buffer = ByteBuffer.allocate(bufferRecords * recordBytes);
+      this.next = start;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (lookahead == null) {
+        lookahead = read();
+      }
+      return lookahead != null;
+    }
+
+    @Override
+    public Pair<K, Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Pair<K, Object> pair = lookahead;
+      lookahead = null;
+      return pair;
+    }
+
+    private Pair<K, Object> read() {
+      while (next < table.count) {
+        if (next >= bufferFirst + buffered || next < bufferFirst) {
+          load();
+        }
+        int offset = (next - bufferFirst) * recordBytes;
+        next++;
+        K key = keyCodec.read(buffer, offset + 1);
+        if (from != null && key.compareTo(from) < 0) {
+          continue;
+        }
+        if (to != null && key.compareTo(to) >= 0) {
+          next = table.count;
+          return null;
+        }
+        return new Pair<>(key, decode(buffer, offset));
+      }
+      return null;
+    }
+
+    private void load() {
+      bufferFirst = next;
+      buffered = Math.min(bufferRecords, table.count - next);
+      buffer.clear();
+      buffer.limit(buffered * recordBytes);
+      table.read(buffer, HEADER_BYTES + (long) next * recordBytes);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path directory = Files.createTempDirectory("lsm-store");
+    try (LsmStore<Long, Long> store = new LsmStore<>(directory, Codec.LONG, Codec.LONG, 10000)) {
+      for (long i = 0; i < 200000; i++) {
+        store.put(i * 7 % 200000, i);
+      }
+      for (long i = 0; i < 200000; i += 2) {
+        store.remove(i);
+      }
+      store.flush();
+      System.out.println(store.get(7L)); // 1
+      System.out.println(store.get(8L)); // null
+      long[] sum = new long[1];
+      store.scan(100L, 110L, (key, value) -> sum[0] += key);
+      System.out.println(sum[0]); // 525
+    }
+
+    try (LsmStore<Long, Long> reopened = new LsmStore<>(directory, Codec.LONG, Codec.LONG, 10000)) {
+      System.out.println(reopened.get(7L)); // 1
+      System.out.println(reopened.get(8L)); // null
+    }
+
+    // string keys leave part of their width unused, and the write buffer is
+    // reused across drains, so every key must still pass the Bloom filter
+    Path strings = Files.createTempDirectory("lsm-store");
+    try (LsmStore<String, Long> store = new LsmStore<>(strings, Codec.string(24), Codec.LONG, 10000)) {
+      for (long i = 0; i < 200000; i++) {
+        store.put("key" + i, i);
+      }
+      store.flush();
+      int found = 0;
+      for (long i = 0; i < 200000; i++) {
+        found += store.get("key" + i) != null ? 1 : 0;
+      }
+      System.out.println(found); // 200000
+    }
+  }
+}
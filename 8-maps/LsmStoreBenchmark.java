@@ -0,0 +1,64 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Loads n random long keys into an LsmStore, a quarter of them overwrites,
+ * and reports the write amplification, then the latency of gets for keys that
+ * are there and keys that are not, and the speed of range scans.
+ * java LsmStoreBenchmark 5000000
+ */
+public class LsmStoreBenchmark {
+
+  private static final int SAMPLES = 200000;
+
+  public static void main(String[] args) throws IOException {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    Path directory = Files.createTempDirectory("lsm-store-benchmark");
+    Random random = new Random(42);
+
+    try (LsmStore<Long, Long> store = new LsmStore<>(directory, Codec.LONG, Codec.LONG)) {
+      Benchmark.time("put " + n + " entries", true, () -> {
+        for (int i = 0; i < n; i++) {
+          // even keys only, so odd keys are known to be missing
+          store.put(2L * random.nextInt(n), (long) i);
+        }
+        store.flush();
+        return store.tableCount();
+      });
+      System.out.printf("write amplification %.2f (%d tables, %d compactions)%n", store.writeAmplification(),
+          store.tableCount(), store.compactionCount());
+
+      long[] hits = new long[SAMPLES];
+      long[] misses = new long[SAMPLES];
+      long[] found = new long[1];
+      for (int i = 0; i < SAMPLES; i++) {
+        long key = 2L * random.nextInt(n);
+        hits[i] = Benchmark.nanos(() -> found[0] += store.get(key) == null ? 0 : 1);
+        misses[i] = Benchmark.nanos(() -> store.get(key + 1) == null ? 0 : 1);
+      }
+      print("get, key maybe there", hits);
+      print("get, key missing", misses);
+      System.out.println(found[0] + " of " + SAMPLES + " random keys were there");
+
+      Benchmark.time("1000 scans of 1000 keys", true, () -> {
+        long[] scanned = new long[1];
+        for (int i = 0; i < 1000; i++) {
+          long from = 2L * random.nextInt(n);
+          store.scan(from, from + 2000, (key, value) -> scanned[0]++);
+        }
+        return scanned[0];
+      });
+    }
+  }
+
+  private static void print(String name, long[] nanos) {
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    System.out.printf("%-21s p50 %6.1f us  p99 %6.1f us  p99.9 %6.1f us%n", name,
+        Benchmark.percentile(sorted, 0.5) / 1e3, Benchmark.percentile(sorted, 0.99) / 1e3,
+        Benchmark.percentile(sorted, 0.999) / 1e3);
+  }
+}
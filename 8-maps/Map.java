@@ -3,4 +3,9 @@ public interface Map<K, V> {
   public void put(K key, V value);
 
   public V get(K key);
+
+  /**
+   * Removes key and returns the value it had, or null if it was not there.
+   */
+  public V remove(K key);
 }
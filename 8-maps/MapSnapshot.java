@@ -0,0 +1,332 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Saves maps to a binary file and loads them back.
+ *
+ * A snapshot is a 32-byte header, the entries packed one after another as
+ * encoded key then encoded value, and a CRC32 of everything before it:
+ *
+ * magic (long) | version (int) | key width (int) | value width (int) | flags
+ * (int) | count (long) | entries | crc (int)
+ *
+ * Keys and values are written with fixed-width codecs, so there is no framing
+ * per entry. Files are written and read through a FileChannel in chunks of
+ * BUFFER_BYTES using a direct buffer.
+ *
+ * A snapshot of a TreeMap is written in key order and flagged as sorted.
+ * Reading a sorted snapshot into a TreeMap builds the AvlTree in balanced shape
+ * in one pass, in O(n), straight from the file. The hash maps are restored
+ * into tables that are already big enough for every entry, so they never
+ * resize while loading. Any snapshot can be read into any of the three maps.
+ *
+ * write goes to a temporary file that is forced to disk and then moved over
+ * the target, so a crash while saving leaves the previous snapshot in place.
+ */
+public class MapSnapshot<K extends Comparable<? super K>, V> {
+
+  public static final int BUFFER_BYTES = 4 << 20;
+
+  private static final long MAGIC = 0x4177736d536e7031L; // "AwsmSnp1"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 32;
+  private static final int SORTED = 1;
+
+  private final Codec<K> keyCodec;
+  private final Codec<V> valueCodec;
+  private final int entryBytes;
+
+  public MapSnapshot(Codec<K> keyCodec, Codec<V> valueCodec) {
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.entryBytes = keyCodec.width() + valueCodec.width();
+    if (entryBytes > BUFFER_BYTES) {
+      throw new IllegalArgumentException("entries of " + entryBytes + " bytes do not fit in the buffer");
+    }
+  }
+
+  public void write(TreeMap<K, V> map, Path file) throws IOException {
+    write(file, map.size(), true, map::forEach);
+  }
+
+  public void write(SeparateChainingMapGrow<K, V> map, Path file) throws IOException {
+    write(file, map.getSize(), false, map::forEach);
+  }
+
+  public void write(ProbingMap<K, V> map, Path file) throws IOException {
+    write(file, map.size(), false, map::forEach);
+  }
+
+  public TreeMap<K, V> readTreeMap(Path file) throws IOException {
+    try (Reader reader = new Reader(file)) {
+      TreeMap<K, V> map = new TreeMap<>();
+      if (reader.sorted) {
+        map.buildFromSorted(reader.entries(), reader.count);
+      } else {
+        reader.forEach(map::put);
+      }
+      reader.finish();
+      return map;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (IllegalArgumentException e) {
+      throw new IOException(file + " is not in key order", e);
+    }
+  }
+
+  public SeparateChainingMapGrow<K, V> readSeparateChainingMap(Path file) throws IOException {
+    try (Reader reader = new Reader(file)) {
+      int tableSize = SeparateChainingMapGrow.INITIAL_TABLE_SIZE;
+      while (tableSize * SeparateChainingMapGrow.MAX_LOAD_FACTOR < reader.count) {
+        tableSize *= SeparateChainingMapGrow.SCALE_FACTOR;
+      }
+      SeparateChainingMapGrow<K, V> map = new SeparateChainingMapGrow<>(tableSize);
+      reader.forEach(map::put);
+      reader.finish();
+      return map;
+    }
+  }
+
+  public ProbingMap<K, V> readProbingMap(Path file) throws IOException {
+    try (Reader reader = new Reader(file)) {
+      int tableSize = ProbingMap.INITIAL_TABLE_SIZE;
+      while ((reader.count + 1) / (double) tableSize > ProbingMap.MAX_LOAD_FACTOR) {
+        tableSize = tableSize * 2 + 1;
+      }
+      ProbingMap<K, V> map = new ProbingMap<>(tableSize);
+      reader.forEach(map::put);
+      reader.finish();
+      return map;
+    }
+  }
+
+  private void write(Path file, int count, boolean sorted, Consumer<BiConsumer<K, V>> entries) throws IOException {
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+      CRC32 crc = new CRC32();
+      buffer.putLong(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putInt(keyCodec.width());
+      buffer.putInt(valueCodec.width());
+      buffer.putInt(sorted ? SORTED : 0);
+      buffer.putLong(count);
+
+      long[] written = new long[1];
+      try {
+        entries.accept((key, value) -> {
+          if (buffer.remaining() < entryBytes) {
+            drain(channel, buffer, crc);
+          }
+          int position = buffer.position();
+          keyCodec.write(buffer, position, key);
+          valueCodec.write(buffer, position + keyCodec.width(), value);
+          buffer.position(position + entryBytes);
+          written[0]++;
+        });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      if (written[0] != count) {
+        throw new IllegalStateException("map gave " + written[0] + " entries but its size is " + count);
+      }
+      drain(channel, buffer, crc);
+      buffer.putInt((int) crc.getValue());
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // writes out everything in buffer and empties it
+  private static void drain(FileChannel channel, ByteBuffer buffer, CRC32 crc) {
+    buffer.flip();
+    crc.update(buffer.duplicate());
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Reads a snapshot front to back. The buffer always holds bytes from the
+   * file between its position and its limit, and the CRC is taken as the bytes
+   * come in.
+   */
+  private class Reader implements AutoCloseable {
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+    // bytes before the trailing crc that have not been read in yet
+    private long unread;
+    private int left;
+    final int count;
+    final boolean sorted;
+
+    Reader(Path file) throws IOException {
+      this.file = file;
+      this.channel = FileChannel.open(file, StandardOpenOption.READ);
+      this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+      buffer.limit(0);
+      try {
+        unread = channel.size() - Integer.BYTES;
+        if (unread < HEADER_BYTES) {
+          throw new IOException(file + " is too short to be a snapshot");
+        }
+        fill(HEADER_BYTES);
+        if (buffer.getLong() != MAGIC) {
+          throw new IOException(file + " is not a snapshot");
+        }
+        int version = buffer.getInt();
+        int keyWidth = buffer.getInt();
+        int valueWidth = buffer.getInt();
+        int flags = buffer.getInt();
+        long entries = buffer.getLong();
+        if (version != VERSION || keyWidth != keyCodec.width() || valueWidth != valueCodec.width()) {
+          throw new IOException(file + " is version " + version + " with keys of " + keyWidth
+              + " bytes and values of " + valueWidth + " bytes");
+        }
+        if (entries < 0 || entries > Integer.MAX_VALUE || entries * entryBytes != unread + buffer.remaining()) {
+          throw new IOException(file + " should hold " + entries + " entries but its size does not match");
+        }
+        count = (int) entries;
+        left = count;
+        sorted = (flags & SORTED) != 0;
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    // makes sure at least bytes bytes are waiting in the buffer, reading in as
+    // much of the file as fits
+    private void fill(int bytes) throws IOException {
+      if (buffer.remaining() >= bytes) {
+        return;
+      }
+      buffer.compact();
+      int start = buffer.position();
+      buffer.limit((int) Math.min(buffer.capacity(), start + unread));
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          throw new EOFException(file + " ended early");
+        }
+      }
+      ByteBuffer fresh = buffer.duplicate();
+      fresh.flip();
+      fresh.position(start);
+      crc.update(fresh);
+      unread -= buffer.position() - start;
+      buffer.flip();
+      if (buffer.remaining() < bytes) {
+        throw new EOFException(file + " ended early");
+      }
+    }
+
+    private K key() {
+      return keyCodec.read(buffer, buffer.position());
+    }
+
+    private V value() {
+      return valueCodec.read(buffer, buffer.position() + keyCodec.width());
+    }
+
+    void forEach(BiConsumer<K, V> action) throws IOException {
+      while (left > 0) {
+        fill(entryBytes);
+        action.accept(key(), value());
+        buffer.position(buffer.position() + entryBytes);
+        left--;
+      }
+    }
+
+    // the entries as pairs, for building a tree
+    Iterator<Pair<K, V>> entries() {
+      return new Iterator<Pair<K, V>>() {
+        @Override
+        public boolean hasNext() {
+          return left > 0;
+        }
+
+        @Override
+        public Pair<K, V> next() {
+          if (left == 0) {
+            throw new NoSuchElementException();
+          }
+          try {
+            fill(entryBytes);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          Pair<K, V> pair = new Pair<>(key(), value());
+          buffer.position(buffer.position() + entryBytes);
+          left--;
+          return pair;
+        }
+      };
+    }
+
+    // checks the trailing crc once every entry has been read
+    void finish() throws IOException {
+      if (left != 0 || buffer.hasRemaining() || unread != 0) {
+        throw new IOException(file + " was not read to the end");
+      }
+      ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES);
+      while (trailer.hasRemaining()) {
+        if (channel.read(trailer) < 0) {
+          throw new EOFException(file + " ended early");
+        }
+      }
+      if (trailer.getInt(0) != (int) crc.getValue()) {
+        throw new IOException(file + " is corrupt: checksum does not match");
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path file = Files.createTempFile("map-snapshot", ".bin");
+    MapSnapshot<Long, Long> snapshot = new MapSnapshot<>(Codec.LONG, Codec.LONG);
+
+    TreeMap<Long, Long> treeMap = new TreeMap<>();
+    for (long i = 0; i < 100000; i++) {
+      treeMap.put(i * 7 % 100000, i);
+    }
+    snapshot.write(treeMap, file);
+    TreeMap<Long, Long> restored = snapshot.readTreeMap(file);
+    System.out.println(restored.size()); // 100000
+    System.out.println(restored.get(14L)); // 2
+
+    ProbingMap<Long, Long> probingMap = snapshot.readProbingMap(file);
+    System.out.println(probingMap.get(14L)); // 2
+    snapshot.write(probingMap, file);
+    SeparateChainingMapGrow<Long, Long> chainingMap = snapshot.readSeparateChainingMap(file);
+    System.out.println(chainingMap.get(14L)); // 2
+    Files.delete(file);
+  }
+}
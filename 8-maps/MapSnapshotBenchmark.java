@@ -0,0 +1,40 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Rough timing of saving a TreeMap of n long keys and values and loading the
+ * snapshot back into each map. Run with a large heap, e.g.
+ * java -Xmx8g MapSnapshotBenchmark 10000000
+ */
+public class MapSnapshotBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+    Path file = Files.createTempFile("map-snapshot-benchmark", ".bin");
+    MapSnapshot<Long, Long> snapshot = new MapSnapshot<>(Codec.LONG, Codec.LONG);
+
+    save(snapshot, file, n);
+    // each map is only kept inside its run, so the next one has the heap
+    long middle = 2L * (n / 2);
+    Benchmark.time("read into TreeMap", true, () -> snapshot.readTreeMap(file).get(middle));
+    Benchmark.time("read into SeparateChaining", true, () -> snapshot.readSeparateChainingMap(file).get(middle));
+    Benchmark.time("read into ProbingMap", true, () -> snapshot.readProbingMap(file).get(middle));
+    Files.delete(file);
+  }
+
+  // builds and writes the TreeMap here, so it is gone once this returns
+  private static void save(MapSnapshot<Long, Long> snapshot, Path file, int n) throws IOException {
+    TreeMap<Long, Long> treeMap = new TreeMap<>();
+    Benchmark.time("build TreeMap by put", true, () -> {
+      for (long i = 0; i < n; i++) {
+        treeMap.put(i * 2, i);
+      }
+      return treeMap.size();
+    });
+    Benchmark.time("write snapshot", true, () -> {
+      snapshot.write(treeMap, file);
+      return Files.size(file);
+    });
+  }
+}
@@ -0,0 +1,488 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An open-addressing hash map like ProbingMap whose table lives in a
+ * memory-mapped file, so a process can map an existing file and answer gets
+ * straight away, with the operating system paging the table in as it is used.
+ *
+ * The file is a 64-byte header followed by the table. Every slot has the same
+ * size:
+ *
+ * state (byte) | key | value 0 | crc 0 (int) | value 1 | crc 1 (int)
+ *
+ * Keys and values are written with fixed-width codecs. Keys are hashed and
+ * compared by their encoded bytes, with the bytes a codec leaves unwritten
+ * zeroed, so the layout does not depend on hashCode
+ * and a file written by one run can be read by the next. Collisions are
+ * resolved by linear probing, as in ProbingMap, and removed keys leave a
+ * tombstone so that probing runs stay unbroken. The table doubles (into a new
+ * file that then replaces the old one) once more than half the slots are used.
+ *
+ * Crash safety:
+ *
+ * - A new key is written into its slot first, and only then is the state byte
+ * set, so a slot is either fully there or not there at all.
+ *
+ * - Changing a value writes it into the slot's other value copy, with a CRC32
+ * of the key and value, and then flips the state byte to point at it. The old
+ * value stays untouched until the next change.
+ *
+ * - flush forces the file to disk and marks the header clean. The first change
+ * after that marks it dirty again (and forces that mark) before touching any
+ * slot. Opening a dirty file checks the CRC of every slot and falls back to the
+ * other copy, or drops the key, where the current one did not reach the disk.
+ * A clean file is used as it is.
+ *
+ * So after a crash every key has either its newest value or one it had before,
+ * and everything up to the last flush is kept. Not safe for use from several
+ * threads, or by several processes on one file.
+ */
+public class MappedProbingMap<K, V> implements Map<K, V>, AutoCloseable {
+
+  public static final int INITIAL_CAPACITY = 1024;
+  public static final double MAX_LOAD_FACTOR = 0.5;
+
+  private static final long MAGIC = 0x4177736d4d617031L; // "AwsmMap1"
+  private static final int HEADER_BYTES = 64;
+  // where each field sits inside the header
+  private static final int H_MAGIC = 0;
+  private static final int H_KEY_WIDTH = 8;
+  private static final int H_VALUE_WIDTH = 12;
+  private static final int H_CAPACITY = 16;
+  private static final int H_SIZE = 20;
+  private static final int H_USED = 24;
+  private static final int H_CLEAN = 28;
+
+  private static final byte EMPTY = 0;
+  private static final byte FULL_0 = 1;
+  private static final byte FULL_1 = 2;
+  private static final byte DELETED = 3;
+
+  private final Path file;
+  private final Codec<K> keyCodec;
+  private final Codec<V> valueCodec;
+  private final int keyWidth;
+  private final int valueWidth;
+  private final int slotBytes;
+
+  private MappedByteBuffer table;
+  private int capacity;
+  private int size;
+  // full slots plus tombstones
+  private int used;
+  private boolean clean;
+
+  // scratch space for the key being looked up and the value being written
+  private final ByteBuffer keyBytes;
+  private final ByteBuffer valueBytes;
+  private final CRC32 crc = new CRC32();
+
+  /**
+   * Maps file, creating it if it does not exist. An existing file must have
+   * been written with codecs of the same widths.
+   */
+  public MappedProbingMap(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+    this.file = file;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.keyWidth = keyCodec.width();
+    this.valueWidth = valueCodec.width();
+    this.slotBytes = 1 + keyWidth + 2 * (valueWidth + Integer.BYTES);
+    this.keyBytes = ByteBuffer.allocate(keyWidth);
+    this.valueBytes = ByteBuffer.allocate(valueWidth);
+
+    if (Files.exists(file) && Files.size(file) > 0) {
+      open();
+    } else {
+      create(file, INITIAL_CAPACITY);
+      open();
+    }
+  }
+
+  @Override
+  public void put(K key, V value) {
+    if ((used + 1) > capacity * MAX_LOAD_FACTOR) {
+      resize();
+    }
+    beginWrite();
+    encodeKey(key);
+    int hash = hash();
+    int mask = capacity - 1;
+    int reuse = -1;
+
+    for (int i = 0; i < capacity; i++) {
+      int slot = (hash + i) & mask;
+      int offset = slotOffset(slot);
+      byte state = table.get(offset);
+
+      if (state == EMPTY) {
+        if (reuse >= 0) {
+          // take the first tombstone on the way rather than growing the run
+          offset = slotOffset(reuse);
+        } else {
+          used++;
+        }
+        writeNew(offset, value);
+        size++;
+        writeCounts();
+        return;
+      } else if (state == DELETED) {
+        if (reuse < 0) {
+          reuse = slot;
+        }
+      } else if (keyMatches(offset)) {
+        writeUpdate(offset, state, value);
+        return;
+      }
+    }
+
+    // only tombstones were left to probe
+    writeNew(slotOffset(reuse), value);
+    size++;
+    writeCounts();
+  }
+
+  @Override
+  public V get(K key) {
+    encodeKey(key);
+    int offset = find();
+    if (offset < 0) {
+      return null;
+    }
+    return valueCodec.read(table, valueOffset(offset, table.get(offset)));
+  }
+
+  public boolean containsKey(K key) {
+    encodeKey(key);
+    return find() >= 0;
+  }
+
+  /**
+   * Removes key from the map.
+   *
+   * @return the value it had, or null if it was not in the map.
+   */
+  @Override
+  public V remove(K key) {
+    encodeKey(key);
+    int offset = find();
+    if (offset < 0) {
+      return null;
+    }
+    V value = valueCodec.read(table, valueOffset(offset, table.get(offset)));
+    beginWrite();
+    table.put(offset, DELETED);
+    size--;
+    writeCounts();
+    return value;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Forces every change so far to disk and marks the file clean.
+   */
+  public void flush() {
+    if (clean) {
+      return;
+    }
+    table.force();
+    table.put(H_CLEAN, (byte) 1);
+    table.force();
+    clean = true;
+  }
+
+  /**
+   * Flushes and lets go of the mapping. The map must not be used afterwards.
+   */
+  @Override
+  public void close() {
+    flush();
+    table = null;
+  }
+
+  // returns the offset of the slot holding keyBytes, or -1
+  private int find() {
+    int hash = hash();
+    int mask = capacity - 1;
+    for (int i = 0; i < capacity; i++) {
+      int offset = slotOffset((hash + i) & mask);
+      byte state = table.get(offset);
+      if (state == EMPTY) {
+        return -1;
+      } else if (state != DELETED && keyMatches(offset)) {
+        return offset;
+      }
+    }
+    return -1;
+  }
+
+  private void writeNew(int offset, V value) {
+    for (int i = 0; i < keyWidth; i++) {
+      table.put(offset + 1 + i, keyBytes.get(i));
+    }
+    writeValue(offset + 1 + keyWidth, value);
+    // the state byte goes last: until it is set the slot is not there
+    table.put(offset, FULL_0);
+  }
+
+  private void writeUpdate(int offset, byte state, V value) {
+    // write the copy that is not current, then switch to it
+    byte next = state == FULL_0 ? FULL_1 : FULL_0;
+    writeValue(valueOffset(offset, next), value);
+    table.put(offset, next);
+  }
+
+  private void writeValue(int offset, V value) {
+    valueCodec.write(valueBytes, 0, value);
+    crc.reset();
+    crc.update(keyBytes.array(), 0, keyWidth);
+    crc.update(valueBytes.array(), 0, valueWidth);
+    for (int i = 0; i < valueWidth; i++) {
+      table.put(offset + i, valueBytes.get(i));
+    }
+    table.putInt(offset + valueWidth, (int) crc.getValue());
+  }
+
+  private void beginWrite() {
+    if (clean) {
+      // the dirty mark must be on disk before any slot changes
+      table.put(H_CLEAN, (byte) 0);
+      table.force();
+      clean = false;
+    }
+  }
+
+  private void writeCounts() {
+    table.putInt(H_SIZE, size);
+    table.putInt(H_USED, used);
+  }
+
+  private void encodeKey(K key) {
+    // keyBytes is reused, so a codec that does not write every byte of its
+    // width must not see the bytes of the previous key
+    for (int i = 0; i < keyWidth; i++) {
+      keyBytes.put(i, (byte) 0);
+    }
+    keyCodec.write(keyBytes, 0, key);
+  }
+
+  // FNV-1a over the encoded key, then mixed so the low bits spread well
+  private int hash() {
+    int h = 0x811c9dc5;
+    for (int i = 0; i < keyWidth; i++) {
+      h = (h ^ (keyBytes.get(i) & 0xff)) * 0x01000193;
+    }
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    return h;
+  }
+
+  private boolean keyMatches(int offset) {
+    for (int i = 0; i < keyWidth; i++) {
+      if (table.get(offset + 1 + i) != keyBytes.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int slotOffset(int slot) {
+    return HEADER_BYTES + slot * slotBytes;
+  }
+
+  private int valueOffset(int offset, byte state) {
+    int first = offset + 1 + keyWidth;
+    return state == FULL_0 ? first : first + valueWidth + Integer.BYTES;
+  }
+
+  private boolean checksumMatches(int offset, int valueOffset) {
+    crc.reset();
+    for (int i = 0; i < keyWidth; i++) {
+      crc.update(table.get(offset + 1 + i));
+    }
+    for (int i = 0; i < valueWidth; i++) {
+      crc.update(table.get(valueOffset + i));
+    }
+    return (int) crc.getValue() == table.getInt(valueOffset + valueWidth);
+  }
+
+  private void create(Path path, int capacity) throws IOException {
+    long bytes = HEADER_BYTES + (long) capacity * slotBytes;
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IllegalStateException("a table of " + capacity + " slots does not fit in one mapping");
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+      header.putLong(H_MAGIC, MAGIC);
+      header.putInt(H_KEY_WIDTH, keyWidth);
+      header.putInt(H_VALUE_WIDTH, valueWidth);
+      header.putInt(H_CAPACITY, capacity);
+      header.putInt(H_SIZE, 0);
+      header.putInt(H_USED, 0);
+      header.put(H_CLEAN, (byte) 1);
+      header.force();
+    }
+  }
+
+  private void open() throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      table = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    }
+    if (table.getLong(H_MAGIC) != MAGIC) {
+      throw new IOException(file + " is not a MappedProbingMap file");
+    }
+    if (table.getInt(H_KEY_WIDTH) != keyWidth || table.getInt(H_VALUE_WIDTH) != valueWidth) {
+      throw new IOException(file + " was written with keys of " + table.getInt(H_KEY_WIDTH) + " bytes and values of "
+          + table.getInt(H_VALUE_WIDTH) + " bytes");
+    }
+    capacity = table.getInt(H_CAPACITY);
+    size = table.getInt(H_SIZE);
+    used = table.getInt(H_USED);
+    clean = table.get(H_CLEAN) == 1;
+    if (!clean) {
+      recover();
+    }
+  }
+
+  /**
+   * Checks every slot of a file that was not flushed before it was last
+   * closed, then recounts and flushes it.
+   */
+  private void recover() {
+    size = 0;
+    used = 0;
+    for (int slot = 0; slot < capacity; slot++) {
+      int offset = slotOffset(slot);
+      byte state = table.get(offset);
+      if (state == FULL_0 || state == FULL_1) {
+        byte other = state == FULL_0 ? FULL_1 : FULL_0;
+        if (!checksumMatches(offset, valueOffset(offset, state))) {
+          if (checksumMatches(offset, valueOffset(offset, other))) {
+            table.put(offset, other);
+          } else {
+            table.put(offset, DELETED);
+          }
+        }
+      } else if (state != EMPTY) {
+        // a torn state byte cannot be trusted either way
+        table.put(offset, DELETED);
+      }
+      state = table.get(offset);
+      if (state != EMPTY) {
+        used++;
+      }
+      if (state == FULL_0 || state == FULL_1) {
+        size++;
+      }
+    }
+    writeCounts();
+    flush();
+  }
+
+  /**
+   * Copies every entry into a new file with room for at least four times as
+   * many, then moves it over the old one. Until the move the old file is left
+   * as it was, so a crash part way through loses nothing.
+   */
+  private void resize() {
+    int newCapacity = INITIAL_CAPACITY;
+    while (newCapacity < (size + 1) * 4) {
+      newCapacity *= 2;
+    }
+    Path next = file.resolveSibling(file.getFileName() + ".resize");
+    try {
+      create(next, newCapacity);
+      MappedByteBuffer newTable;
+      try (FileChannel channel = FileChannel.open(next, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        newTable = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      }
+
+      int mask = newCapacity - 1;
+      for (int slot = 0; slot < capacity; slot++) {
+        int offset = slotOffset(slot);
+        byte state = table.get(offset);
+        if (state != FULL_0 && state != FULL_1) {
+          continue;
+        }
+        for (int i = 0; i < keyWidth; i++) {
+          keyBytes.put(i, table.get(offset + 1 + i));
+        }
+        int target = hash() & mask;
+        while (newTable.get(slotOffset(target)) != EMPTY) {
+          target = (target + 1) & mask;
+        }
+        // copy the key and the current value with its crc as they are
+        int newOffset = slotOffset(target);
+        int from = valueOffset(offset, state);
+        for (int i = 0; i < keyWidth; i++) {
+          newTable.put(newOffset + 1 + i, keyBytes.get(i));
+        }
+        for (int i = 0; i < valueWidth + Integer.BYTES; i++) {
+          newTable.put(newOffset + 1 + keyWidth + i, table.get(from + i));
+        }
+        newTable.put(newOffset, FULL_0);
+      }
+      newTable.putInt(H_SIZE, size);
+      newTable.putInt(H_USED, size);
+      newTable.force();
+
+      Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      table = newTable;
+      capacity = newCapacity;
+      used = size;
+      clean = true;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path file = Files.createTempFile("mapped-probing-map", ".bin");
+
+    try (MappedProbingMap<Long, Long> map = new MappedProbingMap<>(file, Codec.LONG, Codec.LONG)) {
+      for (long i = 0; i < 10000; i++) {
+        map.put(i, i * i);
+      }
+      map.put(3L, -3L);
+      map.remove(4L);
+    }
+
+    // a later run maps the same file and can read it right away
+    try (MappedProbingMap<Long, Long> map = new MappedProbingMap<>(file, Codec.LONG, Codec.LONG)) {
+      System.out.println(map.size()); // 9999
+      System.out.println(map.get(3L)); // -3
+      System.out.println(map.get(4L)); // null
+      System.out.println(map.get(9999L)); // 99980001
+    }
+    Files.delete(file);
+
+    // short strings leave most of their width unused; a longer key looked up
+    // in between must not change how "apple" is hashed
+    Path strings = Files.createTempFile("mapped-probing-map", ".bin");
+    try (MappedProbingMap<String, Long> map = new MappedProbingMap<>(strings, Codec.string(16), Codec.LONG)) {
+      map.put("apple", 1L);
+      System.out.println(map.get("watermelonxx")); // null
+      map.put("apple", 5L);
+      System.out.println(map.get("apple") + " " + map.size()); // 5 1
+    }
+    Files.delete(strings);
+  }
+}
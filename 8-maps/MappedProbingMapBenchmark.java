@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Rough timing of a cold start: how long until a table of n entries has
+ * answered 1000 lookups, and then LOOKUPS lookups, either by mapping a file
+ * written earlier by MappedProbingMap or by building the table again from
+ * scratch in memory. Each figure includes opening or building the table.
+ *
+ * Run java MappedProbingMapBenchmark 1000000 table.bin once to write the file,
+ * then run the same command again to time the start from it. To time a start
+ * with nothing in the page cache, drop the caches between the two runs (on
+ * Linux, sync; echo 3 > /proc/sys/vm/drop_caches).
+ */
+public class MappedProbingMapBenchmark {
+
+  public static final int LOOKUPS = 1000000;
+
+  public static void main(String[] args) throws IOException {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Path file = Paths.get(args.length > 1 ? args[1] : "mapped-probing-map.bin");
+
+    if (!Files.exists(file)) {
+      Benchmark.time("write " + file, true, () -> {
+        try (MappedProbingMap<Long, Long> map = new MappedProbingMap<>(file, Codec.LONG, Codec.LONG)) {
+          for (long i = 0; i < n; i++) {
+            map.put(i, i * 3);
+          }
+        }
+        return Files.size(file);
+      });
+      System.out.println("run again to time a start from it");
+      return;
+    }
+
+    // only the first start is cold; the second finds the file in the page
+    // cache
+    for (int count : new int[] { 1000, LOOKUPS }) {
+      Benchmark.time("mapped, " + count + " gets", true, () -> {
+        try (MappedProbingMap<Long, Long> mapped = new MappedProbingMap<>(file, Codec.LONG, Codec.LONG)) {
+          return lookups(mapped, n, count);
+        }
+      });
+    }
+
+    // the alternative: build the table again, here from a generator standing
+    // in for whatever the table would be loaded from
+    for (int count : new int[] { 1000, LOOKUPS }) {
+      Benchmark.time("rebuilt HashMap, " + count + " gets", true, () -> {
+        HashMap<Long, Long> hashMap = new HashMap<>();
+        for (long i = 0; i < n; i++) {
+          hashMap.put(i, i * 3);
+        }
+        return lookups(hashMap::get, n, count);
+      });
+      Benchmark.time("rebuilt TreeMap, " + count + " gets", true, () -> {
+        TreeMap<Long, Long> treeMap = new TreeMap<>();
+        for (long i = 0; i < n; i++) {
+          treeMap.put(i, i * 3);
+        }
+        return lookups(treeMap, n, count);
+      });
+    }
+  }
+
+  private static long lookups(Map<Long, Long> map, int n, int count) {
+    return lookups(map::get, n, count);
+  }
+
+  private static long lookups(Function<Long, Long> get, int n, int count) {
+    Random random = new Random(42);
+    long sum = 0;
+    for (int i = 0; i < count; i++) {
+      Long value = get.apply((long) random.nextInt(n));
+      sum += value != null ? value : 0;
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,368 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.BiConsumer;
+
+/**
+ * A map kept in an AVL tree, like TreeMap, but with its nodes stored outside
+ * the Java heap.
+ *
+ * Every node is a fixed-size record in a direct ByteBuffer:
+ *
+ * left (int) | right (int) | height (byte) | key | value
+ *
+ * Children are node numbers instead of references, with 0 meaning "no node".
+ * Node n lives in segment n / SEGMENT_NODES at record n % SEGMENT_NODES, and
+ * new segments are allocated as the map grows, so nothing is ever copied.
+ * Keys and values are written with fixed-width codecs, so a map from long to
+ * long takes 25 bytes per entry and the heap only holds the array of segments.
+ * The garbage collector never has to look at the entries, so its pauses do not
+ * grow with the size of the map.
+ *
+ * Removed nodes are kept in a free list and reused by later puts. Memory is only
+ * given back by clear, and only once the old segments have been collected. Run
+ * with -XX:MaxDirectMemorySize set high enough for the whole map.
+ *
+ * Keys must be non-null and codec order must agree with compareTo. Unlike
+ * TreeMap, values cannot be null either, since a fixed-width codec has no
+ * spare encoding for it, so put throws an IllegalArgumentException for a null
+ * value. get still returns null for a missing key.
+ */
+public class OffHeapTreeMap<K extends Comparable<? super K>, V> implements Map<K, V> {
+
+  public static final int SEGMENT_BITS = 16;
+  public static final int SEGMENT_NODES = 1 << SEGMENT_BITS;
+
+  private static final int SEGMENT_MASK = SEGMENT_NODES - 1;
+  private static final int ALLOWED_IMBALANCE = 1;
+  private static final int NIL = 0;
+
+  // where each field sits inside a node record
+  private static final int LEFT = 0;
+  private static final int RIGHT = 4;
+  private static final int HEIGHT = 8;
+  private static final int KEY = 9;
+
+  private final Codec<K> keyCodec;
+  private final Codec<V> valueCodec;
+  private final int valueOffset;
+  private final int nodeBytes;
+
+  private ByteBuffer[] segments;
+  private int segmentCount;
+  // the next never-used node number
+  private int nextNode;
+  // removed nodes, chained through their left field
+  private int freeList;
+  private int root;
+  private int size;
+
+  public OffHeapTreeMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.valueOffset = KEY + keyCodec.width();
+    this.nodeBytes = valueOffset + valueCodec.width();
+    if ((long) nodeBytes * SEGMENT_NODES > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("keys and values are too wide: " + nodeBytes + " bytes per node");
+    }
+    clear();
+  }
+
+  @Override
+  public void put(K key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("OffHeapTreeMap cannot store null values");
+    }
+    root = insert(key, value, root);
+  }
+
+  @Override
+  public V get(K key) {
+    int t = find(key);
+    return t == NIL ? null : valueCodec.read(segment(t), offset(t) + valueOffset);
+  }
+
+  public boolean containsKey(K key) {
+    return find(key) != NIL;
+  }
+
+  /**
+   * Removes key from the map.
+   *
+   * @return the value it had, or null if it was not in the map.
+   */
+  @Override
+  public V remove(K key) {
+    int t = find(key);
+    if (t == NIL) {
+      return null;
+    }
+    V value = valueCodec.read(segment(t), offset(t) + valueOffset);
+    root = remove(key, root);
+    return value;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes every entry and drops all segments.
+   */
+  public void clear() {
+    segments = new ByteBuffer[4];
+    segmentCount = 0;
+    // node 0 is never handed out, so that 0 can mean "no node"
+    nextNode = 1;
+    freeList = NIL;
+    root = NIL;
+    size = 0;
+  }
+
+  /**
+   * Returns the number of bytes allocated outside the heap.
+   */
+  public long offHeapBytes() {
+    return (long) segmentCount * SEGMENT_NODES * nodeBytes;
+  }
+
+  public int height() {
+    return height(root);
+  }
+
+  /**
+   * Passes every entry to action in key order. Walks the tree with a stack of
+   * node numbers instead of recursion.
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    int[] stack = new int[height(root) + 2];
+    int depth = 0;
+    int t = root;
+    while (t != NIL || depth > 0) {
+      while (t != NIL) {
+        stack[depth++] = t;
+        t = left(t);
+      }
+      t = stack[--depth];
+      ByteBuffer segment = segment(t);
+      int offset = offset(t);
+      action.accept(keyCodec.read(segment, offset + KEY), valueCodec.read(segment, offset + valueOffset));
+      t = right(t);
+    }
+  }
+
+  private int find(K key) {
+    int t = root;
+    while (t != NIL) {
+      int compareResult = keyCodec.compare(key, segment(t), offset(t) + KEY);
+      if (compareResult < 0) {
+        t = left(t);
+      } else if (compareResult > 0) {
+        t = right(t);
+      } else {
+        return t;
+      }
+    }
+    return NIL;
+  }
+
+  private int insert(K key, V value, int t) {
+    if (t == NIL) {
+      int node = allocate();
+      ByteBuffer segment = segment(node);
+      int offset = offset(node);
+      segment.putInt(offset + LEFT, NIL);
+      segment.putInt(offset + RIGHT, NIL);
+      segment.put(offset + HEIGHT, (byte) 0);
+      keyCodec.write(segment, offset + KEY, key);
+      valueCodec.write(segment, offset + valueOffset, value);
+      size++;
+      return node;
+    }
+
+    int compareResult = keyCodec.compare(key, segment(t), offset(t) + KEY);
+    if (compareResult < 0) {
+      setLeft(t, insert(key, value, left(t)));
+    } else if (compareResult > 0) {
+      setRight(t, insert(key, value, right(t)));
+    } else {
+      // duplicates overwrite, like TreeMap
+      valueCodec.write(segment(t), offset(t) + valueOffset, value);
+    }
+    return balance(t);
+  }
+
+  private int remove(K key, int t) {
+    if (t == NIL) {
+      return t;
+    }
+
+    int compareResult = keyCodec.compare(key, segment(t), offset(t) + KEY);
+    if (compareResult < 0) {
+      setLeft(t, remove(key, left(t)));
+    } else if (compareResult > 0) {
+      setRight(t, remove(key, right(t)));
+    } else if (left(t) != NIL && right(t) != NIL) {
+      // two children: move the smallest entry of the right subtree up here
+      int min = right(t);
+      while (left(min) != NIL) {
+        min = left(min);
+      }
+      copyEntry(min, t);
+      setRight(t, removeMin(right(t)));
+    } else {
+      int child = left(t) != NIL ? left(t) : right(t);
+      free(t);
+      t = child;
+    }
+    return balance(t);
+  }
+
+  private int removeMin(int t) {
+    if (left(t) == NIL) {
+      int child = right(t);
+      free(t);
+      return child;
+    }
+    setLeft(t, removeMin(left(t)));
+    return balance(t);
+  }
+
+  private void copyEntry(int from, int to) {
+    ByteBuffer source = segment(from);
+    ByteBuffer target = segment(to);
+    int sourceOffset = offset(from);
+    int targetOffset = offset(to);
+    for (int i = KEY; i < nodeBytes; i++) {
+      target.put(targetOffset + i, source.get(sourceOffset + i));
+    }
+  }
+
+  private int allocate() {
+    if (freeList != NIL) {
+      int node = freeList;
+      freeList = left(node);
+      return node;
+    }
+    if (nextNode < 0) {
+      throw new IllegalStateException("OffHeapTreeMap is full");
+    }
+    if ((nextNode >>> SEGMENT_BITS) == segmentCount) {
+      if (segmentCount == segments.length) {
+        ByteBuffer[] newSegments = new ByteBuffer[segments.length * 2];
+        System.arraycopy(segments, 0, newSegments, 0, segmentCount);
+        segments = newSegments;
+      }
+      segments[segmentCount++] = ByteBuffer.allocateDirect(SEGMENT_NODES * nodeBytes).order(ByteOrder.nativeOrder());
+    }
+    return nextNode++;
+  }
+
+  private void free(int t) {
+    setLeft(t, freeList);
+    freeList = t;
+    size--;
+  }
+
+  private ByteBuffer segment(int t) {
+    return segments[t >>> SEGMENT_BITS];
+  }
+
+  private int offset(int t) {
+    return (t & SEGMENT_MASK) * nodeBytes;
+  }
+
+  private int left(int t) {
+    return segment(t).getInt(offset(t) + LEFT);
+  }
+
+  private int right(int t) {
+    return segment(t).getInt(offset(t) + RIGHT);
+  }
+
+  private void setLeft(int t, int left) {
+    segment(t).putInt(offset(t) + LEFT, left);
+  }
+
+  private void setRight(int t, int right) {
+    segment(t).putInt(offset(t) + RIGHT, right);
+  }
+
+  private int height(int t) {
+    return t == NIL ? -1 : segment(t).get(offset(t) + HEIGHT);
+  }
+
+  private void updateHeight(int t) {
+    segment(t).put(offset(t) + HEIGHT, (byte) (Math.max(height(left(t)), height(right(t))) + 1));
+  }
+
+  // the same rebalancing as AvlTree, on node numbers
+  private int balance(int t) {
+    if (t == NIL) {
+      return t;
+    }
+
+    if (height(left(t)) - height(right(t)) > ALLOWED_IMBALANCE) {
+      if (height(left(left(t))) >= height(right(left(t)))) {
+        t = rotateWithLeftChild(t);
+      } else {
+        setLeft(t, rotateWithRightChild(left(t)));
+        t = rotateWithLeftChild(t);
+      }
+    } else if (height(right(t)) - height(left(t)) > ALLOWED_IMBALANCE) {
+      if (height(right(right(t))) >= height(left(right(t)))) {
+        t = rotateWithRightChild(t);
+      } else {
+        setRight(t, rotateWithLeftChild(right(t)));
+        t = rotateWithRightChild(t);
+      }
+    }
+
+    updateHeight(t);
+    return t;
+  }
+
+  private int rotateWithLeftChild(int k2) {
+    int k1 = left(k2);
+    setLeft(k2, right(k1));
+    setRight(k1, k2);
+    updateHeight(k2);
+    updateHeight(k1);
+    return k1;
+  }
+
+  private int rotateWithRightChild(int k1) {
+    int k2 = right(k1);
+    setRight(k1, left(k2));
+    setLeft(k2, k1);
+    updateHeight(k1);
+    updateHeight(k2);
+    return k2;
+  }
+
+  public static void main(String[] args) {
+    OffHeapTreeMap<Long, Long> map = new OffHeapTreeMap<>(Codec.LONG, Codec.LONG);
+    final int NUMS = 1000000;
+    for (long i = 0; i < NUMS; i++) {
+      map.put(i * 37 % NUMS, i);
+    }
+    for (long i = 1; i < NUMS; i += 2) {
+      map.remove(i);
+    }
+    System.out.println(map.size()); // 500000
+    System.out.println(map.get(74L)); // 2
+    System.out.println(map.get(75L)); // null
+    System.out.println(map.height() <= 1.45 * Math.log(NUMS) / Math.log(2)); // true
+    System.out.println(map.offHeapBytes() / (1024 * 1024) + " MB off the heap");
+
+    OffHeapTreeMap<String, Integer> words = new OffHeapTreeMap<>(Codec.string(16), Codec.INT);
+    words.put("pear", 3);
+    words.put("apple", 1);
+    words.put("fig", 2);
+    words.forEach((word, count) -> System.out.print(word + "=" + count + " "));
+    System.out.println(); // apple=1 fig=2 pear=3
+  }
+}
@@ -1,25 +1,37 @@
+import java.util.function.BiConsumer;
 
 public class ProbingMap<K extends Comparable<? super K>, V> implements Map<K, V> {
 
+  public static final int INITIAL_TABLE_SIZE = 7;
+  public static final double MAX_LOAD_FACTOR = 0.5;
+
   private Pair<K, V> table[];
+  private int size;
 
   @SuppressWarnings("unchecked")
+  public ProbingMap(int initialSize) {
+    table = (Pair<K, V>[]) new Pair[initialSize];
+    size = 0;
+  }
+
   public ProbingMap() {
-    table = (Pair<K, V>[]) new Pair[7];
+    this(INITIAL_TABLE_SIZE);
   }
 
   @Override
   public void put(K key, V value) {
-    int hash = key.hashCode();
-    if (hash < 0) {
-      hash *= -1;
+    if ((size + 1) / (double) table.length > MAX_LOAD_FACTOR) {
+      upsize();
     }
 
-    for (int i = 0; i < 100; i++) {
-      int index = (hash + i) % table.length;
+    int home = home(key);
+
+    for (int i = 0; i < table.length; i++) {
+      int index = (home + i) % table.length;
 
       if (table[index] == null) {
         table[index] = new Pair<K, V>(key, value);
+        size++;
         return;
       } else {
         if (table[index].key.equals(key)) {
@@ -34,19 +46,102 @@ public class ProbingMap<K extends Comparable<? super K>, V> implements Map<K, V>
 
   @Override
   public V get(K key) {
+    int home = home(key);
+
+    for (int i = 0; i < table.length; i++) {
+      int index = (home + i) % table.length;
+      if (table[index] == null) {
+        // probing reached a gap, so key was never put
+        return null;
+      }
+      if (table[index].key.equals(key)) {
+        return table[index].value;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Removes key, then moves later entries of the same probing run back into
+   * the gap so that get never stops early at it.
+   */
+  @Override
+  public V remove(K key) {
+    int home = home(key);
+
+    int gap = -1;
+    for (int i = 0; i < table.length; i++) {
+      int index = (home + i) % table.length;
+      if (table[index] == null) {
+        return null;
+      }
+      if (table[index].key.equals(key)) {
+        gap = index;
+        break;
+      }
+    }
+    if (gap < 0) {
+      return null;
+    }
+
+    V value = table[gap].value;
+    table[gap] = null;
+    size--;
+
+    int index = (gap + 1) % table.length;
+    while (table[index] != null) {
+      int entryHome = home(table[index].key);
+      // the entry can move into the gap unless its home slot lies cyclically
+      // after the gap, up to where it sits now
+      boolean homeInRange = gap <= index ? (gap < entryHome && entryHome <= index)
+          : (gap < entryHome || entryHome <= index);
+      if (!homeInRange) {
+        table[gap] = table[index];
+        table[index] = null;
+        gap = index;
+      }
+      index = (index + 1) % table.length;
+    }
+    return value;
+  }
+
+  // every probe starts here and steps by one, wrapping around the table;
+  // adding to home rather than to the hash keeps the run contiguous even for
+  // hash codes near Integer.MAX_VALUE
+  private int home(K key) {
     int hash = key.hashCode();
     if (hash < 0) {
       hash *= -1;
     }
+    return Math.floorMod(hash, table.length);
+  }
 
-    for (int i = 0; i < 100; i++) {
-      int index = (hash + i) % table.length;
-      if (table[index].key.equals(key)) {
-        return table[index].value;
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Passes every entry to action in table order.
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Pair<K, V> pair : table) {
+      if (pair != null) {
+        action.accept(pair.key, pair.value);
       }
     }
-
-    throw new ArrayIndexOutOfBoundsException();
   }
 
+  // keeps the table at most half full, so probing runs stay short
+  @SuppressWarnings("unchecked")
+  private void upsize() {
+    Pair<K, V>[] oldTable = table;
+    table = (Pair<K, V>[]) new Pair[oldTable.length * 2 + 1];
+    size = 0;
+    for (Pair<K, V> pair : oldTable) {
+      if (pair != null) {
+        put(pair.key, pair.value);
+      }
+    }
+  }
 }
@@ -1,3 +1,4 @@
+import java.util.Iterator;
 import java.util.LinkedList;
 
 public class SeparateChainingMap<K extends Comparable<? super K>, V> implements Map<K, V> {
@@ -29,6 +30,25 @@ public class SeparateChainingMap<K extends Comparable<? super K>, V> implements
     list.add(new Pair<K, V>(key, value));
   }
 
+  @Override
+  public V remove(K key) {
+    int hash = key.hashCode();
+    int index = hash % table.length;
+    if (index < 0) {
+      index += table.length;
+    }
+    Iterator<Pair<K, V>> iterator = table[index].iterator();
+
+    while (iterator.hasNext()) {
+      Pair<K, V> pair = iterator.next();
+      if (pair.key.equals(key)) {
+        iterator.remove();
+        return pair.value;
+      }
+    }
+    return null;
+  }
+
   @Override
   public V get(K key) {
     int hash = key.hashCode();
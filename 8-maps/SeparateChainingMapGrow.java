@@ -1,5 +1,6 @@
+import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.List;
+import java.util.function.BiConsumer;
 
 public class SeparateChainingMapGrow<K extends Comparable<? super K>, V> implements Map<K, V> {
 
@@ -8,6 +9,7 @@ public class SeparateChainingMapGrow<K extends Comparable<? super K>, V> impleme
   public static final double MAX_LOAD_FACTOR = 1.0;
 
   private LinkedList<Pair<K, V>>[] table;
+  private int size;
 
   @SuppressWarnings("unchecked")
   public SeparateChainingMapGrow(int initialSize) {
@@ -35,8 +37,10 @@ public class SeparateChainingMapGrow<K extends Comparable<? super K>, V> impleme
     }
     if (getSize() / (double) getTableSize() > MAX_LOAD_FACTOR) {
       upsize();
+      index = getIndex(key, table.length);
     }
     table[index].add(new Pair<K, V>(key, value));
+    size++;
   }
 
   public V get(K key) {
@@ -49,6 +53,47 @@ public class SeparateChainingMapGrow<K extends Comparable<? super K>, V> impleme
     return null;
   }
 
+  public V remove(K key) {
+    int index = getIndex(key, table.length);
+    Iterator<Pair<K, V>> iterator = table[index].iterator();
+    while (iterator.hasNext()) {
+      Pair<K, V> pair = iterator.next();
+      if (key.equals(pair.key)) {
+        iterator.remove();
+        size--;
+        return pair.value;
+      }
+    }
+    return null;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public int getTableSize() {
+    return table.length;
+  }
+
+  /**
+   * Passes every entry to action, bucket by bucket.
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (LinkedList<Pair<K, V>> list : table) {
+      for (Pair<K, V> pair : list) {
+        action.accept(pair.key, pair.value);
+      }
+    }
+  }
+
+  private int getIndex(K key, int tableSize) {
+    int index = key.hashCode() % tableSize;
+    if (index < 0) {
+      index += tableSize;
+    }
+    return index;
+  }
+
   @SuppressWarnings("unchecked")
   public void upsize() {
     LinkedList<Pair<K, V>>[] newTable = (LinkedList<Pair<K, V>>[]) new LinkedList[getTableSize() * SCALE_FACTOR];
@@ -0,0 +1,88 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Finds slots in one SwissMap group, given the group's GROUP control bytes.
+ *
+ * This class does it with SWAR (SIMD within a register): it reads the group
+ * as two longs and matches all 8 bytes of each with a few arithmetic
+ * operations. SwissVectorMatcher does the same with one 128-bit vector
+ * compare; DEFAULT uses it when it can.
+ */
+public class SwissGroupMatcher {
+
+  /**
+   * SwissVectorMatcher if it was compiled and jdk.incubator.vector is there at
+   * run time, otherwise a SwissGroupMatcher.
+   */
+  public static final SwissGroupMatcher DEFAULT = load();
+
+  private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+      ByteOrder.LITTLE_ENDIAN);
+  private static final long LOW_BITS = 0x0101010101010101L;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+  private static SwissGroupMatcher load() {
+    // looked up by name, so this class compiles and runs without the vector
+    // module
+    try {
+      return (SwissGroupMatcher) Class.forName("SwissVectorMatcher").getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return new SwissGroupMatcher();
+    }
+  }
+
+  /**
+   * The slots of the group starting at offset whose control byte is fragment,
+   * as a mask with bit i set for slot offset + i. May also report a full slot
+   * right after one that matches; callers check the key with equals anyway.
+   */
+  public int match(byte[] control, int offset, int fragment) {
+    long bytes = fragment * LOW_BITS;
+    return pack(matchZero((long) LONGS.get(control, offset) ^ bytes))
+        | pack(matchZero((long) LONGS.get(control, offset + 8) ^ bytes)) << 8;
+  }
+
+  /**
+   * Whether the group starting at offset has an EMPTY slot.
+   */
+  public boolean hasEmpty(byte[] control, int offset) {
+    return (matchEmpty((long) LONGS.get(control, offset)) | matchEmpty((long) LONGS.get(control, offset + 8))) != 0;
+  }
+
+  /**
+   * The first EMPTY or DELETED slot of the group starting at offset, counted
+   * from offset, or -1 if it has none.
+   */
+  public int firstFree(byte[] control, int offset) {
+    long free = (long) LONGS.get(control, offset) & HIGH_BITS;
+    if (free != 0) {
+      return Long.numberOfTrailingZeros(free) >>> 3;
+    }
+    free = (long) LONGS.get(control, offset + 8) & HIGH_BITS;
+    return free != 0 ? 8 + (Long.numberOfTrailingZeros(free) >>> 3) : -1;
+  }
+
+  public String name() {
+    return "SWAR";
+  }
+
+  // sets the high bit of every byte of x that is 0; a byte above a 0 byte can
+  // get it too, which only costs an extra equals, since full slots' bytes
+  // never have the high bit set
+  private static long matchZero(long x) {
+    return (x - LOW_BITS) & ~x & HIGH_BITS;
+  }
+
+  // EMPTY is the only control byte with the high bit set and bit 1 clear
+  private static long matchEmpty(long word) {
+    return word & (~word << 6) & HIGH_BITS;
+  }
+
+  // gathers the high bit of each byte into the low 8 bits; the multiply moves
+  // byte i's bit to bit 56 + i without any two of them colliding
+  private static int pack(long highBits) {
+    return (int) (((highBits >>> 7) * 0x0102040810204080L) >>> 56);
+  }
+}
@@ -0,0 +1,207 @@
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * An open addressing hash map in the style of a Swiss table: the slots are
+ * split into groups of GROUP, and next to the slots every group keeps a
+ * control array of GROUP bytes. A control byte is EMPTY, DELETED, or for a
+ * full slot 7 bits of the key's hash. get compares those bits against all
+ * bytes of a group at once, so it calls equals almost only on the key it is
+ * looking for, and steps through the table a group at a time instead of a
+ * slot at a time like ProbingMap.
+ *
+ * The matching is done by a SwissGroupMatcher: one 128-bit vector compare
+ * per group with the Vector API where it is available, otherwise a few
+ * arithmetic operations on the group's two longs (SWAR). The other 57 bits of
+ * the hash pick the group to start at, and after that, groups 1, 2, 3, ...
+ * further on, which visits every group.
+ *
+ * A lookup stops at the first group that has an EMPTY byte, so remove leaves
+ * a DELETED byte behind unless the group already has an EMPTY one. The table
+ * is rebuilt when EMPTY slots would drop below 1/8, at twice the size, or at
+ * the same size if most of the used slots were DELETED.
+ */
+public class SwissMap<K, V> implements Map<K, V> {
+
+  public static final int GROUP = 16;
+
+  static final byte EMPTY = (byte) 0x80;
+  static final byte DELETED = (byte) 0xfe;
+
+  private final SwissGroupMatcher matcher;
+  private byte[] control;
+  private Object[] keys;
+  private Object[] values;
+  private int groupMask;
+  private int size;
+  private int growthLeft;
+
+  /**
+   * Starts with room for at least initialSize entries, matching groups with
+   * matcher.
+   */
+  public SwissMap(int initialSize, SwissGroupMatcher matcher) {
+    this.matcher = matcher;
+    int groups = 1;
+    while (maxSize(groups * GROUP) < initialSize) {
+      groups *= 2;
+    }
+    allocate(groups);
+  }
+
+  public SwissMap(int initialSize) {
+    this(initialSize, SwissGroupMatcher.DEFAULT);
+  }
+
+  public SwissMap() {
+    this(0);
+  }
+
+  @Override
+  public void put(K key, V value) {
+    long hash = BloomFilter.mix(key.hashCode());
+    int slot = find(key, hash);
+    if (slot >= 0) {
+      values[slot] = value;
+      return;
+    }
+    slot = freeSlot(hash);
+    if (growthLeft == 0 && control[slot] == EMPTY) {
+      rehash();
+      slot = freeSlot(hash);
+    }
+    if (control[slot] == EMPTY) {
+      growthLeft--;
+    }
+    control[slot] = (byte) (hash & 0x7f);
+    keys[slot] = key;
+    values[slot] = value;
+    size++;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    int slot = find(key, BloomFilter.mix(key.hashCode()));
+    return slot >= 0 ? (V) values[slot] : null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V remove(K key) {
+    int slot = find(key, BloomFilter.mix(key.hashCode()));
+    if (slot < 0) {
+      return null;
+    }
+    V value = (V) values[slot];
+    keys[slot] = null;
+    values[slot] = null;
+    // with an EMPTY byte in the group no lookup ever went past it, so the
+    // slot can be EMPTY again
+    if (matcher.hasEmpty(control, slot / GROUP * GROUP)) {
+      control[slot] = EMPTY;
+      growthLeft++;
+    } else {
+      control[slot] = DELETED;
+    }
+    size--;
+    return value;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public SwissGroupMatcher matcher() {
+    return matcher;
+  }
+
+  /**
+   * Passes every entry to action in table order.
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        action.accept((K) keys[i], (V) values[i]);
+      }
+    }
+  }
+
+  private int find(Object key, long hash) {
+    int fragment = (int) (hash & 0x7f);
+    int group = (int) (hash >>> 7) & groupMask;
+    for (int step = 1;; step++) {
+      int offset = group * GROUP;
+      int matches = matcher.match(control, offset, fragment);
+      while (matches != 0) {
+        int slot = offset + Integer.numberOfTrailingZeros(matches);
+        if (keys[slot].equals(key)) {
+          return slot;
+        }
+        matches &= matches - 1;
+      }
+      if (matcher.hasEmpty(control, offset)) {
+        return -1;
+      }
+      group = (group + step) & groupMask;
+    }
+  }
+
+  // the first EMPTY or DELETED slot on the way of hash
+  private int freeSlot(long hash) {
+    int group = (int) (hash >>> 7) & groupMask;
+    for (int step = 1;; step++) {
+      int free = matcher.firstFree(control, group * GROUP);
+      if (free >= 0) {
+        return group * GROUP + free;
+      }
+      group = (group + step) & groupMask;
+    }
+  }
+
+  private static int maxSize(int capacity) {
+    return capacity - capacity / 8;
+  }
+
+  private void allocate(int groups) {
+    control = new byte[groups * GROUP];
+    Arrays.fill(control, EMPTY);
+    keys = new Object[groups * GROUP];
+    values = new Object[groups * GROUP];
+    groupMask = groups - 1;
+    growthLeft = maxSize(groups * GROUP);
+  }
+
+  private void rehash() {
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    int groups = groupMask + 1;
+    // mostly DELETED slots only need cleaning up, not a bigger table
+    allocate(size + 1 > maxSize(groups * GROUP) / 2 ? groups * 2 : groups);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        long hash = BloomFilter.mix(oldKeys[i].hashCode());
+        int slot = freeSlot(hash);
+        control[slot] = (byte) (hash & 0x7f);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+        growthLeft--;
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    SwissMap<Integer, String> map = new SwissMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, "v" + i);
+    }
+    System.out.println(map.size() + " " + map.get(7) + " " + map.get(1000)); // 1000 v7 null
+    for (int i = 0; i < 1000; i += 2) {
+      map.remove(i);
+    }
+    map.put(7, "seven");
+    System.out.println(map.size() + " " + map.get(6) + " " + map.get(7)); // 500 null seven
+    System.out.println(map.matcher().name()); // Vector API, or SWAR without jdk.incubator.vector
+  }
+}
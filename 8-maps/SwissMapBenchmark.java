@@ -0,0 +1,93 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Rough timing of get on SwissMap, ProbingMap, CuckooMap and
+ * java.util.HashMap, all holding the same n random Integer keys, for hits and
+ * for misses, in average ns per get. SwissMap is timed with
+ * SwissGroupMatcher.DEFAULT and, if that is the vector matcher, with SWAR too.
+ *
+ * All maps are built first, and every round times each of them in turn
+ * through the same call site, so none of them has the JIT to itself. That
+ * needs heap for all of them at once; 10 million keys take around 3 GB
+ * (java -Xmx4g SwissMapBenchmark 10000000). See SwissVectorMatcher for how
+ * to build and run with the vector matcher.
+ * java SwissMapBenchmark [n]
+ */
+public class SwissMapBenchmark {
+
+  public static final int LOOKUPS = 10000000;
+  public static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Random random = new Random(42);
+
+    // even keys only, so a key plus one is never there
+    Integer[] keys = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = random.nextInt(Integer.MAX_VALUE / 2) * 2;
+    }
+    Integer[] hits = new Integer[LOOKUPS];
+    Integer[] misses = new Integer[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      hits[i] = keys[random.nextInt(n)];
+      misses[i] = keys[random.nextInt(n)] + 1;
+    }
+
+    System.out.printf("%d keys%n%-24s %10s %10s %10s%n", n, "", "build ms", "hit ns", "miss ns");
+    List<Candidate> candidates = new ArrayList<>();
+    SwissMap<Integer, Integer> swissMap = new SwissMap<>();
+    candidates.add(new Candidate("SwissMap " + swissMap.matcher().name(), keys, swissMap::put, swissMap::get));
+    if (swissMap.matcher().getClass() != SwissGroupMatcher.class) {
+      SwissMap<Integer, Integer> swarMap = new SwissMap<>(0, new SwissGroupMatcher());
+      candidates.add(new Candidate("SwissMap SWAR", keys, swarMap::put, swarMap::get));
+    }
+    ProbingMap<Integer, Integer> probingMap = new ProbingMap<>();
+    candidates.add(new Candidate("ProbingMap", keys, probingMap::put, probingMap::get));
+    CuckooMap<Integer, Integer> cuckooMap = new CuckooMap<>();
+    candidates.add(new Candidate("CuckooMap", keys, cuckooMap::put, cuckooMap::get));
+    HashMap<Integer, Integer> hashMap = new HashMap<>();
+    candidates.add(new Candidate("java.util.HashMap", keys, hashMap::put, hashMap::get));
+
+    Benchmark.rounds(ROUNDS, report -> {
+      for (Candidate candidate : candidates) {
+        long hitNanos = Benchmark.nanos(() -> lookups(candidate.get, hits));
+        long missNanos = Benchmark.nanos(() -> lookups(candidate.get, misses));
+        if (report) {
+          System.out.printf("%-24s %10.1f %10.1f %10.1f%n", candidate.name, candidate.buildMillis,
+              hitNanos / (double) LOOKUPS, missNanos / (double) LOOKUPS);
+        }
+      }
+    });
+  }
+
+  private static class Candidate {
+    final String name;
+    final Function<Integer, Integer> get;
+    final double buildMillis;
+
+    Candidate(String name, Integer[] keys, BiConsumer<Integer, Integer> put, Function<Integer, Integer> get) {
+      this.name = name;
+      this.get = get;
+      this.buildMillis = Benchmark.nanos(() -> {
+        for (Integer key : keys) {
+          put.accept(key, key);
+        }
+        return keys.length;
+      }) / 1e6;
+    }
+  }
+
+  private static long lookups(Function<Integer, Integer> get, Integer[] queries) {
+    long found = 0;
+    for (Integer query : queries) {
+      found += get.apply(query) != null ? 1 : 0;
+    }
+    return found;
+  }
+}
@@ -0,0 +1,252 @@
+import java.util.function.BiConsumer;
+
+/**
+ * A cache of at most capacity entries that keeps the entries used most often,
+ * using the W-TinyLFU policy.
+ *
+ * New entries go into a small LRU window of WINDOW_SHARE of the capacity. The
+ * rest, the main space, is a segmented LRU: entries come in on probation, move
+ * to the protected segment when they are used again, and fall back to
+ * probation when the protected segment, PROTECTED_SHARE of the main space,
+ * overflows. An entry pushed out of the window has to earn its place: it only
+ * stays if a CountMinSketch says it was asked for more often than the least
+ * recently used entry on probation, which is evicted instead. Otherwise the
+ * newcomer is evicted.
+ *
+ * Keys seen once, such as the keys of a scan over a whole table, never beat the
+ * established entries, so a scan only churns the window. The window still
+ * lets bursts of new keys get a few hits before they are judged.
+ *
+ * The index is a SeparateChainingMapGrow from key to node, and each segment is
+ * a doubly linked list of the same nodes between two sentinels, so every
+ * operation is O(1).
+ */
+public class TinyLfuCache<K extends Comparable<? super K>, V> implements Map<K, V> {
+
+  public static final double WINDOW_SHARE = 0.01;
+  public static final double PROTECTED_SHARE = 0.8;
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private final int capacity;
+  private final int windowCapacity;
+  private final int mainCapacity;
+  private final int protectedCapacity;
+  private final SeparateChainingMapGrow<K, Node<K, V>> index = new SeparateChainingMapGrow<>();
+  private final CountMinSketch sketch;
+  @SuppressWarnings("unchecked")
+  private final Segment<K, V>[] segments = (Segment<K, V>[]) new Segment[] { new Segment<>(), new Segment<>(),
+      new Segment<>() };
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  private static class Node<K, V> {
+    final K key;
+    V value;
+    int segment;
+    Node<K, V> prev;
+    Node<K, V> next;
+
+    Node(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * One LRU queue: least recently used right after head, most recently used
+   * right before tail.
+   */
+  private static class Segment<K, V> {
+    final Node<K, V> head = new Node<>(null, null);
+    final Node<K, V> tail = new Node<>(null, null);
+    int size;
+
+    Segment() {
+      head.next = tail;
+      tail.prev = head;
+    }
+
+    Node<K, V> first() {
+      return head.next;
+    }
+
+    void linkLast(Node<K, V> node) {
+      node.prev = tail.prev;
+      node.next = tail;
+      tail.prev.next = node;
+      tail.prev = node;
+      size++;
+    }
+
+    void unlink(Node<K, V> node) {
+      node.prev.next = node.next;
+      node.next.prev = node.prev;
+      size--;
+    }
+  }
+
+  public TinyLfuCache(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+    }
+    this.capacity = capacity;
+    this.windowCapacity = capacity == 0 ? 0 : Math.max(1, (int) (capacity * WINDOW_SHARE));
+    this.mainCapacity = capacity - windowCapacity;
+    this.protectedCapacity = (int) (mainCapacity * PROTECTED_SHARE);
+    this.sketch = new CountMinSketch(capacity);
+  }
+
+  @Override
+  public void put(K key, V value) {
+    sketch.increment(hash(key));
+    Node<K, V> node = index.get(key);
+    if (node != null) {
+      node.value = value;
+      touch(node);
+      return;
+    }
+    node = new Node<>(key, value);
+    node.segment = WINDOW;
+    index.put(key, node);
+    segments[WINDOW].linkLast(node);
+    evict();
+  }
+
+  @Override
+  public V get(K key) {
+    sketch.increment(hash(key));
+    Node<K, V> node = index.get(key);
+    if (node == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    touch(node);
+    return node.value;
+  }
+
+  @Override
+  public V remove(K key) {
+    Node<K, V> node = index.remove(key);
+    if (node == null) {
+      return null;
+    }
+    segments[node.segment].unlink(node);
+    return node.value;
+  }
+
+  public int size() {
+    return index.getSize();
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public long hitCount() {
+    return hits;
+  }
+
+  public long missCount() {
+    return misses;
+  }
+
+  public long evictionCount() {
+    return evictions;
+  }
+
+  /**
+   * The share of gets that found their key, or 0 before the first get.
+   */
+  public double hitRate() {
+    long requests = hits + misses;
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+
+  /**
+   * Passes every entry to action: the window, then probation, then the
+   * protected segment, each from least to most recently used.
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Segment<K, V> segment : segments) {
+      for (Node<K, V> node = segment.first(); node != segment.tail; node = node.next) {
+        action.accept(node.key, node.value);
+      }
+    }
+  }
+
+  // makes node the most recently used of its segment, promoting it from probation
+  private void touch(Node<K, V> node) {
+    segments[node.segment].unlink(node);
+    if (node.segment == PROBATION) {
+      node.segment = PROTECTED;
+      if (segments[PROTECTED].size >= protectedCapacity && segments[PROTECTED].size > 0) {
+        Node<K, V> demoted = segments[PROTECTED].first();
+        segments[PROTECTED].unlink(demoted);
+        demoted.segment = PROBATION;
+        segments[PROBATION].linkLast(demoted);
+      }
+    }
+    segments[node.segment].linkLast(node);
+  }
+
+  // moves window overflow to probation, evicting whichever of it and the
+  // probation victim is used less often
+  private void evict() {
+    while (segments[WINDOW].size > windowCapacity) {
+      Node<K, V> candidate = segments[WINDOW].first();
+      segments[WINDOW].unlink(candidate);
+      candidate.segment = PROBATION;
+      segments[PROBATION].linkLast(candidate);
+
+      if (segments[PROBATION].size + segments[PROTECTED].size > mainCapacity) {
+        Node<K, V> victim = segments[PROBATION].first();
+        if (victim != candidate && sketch.frequency(hash(candidate.key)) > sketch.frequency(hash(victim.key))) {
+          discard(victim);
+        } else {
+          discard(candidate);
+        }
+      }
+    }
+  }
+
+  private void discard(Node<K, V> node) {
+    segments[node.segment].unlink(node);
+    index.remove(node.key);
+    evictions++;
+  }
+
+  private static long hash(Object key) {
+    return BloomFilter.mix(key.hashCode());
+  }
+
+  public static void main(String[] args) {
+    TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100);
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 50; i++) {
+        if (cache.get(i) == null) {
+          cache.put(i, i);
+        }
+      }
+    }
+    // a scan of keys never seen before
+    for (int i = 1000; i < 1300; i++) {
+      if (cache.get(i) == null) {
+        cache.put(i, i);
+      }
+    }
+    int kept = 0;
+    for (int i = 0; i < 50; i++) {
+      if (cache.get(i) != null) {
+        kept++;
+      }
+    }
+    System.out.println(kept); // 50
+    System.out.println(cache.size()); // 100
+  }
+}
@@ -1,3 +1,7 @@
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 public class TreeMap<K extends Comparable<? super K>, V> implements Map<K, V> {
   private AvlTree<Pair<K, V>> tree;
@@ -16,4 +20,56 @@ public class TreeMap<K extends Comparable<? super K>, V> implements Map<K, V> {
     Pair<K, V> found = tree.get(new Pair<K, V>(key, null));
     return found == null ? null : found.value;
   }
+
+  @Override
+  public V remove(K key) {
+    Pair<K, V> found = tree.get(new Pair<K, V>(key, null));
+    if (found == null) {
+      return null;
+    }
+    tree.remove(found);
+    return found.value;
+  }
+
+  public int size() {
+    return tree.size();
+  }
+
+  /**
+   * Passes every entry to action in key order.
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    tree.spliterator().forEachRemaining(pair -> action.accept(pair.key, pair.value));
+  }
+
+  /**
+   * Passes every entry with from <= key < to to action in key order.
+   */
+  public void forEachInRange(K from, K to, BiConsumer<? super K, ? super V> action) {
+    tree.forEachInRange(new Pair<K, V>(from, null), new Pair<K, V>(to, null),
+        pair -> action.accept(pair.key, pair.value));
+  }
+
+  /**
+   * Replaces the contents of the map with count entries from entries, which
+   * must be in strictly increasing key order. Builds the tree in O(count).
+   */
+  public void buildFromSorted(Iterator<Pair<K, V>> entries, int count) {
+    tree.buildFromSorted(entries, count);
+  }
+
+  /**
+   * Entries in key order, split at subtree boundaries of the underlying tree.
+   */
+  public Spliterator<Pair<K, V>> spliterator() {
+    return tree.spliterator();
+  }
+
+  public Stream<Pair<K, V>> stream() {
+    return tree.stream();
+  }
+
+  public Stream<Pair<K, V>> parallelStream() {
+    return tree.parallelStream();
+  }
 }
@@ -0,0 +1,46 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws integers from 0 to n - 1 where k comes up in proportion to
+ * 1 / (k + 1)^exponent, so a few small numbers are very common and most are
+ * rare, like the keys asked of a cache. An exponent around 1 is typical.
+ *
+ * The cumulative probabilities are computed once; each draw is a binary search
+ * for a uniform random number among them.
+ */
+public class Zipf {
+
+  private final double[] cumulative;
+  private final Random random;
+
+  public Zipf(int n, double exponent, long seed) {
+    cumulative = new double[n];
+    double sum = 0;
+    for (int k = 0; k < n; k++) {
+      sum += 1 / Math.pow(k + 1, exponent);
+      cumulative[k] = sum;
+    }
+    for (int k = 0; k < n; k++) {
+      cumulative[k] /= sum;
+    }
+    random = new Random(seed);
+  }
+
+  public int next() {
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    int k = index >= 0 ? index : -index - 1;
+    return Math.min(k, cumulative.length - 1);
+  }
+
+  public static void main(String[] args) {
+    Zipf zipf = new Zipf(1000, 1.0, 42);
+    int zeros = 0;
+    for (int i = 0; i < 100000; i++) {
+      if (zipf.next() == 0) {
+        zeros++;
+      }
+    }
+    System.out.println(zeros > 12000 && zeros < 14000); // true
+  }
+}
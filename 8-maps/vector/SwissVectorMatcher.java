@@ -0,0 +1,55 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A SwissGroupMatcher that loads a group's 16 control bytes into one 128-bit
+ * vector and compares them all in one instruction, with the Vector API.
+ *
+ * jdk.incubator.vector is not in the default module graph, so this file is
+ * kept apart and needs the module to compile and run:
+ *   javac --add-modules jdk.incubator.vector -d out *.java vector/*.java
+ *   java --add-modules jdk.incubator.vector -cp out SwissMapBenchmark
+ * Without it, SwissGroupMatcher.DEFAULT stays on SWAR.
+ */
+public class SwissVectorMatcher extends SwissGroupMatcher {
+
+  private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_128;
+
+  public SwissVectorMatcher() {
+    if (ByteVector.SPECIES_PREFERRED.vectorBitSize() < SPECIES.vectorBitSize()) {
+      // the vector would be emulated, which is far slower than SWAR
+      throw new UnsupportedOperationException("no 128-bit vectors on this CPU");
+    }
+  }
+
+  @Override
+  public int match(byte[] control, int offset, int fragment) {
+    VectorMask<Byte> matches = ByteVector.fromArray(SPECIES, control, offset).eq((byte) fragment);
+    // before Java 18 toLong is not compiled to a single instruction and costs
+    // several times as much as firstTrue and lastTrue, so it is only used for
+    // the rare group with more than one match
+    int first = matches.firstTrue();
+    if (first == SPECIES.length()) {
+      return 0;
+    }
+    return first == matches.lastTrue() ? 1 << first : (int) matches.toLong();
+  }
+
+  @Override
+  public boolean hasEmpty(byte[] control, int offset) {
+    return ByteVector.fromArray(SPECIES, control, offset).eq(SwissMap.EMPTY).anyTrue();
+  }
+
+  @Override
+  public int firstFree(byte[] control, int offset) {
+    // EMPTY and DELETED are the only negative control bytes
+    int first = ByteVector.fromArray(SPECIES, control, offset).lt((byte) 0).firstTrue();
+    return first < SPECIES.length() ? first : -1;
+  }
+
+  @Override
+  public String name() {
+    return "Vector API";
+  }
+}